@@ -3,101 +3,117 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
 
+/**
+ * The token pool. Counts and limits are kept in int arrays indexed by FeedbackToken ordinal, with a
+ * running total, so the per-turn add/draw/putBack calls do not box or allocate.
+ */
 public class Bag {
-    final EnumMap<FeedbackToken, Integer> limitPerType = new EnumMap<>(FeedbackToken.class);
-    final EnumMap<FeedbackToken, Integer> counts = new EnumMap<>(FeedbackToken.class);
+    static final FeedbackToken[] TOKENS = FeedbackToken.values();
+
+    final int[] limits = new int[TOKENS.length];
+    final int[] counts = new int[TOKENS.length];
+    int total;
     Random rng;
-//    int wild;
-//    int waste;
-//    int devA;
-//    int devB;
 
     Bag(Random rng, int defaultLimitEach) {
         this.rng = rng;
-        for (FeedbackToken t : FeedbackToken.values()) {
-            limitPerType.put(t, defaultLimitEach);
-            counts.put(t, 0);
-        }
+        for (int i = 0; i < TOKENS.length; i++) limits[i] = defaultLimitEach;
     }
 
+    // limits per token type; null or {-1} gives every type defaultLimitEach
     Bag(Random rng, int[] limits, int defaultLimitEach) {
         this.rng = rng;
-        if(limits[0] != -1) {
-//           this.wild = limits[0];
-//           this.waste = limits[1];
-//           this.devA = limits[2];
-//           this.devB = limits[3];
-           for (int i = 0; i < limits.length; i++) {
-               FeedbackToken t = FeedbackToken.values()[i];
-               limitPerType.put(t, limits[i]);
-               counts.put(t, 0);
-           }
-        }
-        else {
-            for (FeedbackToken t : FeedbackToken.values()) {
-                limitPerType.put(t, defaultLimitEach);
-                counts.put(t, 0);
-            }
+        if (limits != null && limits[0] != -1) {
+            for (int i = 0; i < limits.length; i++) this.limits[i] = limits[i];
+        } else {
+            for (int i = 0; i < TOKENS.length; i++) this.limits[i] = defaultLimitEach;
         }
     }
 
+    /**
+     * Copy the limits and current counts of another bag, drawing from a new random stream.
+     */
+    Bag(Bag other, Random rng) {
+        this.rng = rng;
+        System.arraycopy(other.limits, 0, limits, 0, limits.length);
+        System.arraycopy(other.counts, 0, counts, 0, counts.length);
+        this.total = other.total;
+    }
+
     void setLimit(FeedbackToken t, int limit) {
-        limitPerType.put(t, limit);
+        limits[t.ordinal()] = limit;
+    }
+
+    int limit(FeedbackToken t) {
+        return limits[t.ordinal()];
     }
 
     /**
      * Add a token to the pool (subject to the upper limit).
      */
     void add(FeedbackToken t) {
-        int c = counts.get(t);
-        int lim = limitPerType.get(t);
-        if (c < lim) counts.put(t, c + 1);
+        add(t.ordinal());
+    }
+
+    void add(int token) {
+        if (counts[token] < limits[token]) {
+            counts[token]++;
+            total++;
+        }
     }
 
     /**
-     * Draw one; if the pool is empty, return null.
+     * Draw one; if the pool is empty, return empty.
      */
     Optional<FeedbackToken> drawOne() {
-        int total = counts.values().stream().mapToInt(Integer::intValue).sum();
-        if (total == 0) return Optional.empty();
+        int token = drawIndex();
+        return token < 0 ? Optional.empty() : Optional.of(TOKENS[token]);
+    }
+
+    /**
+     * Draw one weighted by count and return its ordinal, or -1 if the pool is empty.
+     */
+    int drawIndex() {
+        if (total == 0) return -1;
         int r = rng.nextInt(total);
-        for (FeedbackToken t : FeedbackToken.values()) {
-            int c = counts.get(t);
-            if (r < c) {
-                counts.put(t, c - 1);
-                return Optional.of(t);
+        for (int i = 0; i < counts.length; i++) {
+            if (r < counts[i]) {
+                counts[i]--;
+                total--;
+                return i;
             }
-            r -= c;
+            r -= counts[i];
         }
-        return Optional.empty();
+        return -1;
     }
 
     /**
      * Return one (without upper limit, for the "return to pool" recycling logic)
      */
     void putBack(FeedbackToken t) {
-        counts.put(t, counts.get(t) + 1);
+        putBack(t.ordinal());
+    }
+
+    void putBack(int token) {
+        counts[token]++;
+        total++;
     }
 
     Map<FeedbackToken, Integer> snapshot() {
-        return new EnumMap<>(counts);
+        EnumMap<FeedbackToken, Integer> copy = new EnumMap<>(FeedbackToken.class);
+        for (FeedbackToken t : TOKENS) copy.put(t, counts[t.ordinal()]);
+        return copy;
     }
+
     /**
-     *
      * Get the total number of tokens in the current bag.
      */
     public int totalCount() {
-    int total = 0;
-    for (int count : counts.values()) {
-        total += count;
+        return total;
     }
-    return total;
-}
 
     /** Retrieve the quantity of a specific token type.*/
     public int count(FeedbackToken tokenType) {
-        return counts.getOrDefault(tokenType, 0);
+        return counts[tokenType.ordinal()];
     }
 }
-
-
@@ -0,0 +1,185 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Runs many seeds of one configuration in parallel across the cores of this JVM and merges
+ * the results into a single {@link BatchStats}. Run with seed s is reproducible on any machine and
+ * under any chunking, in Stage 2 too: each copy shuffles the deck from file order with a stream
+ * derived from s alone (see {@link Simulation#copy}).
+ */
+public class BatchEngine implements AutoCloseable {
+    final int threads;
+    private final ExecutorService pool;
+
+    BatchEngine(int threads) {
+        this.threads = Math.max(1, threads);
+        this.pool = Executors.newFixedThreadPool(this.threads, r -> {
+            Thread t = new Thread(r, "batch-engine");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    BatchEngine() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Run seeds seedStart .. seedStart+count-1 of the configuration.
+     */
+    BatchStats run(SweepPoint point, long seedStart, int count) throws InterruptedException {
+        Simulation template = point.newSimulation(seedStart);
+        int chunks = Math.max(1, Math.min(threads, count));
+        List<Future<BatchStats>> futures = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            long from = seedStart + (long) count * c / chunks;
+            long to = seedStart + (long) count * (c + 1) / chunks;
+            futures.add(pool.submit(() -> runRange(template, from, to)));
+        }
+        BatchStats total = new BatchStats(template.myStacks.size(), template.turns);
+        try {
+            for (Future<BatchStats> f : futures) total.merge(f.get());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch run failed", e.getCause());
+        } finally {
+            for (Future<BatchStats> f : futures) f.cancel(true);
+        }
+        return total;
+    }
+
+    /**
+     * Run seeds seedStart .. seedStart+count-1 of both configurations, each seed once with a and
+     * once with b (common random numbers), and aggregate the pairs.
+     */
+    PairedStats runPaired(SweepPoint a, SweepPoint b, long seedStart, int count) throws InterruptedException {
+        Simulation templateA = a.newSimulation(seedStart);
+        Simulation templateB = b.newSimulation(seedStart);
+        int chunks = Math.max(1, Math.min(threads, count));
+        List<Future<PairedStats>> futures = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            long from = seedStart + (long) count * c / chunks;
+            long to = seedStart + (long) count * (c + 1) / chunks;
+            futures.add(pool.submit(() -> runPairedRange(templateA, templateB, from, to)));
+        }
+        PairedStats total = new PairedStats();
+        try {
+            for (Future<PairedStats> f : futures) total.merge(f.get());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Paired run failed", e.getCause());
+        } finally {
+            for (Future<PairedStats> f : futures) f.cancel(true);
+        }
+        return total;
+    }
+
+    /**
+     * Run many configurations, count seeds each, configuration i from seed seedStarts[i]. Consecutive
+     * configurations go to the pool in tasks of batchSize, so thousands of short evaluations do not
+     * pay one task each. Results are in the order of points.
+     */
+    BatchStats[] runEach(SweepPoint[] points, long[] seedStarts, int count, int batchSize) throws InterruptedException {
+        int size = Math.max(1, batchSize);
+        BatchStats[] results = new BatchStats[points.length];
+        List<Future<?>> futures = new ArrayList<>();
+        for (int from = 0; from < points.length; from += size) {
+            int start = from;
+            int to = Math.min(from + size, points.length);
+            futures.add(pool.submit(() -> {
+                for (int i = start; i < to && !Thread.currentThread().isInterrupted(); i++) {
+                    Simulation template = points[i].newSimulation(seedStarts[i]);
+                    results[i] = runRange(template, seedStarts[i], seedStarts[i] + count);
+                }
+            }));
+        }
+        try {
+            for (Future<?> f : futures) f.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch run failed", e.getCause());
+        } finally {
+            for (Future<?> f : futures) f.cancel(true);
+        }
+        return results;
+    }
+
+    /**
+     * Run seeds seedStart .. seedStart+count-1 in chunks of at most chunkSize runs and hand the
+     * per-round histogram of every finished chunk to sink, on the calling thread, in completion
+     * order. Interrupting the caller cancels the chunks that have not finished.
+     */
+    void runEnsemble(SweepPoint point, long seedStart, int count, int chunkSize,
+                     Consumer<EnsembleStats> sink) throws InterruptedException {
+        Simulation template = point.newSimulation(seedStart);
+        int size = Math.max(1, chunkSize);
+        CompletionService<EnsembleStats> done = new ExecutorCompletionService<>(pool);
+        List<Future<EnsembleStats>> futures = new ArrayList<>();
+        for (long from = seedStart; from < seedStart + count; from += size) {
+            long start = from;
+            long to = Math.min(from + size, seedStart + count);
+            futures.add(done.submit(() -> runEnsembleRange(template, start, to)));
+        }
+        try {
+            for (int i = 0; i < futures.size(); i++) sink.accept(done.take().get());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ensemble run failed", e.getCause());
+        } finally {
+            for (Future<EnsembleStats> f : futures) f.cancel(true);
+        }
+    }
+
+    static EnsembleStats runEnsembleRange(Simulation template, long from, long to) {
+        EnsembleStats stats = new EnsembleStats(template.myStacks.size(), template.turns);
+        for (long seed = from; seed < to && !Thread.currentThread().isInterrupted(); seed++) {
+            Simulation sim = template.copy(seed);
+            stats.recordRound(sim);
+            while (sim.getCurrentRound() < sim.turns) {
+                sim.playTurn();
+                stats.recordRound(sim);
+            }
+            stats.runs++;
+        }
+        return stats;
+    }
+
+    static BatchStats runRange(Simulation template, long from, long to) {
+        BatchStats stats = new BatchStats(template.myStacks.size(), template.turns);
+        for (long seed = from; seed < to && !Thread.currentThread().isInterrupted(); seed++) {
+            Simulation sim = template.copy(seed);
+            stats.record(sim, playOut(sim));
+        }
+        return stats;
+    }
+
+    static PairedStats runPairedRange(Simulation templateA, Simulation templateB, long from, long to) {
+        PairedStats stats = new PairedStats();
+        for (long seed = from; seed < to && !Thread.currentThread().isInterrupted(); seed++) {
+            Simulation a = templateA.copy(seed);
+            int absorbedAtA = playOut(a);
+            Simulation b = templateB.copy(seed);
+            stats.record(a, absorbedAtA, b, playOut(b));
+        }
+        return stats;
+    }
+
+    /** Play the simulation to its last round; returns the first round with every stack WILDS, or -1. */
+    static int playOut(Simulation sim) {
+        int n = sim.myStacks.size();
+        int absorbedAt = sim.countState(State.WILDS) == n ? sim.getCurrentRound() : -1;
+        while (sim.getCurrentRound() < sim.turns) {
+            sim.playTurn();
+            if (absorbedAt < 0 && sim.countState(State.WILDS) == n) absorbedAt = sim.getCurrentRound();
+        }
+        return absorbedAt;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+}
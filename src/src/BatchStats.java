@@ -0,0 +1,109 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Compact, mergeable aggregate of many runs of one configuration.
+ * Absorption means every stack is WILDS (same definition as data-analysis/data_analyze.py).
+ */
+public class BatchStats {
+    final int positions;
+    final int turns;
+    long runs;
+    long absorbed;
+    long absorptionRoundSum;
+    final long[] absorptionHist;       // runs first absorbed at round r, r = 0..turns
+    final long[] finalStateCounts;     // stacks per state at the last round, summed over runs
+    final long[][] finalPositionCounts; // [stack][state] at the last round
+
+    BatchStats(int positions, int turns) {
+        this.positions = positions;
+        this.turns = turns;
+        this.absorptionHist = new long[turns + 1];
+        this.finalStateCounts = new long[State.values().length];
+        this.finalPositionCounts = new long[positions][State.values().length];
+    }
+
+    /**
+     * Record a finished run; absorptionRound is -1 when the board never became all WILDS.
+     */
+    void record(Simulation sim, int absorptionRound) {
+        runs++;
+        if (absorptionRound >= 0) {
+            absorbed++;
+            absorptionRoundSum += absorptionRound;
+            absorptionHist[absorptionRound]++;
+        }
+        for (int i = 0; i < positions; i++) {
+            int st = sim.myStacks.get(i).state.ordinal();
+            finalStateCounts[st]++;
+            finalPositionCounts[i][st]++;
+        }
+    }
+
+    void merge(BatchStats other) {
+        runs += other.runs;
+        absorbed += other.absorbed;
+        absorptionRoundSum += other.absorptionRoundSum;
+        for (int r = 0; r < absorptionHist.length; r++) absorptionHist[r] += other.absorptionHist[r];
+        for (int s = 0; s < finalStateCounts.length; s++) finalStateCounts[s] += other.finalStateCounts[s];
+        for (int i = 0; i < positions; i++) {
+            for (int s = 0; s < finalStateCounts.length; s++) finalPositionCounts[i][s] += other.finalPositionCounts[i][s];
+        }
+    }
+
+    double absorptionProbability() {
+        return runs == 0 ? 0 : (double) absorbed / runs;
+    }
+
+    double meanAbsorptionRound() {
+        return absorbed == 0 ? Double.NaN : (double) absorptionRoundSum / absorbed;
+    }
+
+    /** Mean number of stacks in the given state at the last round. */
+    double meanFinalCount(State st) {
+        return runs == 0 ? 0 : (double) finalStateCounts[st.ordinal()] / runs;
+    }
+
+    String summary() {
+        return String.format("runs=%d absorbed=%.4f meanAbsRound=%.2f final W/X/A/B=%.2f/%.2f/%.2f/%.2f",
+                runs, absorptionProbability(), meanAbsorptionRound(),
+                meanFinalCount(State.WILDS), meanFinalCount(State.WASTES),
+                meanFinalCount(State.DEVA), meanFinalCount(State.DEVB));
+    }
+
+    ObjectNode toJson(ObjectMapper mapper) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("positions", positions);
+        node.put("turns", turns);
+        node.put("runs", runs);
+        node.put("absorbed", absorbed);
+        node.put("absorption_round_sum", absorptionRoundSum);
+        ArrayNode hist = node.putArray("absorption_hist");
+        for (long h : absorptionHist) hist.add(h);
+        ArrayNode fin = node.putArray("final_state_counts");
+        for (long c : finalStateCounts) fin.add(c);
+        ArrayNode pos = node.putArray("final_position_counts");
+        for (long[] row : finalPositionCounts) {
+            ArrayNode r = pos.addArray();
+            for (long c : row) r.add(c);
+        }
+        return node;
+    }
+
+    static BatchStats fromJson(JsonNode node) {
+        BatchStats stats = new BatchStats(node.get("positions").asInt(), node.get("turns").asInt());
+        stats.runs = node.get("runs").asLong();
+        stats.absorbed = node.get("absorbed").asLong();
+        stats.absorptionRoundSum = node.get("absorption_round_sum").asLong();
+        for (int r = 0; r < stats.absorptionHist.length; r++) stats.absorptionHist[r] = node.get("absorption_hist").get(r).asLong();
+        for (int s = 0; s < stats.finalStateCounts.length; s++) stats.finalStateCounts[s] = node.get("final_state_counts").get(s).asLong();
+        for (int i = 0; i < stats.positions; i++) {
+            for (int s = 0; s < stats.finalStateCounts.length; s++) {
+                stats.finalPositionCounts[i][s] = node.get("final_position_counts").get(i).get(s).asLong();
+            }
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,146 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Shape of the board: how many stacks, which ring each one is on, the order in which the drawn
+ * tokens are resolved and which positions keep their token instead of returning it to the bag.
+ *
+ * Stack ids run 1..stacks ring by ring from the inside out. The classic board is 1 inner,
+ * 6 middle and 4 outer stacks resolved in id order, with 1 and 8-11 persisting. Other boards
+ * come from a JSON file or from "hex:R", a full hexagonal board of R rings around stack 1:
+ *
+ * <pre>
+ * {"rings": [1, 6, 4], "order": [1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11], "persist": [1, 8, 9, 10, 11]}
+ * </pre>
+ *
+ * "order" defaults to 1..stacks and "persist" to the innermost and outermost ring, as on the
+ * classic board. Everything is held in int/boolean arrays that the turn loop reads directly.
+ */
+public class BoardTopology {
+    static final BoardTopology CLASSIC = new BoardTopology("classic", new int[]{1, 6, 4}, null, null);
+
+    final String name;
+    final int stacks;
+    final int[] ringSizes;  // stacks per ring, inside out
+    final int[] ring;       // ring index per stack, index 0 = stack 1
+    final int[] order;      // positions (1-based) in resolution order, each at most once
+    final boolean[] persists; // indexed by position; true = the token stays on the board
+
+    private BoardTopology(String name, int[] ringSizes, int[] order, int[] persist) {
+        if (ringSizes.length == 0) throw new IllegalArgumentException("board needs at least one ring");
+        this.name = name;
+        this.ringSizes = ringSizes.clone();
+        int n = 0;
+        for (int size : ringSizes) {
+            if (size < 1) throw new IllegalArgumentException("ring sizes must be positive: " + Arrays.toString(ringSizes));
+            n += size;
+        }
+        this.stacks = n;
+        this.ring = new int[n];
+        for (int r = 0, id = 0; r < ringSizes.length; r++) {
+            for (int k = 0; k < ringSizes[r]; k++) ring[id++] = r;
+        }
+
+        if (order == null) {
+            order = new int[n];
+            for (int i = 0; i < n; i++) order[i] = i + 1;
+        }
+        boolean[] seen = new boolean[n + 1];
+        for (int pos : order) {
+            checkPosition(pos, "order");
+            if (seen[pos]) throw new IllegalArgumentException("position " + pos + " appears twice in order");
+            seen[pos] = true;
+        }
+        this.order = order.clone();
+
+        this.persists = new boolean[n + 1];
+        if (persist == null) {
+            int last = ringSizes.length - 1;
+            for (int id = 1; id <= n; id++) persists[id] = ring[id - 1] == 0 || ring[id - 1] == last;
+        } else {
+            for (int pos : persist) {
+                checkPosition(pos, "persist");
+                persists[pos] = true;
+            }
+        }
+    }
+
+    private void checkPosition(int pos, String what) {
+        if (pos < 1 || pos > stacks) {
+            throw new IllegalArgumentException(what + " position " + pos + " is outside 1.." + stacks);
+        }
+    }
+
+    /** Full hexagonal board of {@code rings} rings around stack 1: 1, 6, 12, ..., 6 * rings stacks. */
+    static BoardTopology hex(int rings) {
+        if (rings < 0) throw new IllegalArgumentException("rings must be >= 0");
+        int[] sizes = new int[rings + 1];
+        sizes[0] = 1;
+        for (int r = 1; r <= rings; r++) sizes[r] = 6 * r;
+        return new BoardTopology("hex:" + rings, sizes, null, null);
+    }
+
+    /** "classic", "hex:R" or the path of a JSON board file. */
+    static BoardTopology parse(String spec) throws IOException {
+        if (spec == null || spec.isEmpty() || spec.equals("classic")) return CLASSIC;
+        if (spec.startsWith("hex:")) return hex(Integer.parseInt(spec.substring(4)));
+        File file = new File(spec);
+        if (!file.isFile()) throw new IOException("No board file " + spec + " (expected classic, hex:R or a JSON file)");
+        return fromJson(new ObjectMapper().readTree(file), file.getName());
+    }
+
+    static BoardTopology fromJson(JsonNode node, String defaultName) {
+        if (node.isTextual()) {
+            try {
+                return parse(node.asText());
+            } catch (IOException e) {
+                throw new IllegalArgumentException(e.getMessage(), e);
+            }
+        }
+        return new BoardTopology(node.path("name").asText(defaultName), ints(node.path("rings"), "rings"),
+                node.has("order") ? ints(node.get("order"), "order") : null,
+                node.has("persist") ? ints(node.get("persist"), "persist") : null);
+    }
+
+    private static int[] ints(JsonNode array, String field) {
+        if (!array.isArray()) throw new IllegalArgumentException("board file needs an array \"" + field + "\"");
+        int[] values = new int[array.size()];
+        for (int i = 0; i < values.length; i++) values[i] = array.get(i).asInt();
+        return values;
+    }
+
+    ObjectNode toJson(ObjectMapper mapper) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("name", name);
+        ArrayNode rings = node.putArray("rings");
+        for (int size : ringSizes) rings.add(size);
+        ArrayNode ord = node.putArray("order");
+        for (int pos : order) ord.add(pos);
+        ArrayNode persist = node.putArray("persist");
+        for (int pos = 1; pos <= stacks; pos++) {
+            if (persists[pos]) persist.add(pos);
+        }
+        return node;
+    }
+
+    /** Inner for the center ring, Outer for the outermost, Middle in between. */
+    StackRing stackRing(int id) {
+        int r = ring[id - 1];
+        return r == 0 ? StackRing.INNER : r == ringSizes.length - 1 ? StackRing.OUTER : StackRing.MIDDLE;
+    }
+
+    boolean isClassic() {
+        return this == CLASSIC;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + stacks + " stacks)";
+    }
+}
@@ -0,0 +1,300 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delta-encoded round timeline: the round-0 board and bag, then for every round only the stacks
+ * that changed (position, new state code) and the bag-count deltas. After absorption most rounds
+ * store nothing.
+ *
+ * A full board/bag copy is kept every {@code keyframeInterval} rounds, so any round is rebuilt by
+ * replaying at most that many rounds of changes.
+ *
+ * In JSON ("timeline_delta") it replaces "timeline" and "round_outputs", which can be regenerated
+ * exactly with {@link #expand(JsonNode)}.
+ *
+ * Usage: --compress=assets/simulation_result_x.json | --expand=assets/x_delta.json | --check=file.json
+ */
+public class DeltaTimeline {
+    static final int DEFAULT_KEYFRAME_INTERVAL = 32;
+
+    final int stacks;
+    final int tokens;
+    final int keyframeInterval;
+    private int rounds = 0;
+
+    // Changes of round r are changes[changeStart[r] .. changeStart[r + 1]), packed as (position << 8) | code.
+    private int[] changeStart = new int[65];
+    private int[] changes = new int[64];
+    private int changeCount = 0;
+    private int[] bagDeltas;            // tokens entries per round; round 0 holds absolute counts
+
+    private int[] keyBoards;            // stacks entries per keyframe
+    private int[] keyBags;              // tokens entries per keyframe
+    private final int[] lastBoard;
+    private final int[] lastBag;
+
+    DeltaTimeline(int stacks, int tokens, int keyframeInterval) {
+        if (keyframeInterval < 1) throw new IllegalArgumentException("keyframe interval must be >= 1");
+        this.stacks = stacks;
+        this.tokens = tokens;
+        this.keyframeInterval = keyframeInterval;
+        this.bagDeltas = new int[tokens * 64];
+        this.keyBoards = new int[stacks * 4];
+        this.keyBags = new int[tokens * 4];
+        this.lastBoard = new int[stacks];
+        this.lastBag = new int[tokens];
+    }
+
+    DeltaTimeline(int stacks, int tokens) {
+        this(stacks, tokens, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /** Number of rounds stored (round 0 included). */
+    int size() {
+        return rounds;
+    }
+
+    /** Append the next round. The arrays are copied. */
+    void append(int[] board, int[] bag) {
+        int r = rounds;
+        if (r + 2 > changeStart.length) changeStart = Arrays.copyOf(changeStart, changeStart.length * 2);
+        if ((r + 1) * tokens > bagDeltas.length) bagDeltas = Arrays.copyOf(bagDeltas, bagDeltas.length * 2);
+        changeStart[r] = changeCount;
+        for (int i = 0; i < stacks; i++) {
+            if (r == 0 || board[i] != lastBoard[i]) {
+                if (changeCount == changes.length) changes = Arrays.copyOf(changes, changes.length * 2);
+                changes[changeCount++] = (i << 8) | board[i];
+                lastBoard[i] = board[i];
+            }
+        }
+        changeStart[r + 1] = changeCount;
+        for (int t = 0; t < tokens; t++) {
+            bagDeltas[r * tokens + t] = bag[t] - (r == 0 ? 0 : lastBag[t]);
+            lastBag[t] = bag[t];
+        }
+        if (r % keyframeInterval == 0) {
+            int k = r / keyframeInterval;
+            if ((k + 1) * stacks > keyBoards.length) {
+                keyBoards = Arrays.copyOf(keyBoards, keyBoards.length * 2);
+                keyBags = Arrays.copyOf(keyBags, keyBags.length * 2);
+            }
+            System.arraycopy(board, 0, keyBoards, k * stacks, stacks);
+            System.arraycopy(bag, 0, keyBags, k * tokens, tokens);
+        }
+        rounds++;
+    }
+
+    /** Rebuild the board and bag of one round from the nearest keyframe at or before it. */
+    void roundAt(int round, int[] board, int[] bag) {
+        if (round < 0 || round >= rounds) throw new IndexOutOfBoundsException("round " + round + " of " + rounds);
+        int k = round / keyframeInterval;
+        System.arraycopy(keyBoards, k * stacks, board, 0, stacks);
+        System.arraycopy(keyBags, k * tokens, bag, 0, tokens);
+        for (int r = k * keyframeInterval + 1; r <= round; r++) {
+            for (int c = changeStart[r]; c < changeStart[r + 1]; c++) board[changes[c] >>> 8] = changes[c] & 0xFF;
+            for (int t = 0; t < tokens; t++) bag[t] += bagDeltas[r * tokens + t];
+        }
+    }
+
+    int[] boardAt(int round) {
+        int[] board = new int[stacks];
+        roundAt(round, board, new int[tokens]);
+        return board;
+    }
+
+    int[] bagAt(int round) {
+        int[] bag = new int[tokens];
+        roundAt(round, new int[stacks], bag);
+        return bag;
+    }
+
+    /** Number of stack changes stored in round r (every stack counts as changed in round 0). */
+    int changesIn(int round) {
+        return changeStart[round + 1] - changeStart[round];
+    }
+
+    /** Full copies of every round, for callers that want the plain per-round list. */
+    List<int[]> toBoards() {
+        List<int[]> boards = new ArrayList<>(rounds);
+        int[] board = new int[stacks];
+        int[] bag = new int[tokens];
+        for (int r = 0; r < rounds; r++) {
+            roundAt(r, board, bag);
+            boards.add(board.clone());
+        }
+        return boards;
+    }
+
+    // ---------- JSON ----------
+
+    ObjectNode toJson(ObjectMapper mapper) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("rounds", rounds);
+        node.put("keyframe_interval", keyframeInterval);
+        ObjectNode initial = node.putObject("initial");
+        ArrayNode states = initial.putArray("states");
+        ArrayNode bag = initial.putArray("tokens");
+        if (rounds > 0) {
+            for (int c = changeStart[0]; c < changeStart[1]; c++) states.add(changes[c] & 0xFF);
+            for (int t = 0; t < tokens; t++) bag.add(bagDeltas[t]);
+        }
+        // [round, position (1-based), code] for every change after round 0
+        ArrayNode changeList = node.putArray("changes");
+        for (int r = 1; r < rounds; r++) {
+            for (int c = changeStart[r]; c < changeStart[r + 1]; c++) {
+                changeList.addArray().add(r).add((changes[c] >>> 8) + 1).add(changes[c] & 0xFF);
+            }
+        }
+        // [round, delta per token] for every round whose bag changed
+        ArrayNode bagList = node.putArray("bag_deltas");
+        for (int r = 1; r < rounds; r++) {
+            boolean changed = false;
+            for (int t = 0; t < tokens; t++) changed |= bagDeltas[r * tokens + t] != 0;
+            if (!changed) continue;
+            ArrayNode entry = bagList.addArray().add(r);
+            for (int t = 0; t < tokens; t++) entry.add(bagDeltas[r * tokens + t]);
+        }
+        return node;
+    }
+
+    static DeltaTimeline fromJson(JsonNode node) {
+        JsonNode states = node.get("initial").get("states");
+        JsonNode bag0 = node.get("initial").get("tokens");
+        DeltaTimeline timeline = new DeltaTimeline(states.size(), bag0.size(),
+                node.path("keyframe_interval").asInt(DEFAULT_KEYFRAME_INTERVAL));
+        int rounds = node.get("rounds").asInt();
+        if (rounds == 0) return timeline;
+
+        int[] board = new int[timeline.stacks];
+        int[] bag = new int[timeline.tokens];
+        for (int i = 0; i < board.length; i++) board[i] = states.get(i).asInt();
+        for (int t = 0; t < bag.length; t++) bag[t] = bag0.get(t).asInt();
+        timeline.append(board, bag);
+
+        Iterator<JsonNode> changeIt = node.get("changes").iterator();
+        Iterator<JsonNode> bagIt = node.get("bag_deltas").iterator();
+        JsonNode change = changeIt.hasNext() ? changeIt.next() : null;
+        JsonNode delta = bagIt.hasNext() ? bagIt.next() : null;
+        for (int r = 1; r < rounds; r++) {
+            while (change != null && change.get(0).asInt() == r) {
+                board[change.get(1).asInt() - 1] = change.get(2).asInt();
+                change = changeIt.hasNext() ? changeIt.next() : null;
+            }
+            if (delta != null && delta.get(0).asInt() == r) {
+                for (int t = 0; t < bag.length; t++) bag[t] += delta.get(t + 1).asInt();
+                delta = bagIt.hasNext() ? bagIt.next() : null;
+            }
+            timeline.append(board, bag);
+        }
+        return timeline;
+    }
+
+    // ---------- Conversion of exported result files ----------
+
+    private static final FeedbackToken[] TOKENS = FeedbackToken.values();
+    private static final State[] STATES = State.values();
+
+    /** Replace "timeline" and "round_outputs" of a simulation result with "timeline_delta". */
+    static ObjectNode compress(JsonNode full, ObjectMapper mapper) {
+        JsonNode timeline = full.get("timeline");
+        JsonNode outputs = full.get("round_outputs");
+        if (timeline == null || outputs == null || timeline.size() != outputs.size()) {
+            throw new IllegalArgumentException("not a simulation result with timeline and round_outputs");
+        }
+        DeltaTimeline delta = new DeltaTimeline(timeline.get(0).get("states").size(), TOKENS.length);
+        int[] board = new int[delta.stacks];
+        int[] bag = new int[delta.tokens];
+        for (int r = 0; r < timeline.size(); r++) {
+            JsonNode codes = timeline.get(r).get("states");
+            for (int i = 0; i < board.length; i++) board[i] = codes.get(i).asInt();
+            for (int t = 0; t < bag.length; t++) bag[t] = outputs.get(r).get("tokens").get(TOKENS[t].name()).asInt();
+            delta.append(board, bag);
+        }
+        ObjectNode out = mapper.createObjectNode();
+        for (Iterator<Map.Entry<String, JsonNode>> it = full.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> e = it.next();
+            if (!e.getKey().equals("timeline") && !e.getKey().equals("round_outputs")) out.set(e.getKey(), e.getValue());
+        }
+        out.set("timeline_delta", delta.toJson(mapper));
+        return out;
+    }
+
+    /** Regenerate "timeline" and "round_outputs" from "timeline_delta", as written by {@link Simulation#run()}. */
+    static ObjectNode expand(JsonNode compact, ObjectMapper mapper) {
+        DeltaTimeline delta = fromJson(compact.get("timeline_delta"));
+        long seed = compact.get("game_state").get("seed").asLong();
+        int maxRounds = compact.get("game_state").get("max_rounds").asInt();
+
+        ObjectNode out = mapper.createObjectNode();
+        for (Iterator<Map.Entry<String, JsonNode>> it = compact.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> e = it.next();
+            if (!e.getKey().equals("timeline_delta")) out.set(e.getKey(), e.getValue());
+        }
+        ArrayNode timeline = out.putArray("timeline");
+        ArrayNode outputs = out.putArray("round_outputs");
+        int[] board = new int[delta.stacks];
+        int[] bag = new int[delta.tokens];
+        int[] ordinals = new int[delta.stacks];
+        for (int r = 0; r < delta.size(); r++) {
+            delta.roundAt(r, board, bag);
+            ObjectNode round = timeline.addObject();
+            round.put("round", r);
+            ArrayNode states = round.putArray("states");
+            for (int i = 0; i < board.length; i++) {
+                states.add(board[i]);
+                ordinals[i] = stateFromCode(board[i]).ordinal();
+            }
+            outputs.add(Simulation.createRoundSnapshot(mapper, ordinals, bag, r, seed, maxRounds));
+        }
+        return out;
+    }
+
+    static State stateFromCode(int code) {
+        for (State st : STATES) {
+            if (Simulation.getCodeFromState(st) == code) return st;
+        }
+        throw new IllegalArgumentException("unknown state code " + code);
+    }
+
+    // ---------- CLI Entrance ----------
+    public static void main(String[] args) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        for (String a : args) {
+            if (a.startsWith("--compress=")) {
+                File in = new File(a.substring(11));
+                File out = sibling(in, "_delta.json");
+                mapper.writerWithDefaultPrettyPrinter().writeValue(out, compress(mapper.readTree(in), mapper));
+                System.out.printf("%s (%d bytes) -> %s (%d bytes)%n", in, in.length(), out, out.length());
+            } else if (a.startsWith("--expand=")) {
+                File in = new File(a.substring(9));
+                File out = sibling(in, "_full.json");
+                mapper.writerWithDefaultPrettyPrinter().writeValue(out, expand(mapper.readTree(in), mapper));
+                System.out.printf("%s (%d bytes) -> %s (%d bytes)%n", in, in.length(), out, out.length());
+            } else if (a.startsWith("--check=")) {
+                // Compress and expand in memory; the result must serialize to the original tree.
+                File in = new File(a.substring(8));
+                JsonNode full = mapper.readTree(in);
+                ObjectNode compact = compress(full, mapper);
+                boolean same = mapper.writeValueAsString(expand(compact, mapper)).equals(mapper.writeValueAsString(full));
+                int compactBytes = mapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(compact).length;
+                System.out.printf("%s: round trip %s, %d -> %d bytes%n", in, same ? "OK" : "MISMATCH", in.length(), compactBytes);
+                if (!same) System.exit(1);
+            }
+        }
+    }
+
+    private static File sibling(File in, String suffix) {
+        String name = in.getName().endsWith(".json") ? in.getName().substring(0, in.getName().length() - 5) : in.getName();
+        return new File(in.getParentFile(), name + suffix);
+    }
+}
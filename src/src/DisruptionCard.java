@@ -42,6 +42,10 @@ public class DisruptionCard {
     private List<Map.Entry<DisruptionEffect, Integer>> cancelCost;
     private boolean hasCondition;
     private boolean canCancel;
+    // Filled once the card is parsed, so drawing a card in the turn loop allocates nothing
+    private int[] targets = new int[0];
+    private State[] tileChanges = new State[0];
+    private int deckPosition;       // Position in the deck file
     
     // Default constructor
     public DisruptionCard() {
@@ -70,15 +74,28 @@ public class DisruptionCard {
     public List<Map.Entry<DisruptionEffect, Integer>> getCancelCost() { return cancelCost; }
     public boolean hasCondition() { return hasCondition; }
     public boolean canCancel() { return canCancel; }
+    public int getDeckPosition() { return deckPosition; }
+    public void setDeckPosition(int deckPosition) { this.deckPosition = deckPosition; }
     
+    // Stack ids the card targets
+    public int[] targets() { return targets; }
+    // The states its tile change effects turn a stack into, in effect order
+    public State[] tileChanges() { return tileChanges; }
+
     // Check if card has tile change effects
     public boolean hasTileChangeEffect() {
-        return effects.stream().anyMatch(effect -> 
-            effect.getKey() == DisruptionEffect.DISRUPTION_TURN_WASTE ||
-            effect.getKey() == DisruptionEffect.DISRUPTION_TURN_WILD ||
-            effect.getKey() == DisruptionEffect.DISRUPTION_TURN_DEVA ||
-            effect.getKey() == DisruptionEffect.DISRUPTION_TURN_DEVB
-        );
+        return tileChanges.length > 0;
+    }
+
+    // The state a tile change effect turns a stack into, or null for any other effect
+    static State tileChange(DisruptionEffect effect) {
+        switch (effect) {
+            case DISRUPTION_TURN_WILD: return State.WILDS;
+            case DISRUPTION_TURN_WASTE: return State.WASTES;
+            case DISRUPTION_TURN_DEVA: return State.DEVA;
+            case DISRUPTION_TURN_DEVB: return State.DEVB;
+            default: return null;
+        }
     }
     
     // Parse effect string to enum
@@ -173,6 +190,9 @@ public class DisruptionCard {
             }
         }
         
+        card.targets = card.stackTarget.stream().mapToInt(Integer::intValue).toArray();
+        card.tileChanges = card.effects.stream().map(e -> tileChange(e.getKey()))
+                .filter(Objects::nonNull).toArray(State[]::new);
         return card;
     }
     
@@ -7,13 +7,37 @@ import java.util.*;
 public class DisruptionCardManager {
     private List<DisruptionCard> deck;      // Card deck
     private List<DisruptionCard> discard;   // Discard pile
+    private boolean verbose = true;         // Print load/draw messages
+    private Random random;                  // Deck shuffles only, never shared with the bag
     
     public DisruptionCardManager() {
+        this(new Random());
+    }
+    
+    // Shuffles come from the given stream, so a seeded stream gives the same deck order every run
+    public DisruptionCardManager(Random random) {
         this.deck = new ArrayList<>();
         this.discard = new ArrayList<>();
+        this.random = random;
     }
     
-    // Load all cards from JSON file
+    // Copy another manager's piles; the remaining deck is put back in file order and reshuffled with the
+    // given random stream, so its new order depends on that stream alone, not on how the other was shuffled
+    public DisruptionCardManager(DisruptionCardManager other, Random random) {
+        this.deck = new ArrayList<>(other.deck);
+        this.deck.sort(Comparator.comparingInt(DisruptionCard::getDeckPosition));
+        // Room for every card, so drawing never grows the discard pile
+        this.discard = new ArrayList<>(other.deck.size() + other.discard.size());
+        this.discard.addAll(other.discard);
+        this.verbose = other.verbose;
+        this.random = random;
+        Collections.shuffle(deck, random);
+    }
+    
+    public boolean isVerbose() { return verbose; }
+    public void setVerbose(boolean verbose) { this.verbose = verbose; }
+    
+    // Load all cards from JSON file, in file order; call shuffle() to mix them
     public boolean loadCardsFromFile(String filename) {
         try {
             File file = new File(filename);
@@ -32,25 +56,28 @@ public class DisruptionCardManager {
             
             // Clear existing deck
             deck.clear();
-            discard.clear();
             
             // Load all cards
             int loadedCount = 0;
             for (JsonNode cardData : jsonData) {
                 try {
                     DisruptionCard card = DisruptionCard.fromJson(cardData);
+                    card.setDeckPosition(deck.size());
                     deck.add(card);
                     loadedCount++;
                 } catch (Exception e) {
                     System.err.println("Error loading card: " + e.getMessage());
                 }
             }
-            System.out.println("Loaded " + loadedCount + " cards from " + jsonData.size() + " total cards");
-            
-            // Shuffle deck randomly
-            Collections.shuffle(deck);
+            // Room for every card, so drawing never grows the discard pile
+            discard = new ArrayList<>(deck.size());
+            if (verbose) {
+                System.out.println("Loaded " + loadedCount + " cards from " + jsonData.size() + " total cards");
+            }
             
-            System.out.println("Successfully loaded " + deck.size() + " disruption cards");
+            if (verbose) {
+                System.out.println("Successfully loaded " + deck.size() + " disruption cards");
+            }
             return true;
             
         } catch (IOException e) {
@@ -59,6 +86,11 @@ public class DisruptionCardManager {
         }
     }
     
+    // Shuffle the deck with this manager's random stream
+    public void shuffle() {
+        Collections.shuffle(deck, random);
+    }
+    
     // Draw a card (remove from deck, put into discard pile)
     public DisruptionCard drawCard() {
         if (deck.isEmpty()) {
@@ -100,7 +132,7 @@ public class DisruptionCardManager {
         discard.clear();
         
         // Reshuffle deck
-        Collections.shuffle(deck);
+        Collections.shuffle(deck, random);
         
         System.out.println("Reshuffle completed, deck has " + deck.size() + " cards");
     }
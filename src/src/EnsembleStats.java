@@ -0,0 +1,83 @@
+/**
+ * Per-round distribution of the stack counts over many runs of one configuration, for fan charts.
+ *
+ * The count of stacks in a state is an integer 0..positions, so the sketch is an exact histogram:
+ * hist[state][round][count] = runs with that many stacks in that state at that round. Its size
+ * depends only on turns and positions, never on the number of runs, and two sketches merge by
+ * adding their bins, so partial results from parallel chunks can be combined as they finish.
+ *
+ * positionCounts[round][stack][state] counts the runs with that stack in that state, for the
+ * per-hex probability overlay. Each chunk fills its own counters and only the finished chunk is
+ * merged, so the worker threads never share or lock a counter.
+ */
+public class EnsembleStats {
+    final int positions;
+    final int turns;
+    long runs;
+    final long[][][] hist; // [State ordinal][round 0..turns][count 0..positions]
+    final long[][][] positionCounts; // [round 0..turns][stack, 0 = stack 1][State ordinal]
+
+    EnsembleStats(int positions, int turns) {
+        this.positions = positions;
+        this.turns = turns;
+        this.hist = new long[State.values().length][turns + 1][positions + 1];
+        this.positionCounts = new long[turns + 1][positions][State.values().length];
+    }
+
+    /** Record the board of one run at its current round. */
+    void recordRound(Simulation sim) {
+        int round = sim.getCurrentRound();
+        int[] perState = new int[hist.length];
+        long[][] atRound = positionCounts[round];
+        for (int i = 0; i < positions; i++) {
+            int st = sim.myStacks.get(i).state.ordinal();
+            perState[st]++;
+            atRound[i][st]++;
+        }
+        for (int s = 0; s < hist.length; s++) hist[s][round][perState[s]]++;
+    }
+
+    void merge(EnsembleStats other) {
+        runs += other.runs;
+        for (int s = 0; s < hist.length; s++) {
+            for (int r = 0; r <= turns; r++) {
+                long[] mine = hist[s][r];
+                long[] theirs = other.hist[s][r];
+                for (int c = 0; c <= positions; c++) mine[c] += theirs[c];
+            }
+        }
+        for (int r = 0; r <= turns; r++) {
+            for (int i = 0; i < positions; i++) {
+                long[] mine = positionCounts[r][i];
+                long[] theirs = other.positionCounts[r][i];
+                for (int s = 0; s < mine.length; s++) mine[s] += theirs[s];
+            }
+        }
+    }
+
+    /** Probability of every stack being in every state at {@code round}: [stack, 0 = stack 1][State ordinal]. */
+    double[][] positionProbabilities(int round) {
+        double[][] p = new double[positions][State.values().length];
+        if (runs == 0) return p;
+        for (int i = 0; i < positions; i++) {
+            for (int s = 0; s < p[i].length; s++) p[i][s] = (double) positionCounts[round][i][s] / runs;
+        }
+        return p;
+    }
+
+    /**
+     * Nearest-rank q-quantile (0 < q <= 1) of the number of stacks in {@code st} at {@code round},
+     * or -1 before any run is recorded.
+     */
+    int quantile(State st, int round, double q) {
+        if (runs == 0) return -1;
+        long rank = Math.max(1, (long) Math.ceil(q * runs));
+        long[] bins = hist[st.ordinal()][round];
+        long seen = 0;
+        for (int c = 0; c <= positions; c++) {
+            seen += bins[c];
+            if (seen >= rank) return c;
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,133 @@
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Background writer for result files. Simulation threads hand a finished JSON tree to
+ * {@link #submit(File, ObjectNode)} and carry on; writer threads serialize and write it (fsync'd,
+ * so a file counts as exported only once it is on disk).
+ *
+ * The hand-off queue is bounded: when the disk falls behind, submit() blocks and simulations slow
+ * down to the write rate instead of piling up result trees in memory. Every file is written and
+ * fsync'd on its own; more writer threads keep more fsyncs in flight. flush() waits until everything
+ * submitted so far is written; close() flushes and stops the threads. The first failed write is kept
+ * and thrown by flush() and close(), so a caller that gets through them knows every file reached the disk.
+ */
+public class ExportWriter implements AutoCloseable {
+    private static final class Job {
+        final File file;
+        final ObjectNode root;
+
+        Job(File file, ObjectNode root) {
+            this.file = file;
+            this.root = root;
+        }
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final BlockingQueue<Job> queue;
+    private final Thread[] writers;
+    private final boolean sync;
+    private int pending = 0;        // submitted but not yet written, guarded by this
+    private long written = 0;
+    private boolean closed = false;
+    private IOException failure;    // first failed write, guarded by this
+
+    ExportWriter(int threads, int capacity, boolean sync) {
+        if (threads < 1 || capacity < 1) throw new IllegalArgumentException("threads and capacity must be >= 1");
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.sync = sync;
+        this.writers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            writers[i] = new Thread(this::drain, "export-writer-" + i);
+            writers[i].setDaemon(true);
+            writers[i].start();
+        }
+    }
+
+    ExportWriter(int threads, int capacity) {
+        this(threads, capacity, true);
+    }
+
+    /** Queue a result for writing; blocks while the queue is full. */
+    void submit(File file, ObjectNode root) throws InterruptedException {
+        synchronized (this) {
+            if (closed) throw new IllegalStateException("export writer is closed");
+            pending++;
+        }
+        try {
+            queue.put(new Job(file, root));
+        } catch (InterruptedException e) {
+            // Not queued: uncount it, or flush() and close() would wait for it forever
+            synchronized (this) {
+                pending--;
+                notifyAll();
+            }
+            throw e;
+        }
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                Job job = queue.take();
+                try {
+                    Simulation.writeResult(mapper, job.file, job.root, sync);
+                } catch (IOException | RuntimeException e) {
+                    synchronized (this) {
+                        if (failure == null) {
+                            failure = new IOException("Failed to export " + job.file, e);
+                        } else {
+                            failure.addSuppressed(e);
+                        }
+                    }
+                } finally {
+                    synchronized (this) {
+                        pending--;
+                        written++;
+                        notifyAll();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // close(): the queue is empty, stop
+        }
+    }
+
+    /** Wait until every result submitted so far has been written; throws the first failed write. */
+    synchronized void flush() throws IOException, InterruptedException {
+        while (pending > 0) wait();
+        if (failure != null) throw failure;
+    }
+
+    synchronized long written() {
+        return written;
+    }
+
+    /** Flush and stop the writer threads; an interrupt while waiting is an InterruptedIOException. */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+        }
+        try {
+            try {
+                flush();
+            } finally {
+                for (Thread t : writers) t.interrupt();
+                for (Thread t : writers) t.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException interrupted = new InterruptedIOException("interrupted while closing the export writer");
+            interrupted.initCause(e);
+            throw interrupted;
+        }
+    }
+}
@@ -1,64 +1,66 @@
 public enum FeedbackToken {
     WILDS, WASTES, DEVA, DEVB;
 
+    // Names in the verbose card messages, by State ordinal
+    private static final String[] TILE_NAMES = {"WILD", "WASTE", "DEVA", "DEVB"};
+
     void resolveOn(MyStack myStack) {
         resolveOn(myStack, null);
     }
     
     void resolveOn(MyStack myStack, DisruptionCardManager disruptionManager) {
-        switch (this) {
-            case WILDS -> myStack.state = State.WILDS;   // set to wilds.
-            case DEVA -> myStack.state = State.WASTES;  // DevA token: set the state to wastes.
-            case WASTES -> {
-                // No effect at this stage.
+        resolveOn(myStack, disruptionManager, BoardTopology.CLASSIC.stacks);
+    }
+
+    /**
+     * Apply this token to a stack under the classic rules (see {@link RuleSet#CLASSIC}).
+     * @param stacks board size, for checking the targets of disruption cards
+     */
+    void resolveOn(MyStack myStack, DisruptionCardManager disruptionManager, int stacks) {
+        RuleSet.CLASSIC.resolve(ordinal(), myStack, disruptionManager, stacks);
+    }
+
+    /** A "card" rule: draw a disruption card and apply its tile change effects; no effect without a deck (Stage 1). */
+    static void drawDisruptionCard(MyStack myStack, DisruptionCardManager disruptionManager, int stacks) {
+        if (disruptionManager != null && !disruptionManager.isDeckEmpty()) {
+            SimulationEvents.DisruptionCardEvent cardEvent = new SimulationEvents.DisruptionCardEvent();
+            cardEvent.begin();
+            DisruptionCard card = disruptionManager.drawCard();
+            boolean verbose = disruptionManager.isVerbose();
+            if (verbose) System.out.println("DEVB token drew disruption card: " + card.getName());
+
+            // Only apply tile change effects
+            boolean applied = card.hasTileChangeEffect();
+            if (applied) {
+                applyDisruptionCardEffects(card, myStack, stacks, verbose);
+            } else if (verbose) {
+                System.out.println("Card has no tile change effects, nothing happens");
             }
-            case DEVB -> {
-                // DEVB token: draw disruption card and apply tile change effects
-                if (disruptionManager != null && !disruptionManager.isDeckEmpty()) {
-                    DisruptionCard card = disruptionManager.drawCard();
-                    System.out.println("DEVB token drew disruption card: " + card.getName());
-                    
-                    // Only apply tile change effects
-                    if (card.hasTileChangeEffect()) {
-                        applyDisruptionCardEffects(card, myStack);
-                    } else {
-                        System.out.println("Card has no tile change effects, nothing happens");
-                    }
-                } else if (disruptionManager != null) {
-                    System.out.println("Disruption card deck is empty, DEVB token has no effect");
-                }
+            cardEvent.end();
+            if (cardEvent.shouldCommit()) {
+                cardEvent.card = card.getName();
+                cardEvent.targets = String.valueOf(card.getStackTarget());
+                cardEvent.effects = applied ? String.valueOf(card.getEffects()) : "";
+                cardEvent.stack = myStack.id;
+                cardEvent.commit();
             }
+        } else if (disruptionManager != null && disruptionManager.isVerbose()) {
+            System.out.println("Disruption card deck is empty, DEVB token has no effect");
         }
     }
     
-    private void applyDisruptionCardEffects(DisruptionCard card, MyStack myStack) {
+    private static void applyDisruptionCardEffects(DisruptionCard card, MyStack myStack, int stacks, boolean verbose) {
         // Apply effects to target stacks
-        for (int targetId : card.getStackTarget()) {
-            // Ensure target stack ID is valid (1-11)
-            if (targetId >= 1 && targetId <= 11) {
-                // Apply each effect
-                for (var effect : card.getEffects()) {
-                    switch (effect.getKey()) {
-                        case DISRUPTION_TURN_WILD:
-                            System.out.println("Convert stack " + targetId + " to WILD");
-                            myStack.state = State.WILDS;
-                            break;
-                        case DISRUPTION_TURN_WASTE:
-                            System.out.println("Convert stack " + targetId + " to WASTE");
-                            myStack.state = State.WASTES;
-                            break;
-                        case DISRUPTION_TURN_DEVA:
-                            System.out.println("Convert stack " + targetId + " to DEVA");
-                            myStack.state = State.DEVA;
-                            break;
-                        case DISRUPTION_TURN_DEVB:
-                            System.out.println("Convert stack " + targetId + " to DEVB");
-                            myStack.state = State.DEVB;
-                            break;
-                        default:
-                            // Ignore other effects for now
-                            break;
-                    }
+        int[] targets = card.targets();
+        State[] changes = card.tileChanges();
+        for (int t = 0; t < targets.length; t++) {
+            int targetId = targets[t];
+            // Ensure target stack ID is on the board (1-11 on the classic board)
+            if (targetId >= 1 && targetId <= stacks) {
+                // Apply each tile change effect
+                for (int e = 0; e < changes.length; e++) {
+                    if (verbose) System.out.println("Convert stack " + targetId + " to " + TILE_NAMES[changes[e].ordinal()]);
+                    myStack.state = changes[e];
                 }
             }
         }
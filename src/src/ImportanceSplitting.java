@@ -0,0 +1,174 @@
+import java.util.*;
+
+/**
+ * Rare-event estimation by multilevel (fixed-effort) importance splitting.
+ *
+ * The importance function is the number of stacks in the target state. For each level in turn,
+ * {@code effort} trajectories are started from states that already reached the previous level,
+ * cloned mid-run with {@link Simulation#copy(long)} so each continues on a fresh random stream,
+ * and run until they reach the next level or the round horizon. The product of the per-level
+ * hit fractions is an unbiased estimate of P(all levels reached by the horizon).
+ *
+ * Usage: --turns=50 --effort=1000 --replicates=20 --target=WASTES --levels=4,7,9,11 --seed=5
+ *        --stage=1 --s3=DEVA --limit=WILDS:30,DEVA:10
+ */
+public class ImportanceSplitting {
+    final Simulation root;   // round-0 state every replicate starts from
+    final State target;
+    final int[] levels;      // strictly increasing stack counts; the last one is the rare event
+    final int effort;        // trajectories simulated per level
+    final SplittableRandom seeds;
+    final Random selector;
+    long turnsSimulated = 0;
+
+    ImportanceSplitting(Simulation root, State target, int[] levels, int effort, long seed) {
+        if (effort < 1) throw new IllegalArgumentException("effort must be >= 1");
+        for (int i = 0; i < levels.length; i++) {
+            if (levels[i] < 1 || levels[i] > root.myStacks.size() || (i > 0 && levels[i] <= levels[i - 1])) {
+                throw new IllegalArgumentException("levels must be strictly increasing within 1.." + root.myStacks.size());
+            }
+        }
+        this.root = root;
+        this.target = target;
+        this.levels = levels;
+        this.effort = effort;
+        this.seeds = new SplittableRandom(seed);
+        this.selector = new Random(seed ^ 0x5DEECE66DL);
+    }
+
+    /** Outcome of one splitting replicate. */
+    static class Replicate {
+        double estimate;
+        double[] levelProbabilities;
+    }
+
+    /**
+     * One splitting pass: returns the product of conditional level-crossing probabilities.
+     */
+    Replicate runOnce() {
+        Replicate rep = new Replicate();
+        rep.levelProbabilities = new double[levels.length];
+        rep.estimate = 1.0;
+
+        List<Simulation> entrance = List.of(root);
+        for (int l = 0; l < levels.length; l++) {
+            List<Simulation> hits = new ArrayList<>();
+            for (int i = 0; i < effort; i++) {
+                // Multinomial resampling of entrance states, each clone continued with a fresh stream.
+                Simulation start = entrance.get(selector.nextInt(entrance.size()));
+                Simulation sim = start.copy(seeds.nextLong());
+                if (advanceTo(sim, levels[l])) hits.add(sim);
+            }
+            double p = (double) hits.size() / effort;
+            rep.levelProbabilities[l] = p;
+            rep.estimate *= p;
+            if (hits.isEmpty()) break;
+            entrance = hits;
+        }
+        return rep;
+    }
+
+    /** Run until the level is reached (true) or the horizon passes (false). */
+    private boolean advanceTo(Simulation sim, int level) {
+        if (sim.countState(target) >= level) return true;
+        while (sim.getCurrentRound() < sim.turns) {
+            sim.playTurn();
+            turnsSimulated++;
+            if (sim.countState(target) >= level) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Run independent replicates and print the estimate with its variance report.
+     */
+    void estimate(int replicates) {
+        if (replicates < 2) throw new IllegalArgumentException("replicates must be >= 2 for a variance estimate");
+        double[] estimates = new double[replicates];
+        double[] levelMeans = new double[levels.length];
+        for (int r = 0; r < replicates; r++) {
+            Replicate rep = runOnce();
+            estimates[r] = rep.estimate;
+            for (int l = 0; l < levels.length; l++) levelMeans[l] += rep.levelProbabilities[l] / replicates;
+        }
+
+        double mean = Arrays.stream(estimates).average().orElse(0);
+        double var = 0;
+        for (double e : estimates) var += (e - mean) * (e - mean);
+        var /= (replicates - 1);
+        double stdErr = Math.sqrt(var / replicates);
+        double relErr = mean > 0 ? stdErr / mean : Double.NaN;
+
+        System.out.println("Rare event: " + levels[levels.length - 1] + " stacks " + target + " by round " + root.turns);
+        System.out.println("Levels / mean conditional probability:");
+        for (int l = 0; l < levels.length; l++) {
+            System.out.printf("  >= %2d %s : %.4f%n", levels[l], target, levelMeans[l]);
+        }
+        System.out.printf("Estimate     : %.6e%n", mean);
+        System.out.printf("Variance     : %.6e (per replicate)%n", var);
+        System.out.printf("Std error    : %.6e%n", stdErr);
+        System.out.printf("Relative err : %.4f%n", relErr);
+        System.out.printf("95%% CI       : [%.6e, %.6e]%n", Math.max(0, mean - 1.96 * stdErr), mean + 1.96 * stdErr);
+        System.out.println("Turns simulated: " + turnsSimulated);
+        if (mean > 0 && relErr > 0) {
+            // Naive Monte Carlo needs (1-p)/(p*RE^2) runs of up to `turns` rounds for the same relative error.
+            double naiveRuns = (1 - mean) / (mean * relErr * relErr);
+            double naiveTurns = naiveRuns * root.turns;
+            System.out.printf("Naive MC for same rel. error: ~%.3e runs (~%.3e turns), %.1fx the work%n",
+                    naiveRuns, naiveTurns, naiveTurns / turnsSimulated);
+        }
+    }
+
+    // ---------- CLI Entrance ----------
+    public static void main(String[] args) {
+        int turns = 50;
+        long seed = 5L;
+        int version = 1;
+        int effort = 1000;
+        int replicates = 20;
+        State target = State.WASTES;
+        int[] levels = null;
+        Map<Integer, State> init = new HashMap<>();
+        Map<FeedbackToken, Integer> limitOverride = new EnumMap<>(FeedbackToken.class);
+
+        for (String a : args) {
+            if (a.startsWith("--turns=")) {
+                turns = Integer.parseInt(a.substring(8));
+            } else if (a.startsWith("--seed=")) {
+                seed = Long.parseLong(a.substring(7));
+            } else if (a.startsWith("--stage=")) {
+                version = Integer.parseInt(a.substring(8));
+            } else if (a.startsWith("--effort=")) {
+                effort = Integer.parseInt(a.substring(9));
+            } else if (a.startsWith("--replicates=")) {
+                replicates = Integer.parseInt(a.substring(13));
+            } else if (a.startsWith("--target=")) {
+                target = State.valueOf(a.substring(9).toUpperCase());
+            } else if (a.startsWith("--levels=")) {
+                levels = Arrays.stream(a.substring(9).split(",")).mapToInt(Integer::parseInt).toArray();
+            } else if (a.startsWith("--limit=")) {
+                String spec = a.substring(8); // WILDS:30,DEVA:10
+                for (String part : spec.split(",")) {
+                    String[] kv = part.split(":");
+                    limitOverride.put(FeedbackToken.valueOf(kv[0].toUpperCase()), Integer.parseInt(kv[1]));
+                }
+            } else if (a.startsWith("--s")) {
+                // s3=DEVA means that the initial state of stack 3 is DevA.
+                String[] kv = a.substring(3).split("=");
+                init.put(Integer.parseInt(kv[0]), State.valueOf(kv[1].toUpperCase()));
+            }
+        }
+
+        // Not verbose: in Stage 2 every clone would otherwise print each disruption card it draws
+        Simulation root = new Simulation(turns, seed, init, limitOverride, new int[]{-1}, version, false);
+        if (levels == null) {
+            // Default: one level per additional stack in the target state.
+            int start = root.countState(target) + 1;
+            int n = root.myStacks.size();
+            levels = new int[Math.max(1, n - start + 1)];
+            for (int i = 0; i < levels.length; i++) levels[i] = Math.min(n, start + i);
+        }
+        new ImportanceSplitting(root, target, levels, effort, seed).estimate(replicates);
+        PhaseTimer.dumpIfEnabled();
+    }
+}
@@ -0,0 +1,109 @@
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the timeline of a run and writes assets/simulation_result_*.json when the run finishes
+ * (the output of {@link Simulation#run()}).
+ *
+ * Rounds are kept as a {@link DeltaTimeline} (only what changed), and the JSON round_outputs are
+ * built once, at export time. With deltaTimeline the file stores the compact "timeline_delta" instead.
+ * With an {@link ExportWriter} the finished tree is handed to its writer threads instead of being
+ * written on the simulation thread.
+ */
+public class JsonExportListener implements SimulationEngine.RoundListener {
+    private static final State[] STATES = State.values();
+
+    private final boolean printTurns;
+    private final boolean deltaTimeline;
+    private final ExportWriter writer;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private DeltaTimeline timeline;
+    private int[] codes;
+
+    /**
+     * @param printTurns print "Turn t done." and the board after every turn
+     */
+    JsonExportListener(boolean printTurns) {
+        this(printTurns, false);
+    }
+
+    /**
+     * @param deltaTimeline write "timeline_delta" instead of "timeline" and "round_outputs"
+     */
+    JsonExportListener(boolean printTurns, boolean deltaTimeline) {
+        this(printTurns, deltaTimeline, null);
+    }
+
+    /**
+     * @param writer background writer for the result files, or null to write synchronously
+     */
+    JsonExportListener(boolean printTurns, boolean deltaTimeline, ExportWriter writer) {
+        this.printTurns = printTurns;
+        this.deltaTimeline = deltaTimeline;
+        this.writer = writer;
+    }
+
+    @Override
+    public void onRound(RoundEvent event) {
+        if (event.round == 0) {
+            // A new run: the listener may be reused across runs of one engine.
+            timeline = new DeltaTimeline(event.board.length, event.bagCounts.length);
+            codes = new int[event.board.length];
+        }
+        long t0 = PhaseTimer.ENABLED ? System.nanoTime() : 0;
+        for (int i = 0; i < codes.length; i++) codes[i] = Simulation.getCodeFromState(STATES[event.board[i]]);
+        timeline.append(codes, event.bagCounts);
+        if (PhaseTimer.ENABLED) PhaseTimer.record(PhaseTimer.Phase.SNAPSHOT, t0);
+
+        if (printTurns && event.round > 0) {
+            System.out.println("Turn " + event.round + " done.");
+            StringBuilder sb = new StringBuilder("Stacks =>");
+            for (int i = 0; i < event.board.length; i++) {
+                sb.append(i == 0 ? " " : "  ").append(i + 1).append(':').append(STATES[event.board[i]].name());
+            }
+            System.out.println(sb);
+        }
+    }
+
+    @Override
+    public void onFinish(Simulation sim) {
+        long t0 = PhaseTimer.ENABLED ? System.nanoTime() : 0;
+        ObjectNode root;
+        if (deltaTimeline) {
+            root = Simulation.createResult(mapper, sim.myStacks, sim.bag, sim.getCurrentRound(), sim.turns, timeline, sim.seed);
+        } else {
+            List<int[]> timelineCodes = new ArrayList<>(timeline.size());
+            List<ObjectNode> roundSnapshots = new ArrayList<>(timeline.size());
+            int[] bag = new int[timeline.tokens];
+            int[] ordinals = new int[timeline.stacks];
+            for (int r = 0; r < timeline.size(); r++) {
+                int[] roundCodes = new int[timeline.stacks];
+                timeline.roundAt(r, roundCodes, bag);
+                timelineCodes.add(roundCodes);
+                for (int i = 0; i < ordinals.length; i++) ordinals[i] = DeltaTimeline.stateFromCode(roundCodes[i]).ordinal();
+                roundSnapshots.add(Simulation.createRoundSnapshot(mapper, ordinals, bag, r, sim.seed, sim.turns));
+            }
+            root = Simulation.createResult(mapper, sim.myStacks, sim.bag, sim.getCurrentRound(), sim.turns,
+                    timelineCodes, roundSnapshots, sim.seed);
+        }
+        if (writer == null) {
+            try {
+                Simulation.writeResult(mapper, Simulation.newResultFile(), root, false);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        } else {
+            try {
+                writer.submit(Simulation.newResultFile(), root);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while queueing " + sim.seed, e);
+            }
+        }
+        if (PhaseTimer.ENABLED) PhaseTimer.record(PhaseTimer.Phase.EXPORT, t0);
+    }
+}
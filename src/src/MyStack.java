@@ -1,7 +1,7 @@
 
 
 public class MyStack {
-    final int id;            // 1..11
+    final int id;            // 1..stacks (1..11 on the classic board)
     final StackRing ring;    // Inner / Middle / Outer
     State state;             // Current state.
 
@@ -0,0 +1,228 @@
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A/B comparison of two configurations on common random numbers: every seed is played once with
+ * A and once with B on all cores ({@link BatchEngine#runPaired}), so the noise both arms share
+ * cancels out of the differences. Pairs are added in batches until the confidence interval of
+ * the chosen metric excludes zero, lies entirely within +-tolerance, or --max-pairs is spent. The stopping
+ * check uses a Bonferroni correction over the planned number of looks, so peeking after every
+ * batch keeps the overall error rate at --alpha.
+ *
+ * Options without a prefix apply to both arms; --a.x / --b.x set x for one arm only. When both
+ * arms end up identical (an A/A run) every pair must come out identical too, or the run fails.
+ *
+ * Usage: --turns=50 --stage=1 --limits=20/20/20/20 --init=WAAAAAAAAAA [--topology=...] [--rules=...]
+ *        --b.limits=30/20/10/20 --metric=absorption --alpha=0.05 --batch=2000 --max-pairs=200000
+ *        --tolerance=0 --seed=5 --threads=N
+ */
+public class PairedComparison {
+    final SweepPoint a, b;
+    final String metric;
+    final double alpha;
+    final int batch;
+    final long maxPairs;
+    final double tolerance;
+    final long seed;
+    final boolean sameConfiguration;
+    PairedStats total = new PairedStats();
+    String verdict = "budget exhausted, difference unresolved";
+
+    PairedComparison(SweepPoint a, SweepPoint b, String metric, double alpha, int batch, long maxPairs,
+                     double tolerance, long seed) {
+        if (!Arrays.asList(PairedStats.METRICS).contains(metric)) {
+            throw new IllegalArgumentException("metric must be one of " + String.join(", ", PairedStats.METRICS));
+        }
+        this.a = a;
+        this.b = b;
+        this.metric = metric;
+        this.alpha = alpha;
+        this.batch = Math.max(1, batch);
+        this.maxPairs = maxPairs;
+        this.tolerance = tolerance;
+        this.seed = seed;
+        ObjectMapper mapper = new ObjectMapper();
+        this.sameConfiguration = a.toJson(mapper).equals(b.toJson(mapper));
+    }
+
+    void run(BatchEngine engine) throws InterruptedException {
+        long looks = Math.max(1, (maxPairs + batch - 1) / batch);
+        double zStop = normalQuantile(1 - alpha / (2.0 * looks));
+        while (total.pairs < maxPairs) {
+            int count = (int) Math.min(batch, maxPairs - total.pairs);
+            total.merge(engine.runPaired(a, b, seed + total.pairs, count));
+            PairedStats.Effect e = total.effect(metric);
+            System.out.printf("pairs=%d %s A-B=%+.4f CI[%+.4f, %+.4f]%n",
+                    total.pairs, metric, e.diff, e.lower(zStop), e.upper(zStop));
+            if (sameConfiguration && total.differing > 0) {
+                // A/A: the same configuration on the same seed must replay exactly
+                throw new IllegalStateException("A/A check failed: " + total.differing + " of " + total.pairs
+                        + " pairs of identical configurations diverged; the arms do not share their random numbers");
+            }
+            if (Double.isNaN(e.se)) continue;
+            if (e.se == 0 && e.diff == 0) {
+                if (sameConfiguration) {
+                    verdict = "no difference: every pair had the same " + metric;
+                    return;
+                }
+                // A zero-width interval (e.g. a rare event neither arm has hit yet) is no evidence of equivalence
+                continue;
+            }
+            if (e.lower(zStop) > 0 || e.upper(zStop) < 0) {
+                verdict = String.format("resolved: A %s B", e.diff > 0 ? ">" : "<");
+                return;
+            }
+            // Equivalent only when the whole interval lies within +-tolerance, not just its half-width
+            if (tolerance > 0 && Math.abs(e.diff) + zStop * e.se <= tolerance) {
+                verdict = String.format("resolved: |A-B| <= %s", tolerance);
+                return;
+            }
+        }
+        PairedStats.Effect e = total.effect(metric);
+        if (e.se == 0 && e.diff == 0) {
+            verdict = "budget exhausted, every pair had the same " + metric + "; difference unresolved";
+        }
+    }
+
+    void printResults() {
+        double z = normalQuantile(1 - alpha / 2);
+        System.out.println("A: " + a.label());
+        System.out.println("B: " + b.label());
+        System.out.printf("%d pairs, %s: %s%n", total.pairs, metric, verdict);
+        System.out.printf("%-10s %10s %10s %10s %23s %8s%n", "metric", "A", "B", "A-B",
+                String.format("%.0f%% CI", 100 * (1 - alpha)), "CRN x");
+        for (String m : PairedStats.METRICS) {
+            PairedStats.Effect e = total.effect(m);
+            System.out.printf("%-10s %10.4f %10.4f %+10.4f  [%+9.4f, %+9.4f] %8.1f%n",
+                    m, e.a, e.b, e.diff, e.lower(z), e.upper(z), e.varianceReduction());
+        }
+    }
+
+    void exportResults() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        double z = normalQuantile(1 - alpha / 2);
+        ObjectNode root = mapper.createObjectNode();
+        root.put("version", 1);
+        root.set("a", a.toJson(mapper));
+        root.set("b", b.toJson(mapper));
+        root.put("pairs", total.pairs);
+        root.put("seed", seed);
+        root.put("metric", metric);
+        root.put("alpha", alpha);
+        root.put("verdict", verdict);
+        ArrayNode effects = root.putArray("effects");
+        for (String m : PairedStats.METRICS) {
+            PairedStats.Effect e = total.effect(m);
+            ObjectNode node = effects.addObject();
+            node.put("metric", m);
+            node.put("a", e.a);
+            node.put("b", e.b);
+            node.put("diff", e.diff);
+            node.put("se", e.se);
+            node.put("ci_low", e.lower(z));
+            node.put("ci_high", e.upper(z));
+            node.put("variance_reduction", e.varianceReduction());
+        }
+        File output = Simulation.newResultFile("ab");
+        Simulation.writeResult(mapper, output, root, false);
+        System.out.println("Exported to: " + output.getPath());
+    }
+
+    /** Inverse of the standard normal CDF (Acklam's rational approximation, relative error below 1.2e-9). */
+    static double normalQuantile(double p) {
+        if (p <= 0 || p >= 1) throw new IllegalArgumentException("p must be in (0, 1)");
+        double[] a = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+                1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+        double[] b = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+                6.680131188771972e+01, -1.328068155288572e+01};
+        double[] c = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+                -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+        double[] d = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+                3.754408661907416e+00};
+        double low = 0.02425;
+        if (p < low || p > 1 - low) {
+            double q = Math.sqrt(-2 * Math.log(p < low ? p : 1 - p));
+            double x = (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                    / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+            return p < low ? x : -x;
+        }
+        double q = p - 0.5, r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+                / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+    }
+
+    // One arm from the shared options and its --a. / --b. overrides
+    static SweepPoint arm(Map<String, String> options) throws IOException {
+        int turns = Integer.parseInt(options.getOrDefault("turns", "50"));
+        int version = Integer.parseInt(options.getOrDefault("stage", "1"));
+        int[] limits = Arrays.stream(options.getOrDefault("limits", "20/20/20/20").split("/"))
+                .mapToInt(Integer::parseInt).toArray();
+        if (limits.length != 4) throw new IllegalArgumentException("limits must be WILDS/WASTES/DEVA/DEVB");
+        State[] initial = SweepPoint.parsePattern(options.getOrDefault("init", "WAAAAAAAAAA"));
+        return new SweepPoint(turns, version, limits, initial,
+                BoardTopology.parse(options.get("topology")), RuleSet.parse(options.get("rules")));
+    }
+
+    // ---------- CLI Entrance ----------
+    public static void main(String[] args) throws Exception {
+        Map<String, String> shared = new HashMap<>();
+        Map<String, String> onlyA = new HashMap<>();
+        Map<String, String> onlyB = new HashMap<>();
+        String metric = "absorption";
+        double alpha = 0.05;
+        int batch = 2000;
+        long maxPairs = 200_000;
+        double tolerance = 0;
+        long seed = 5L;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (String a : args) {
+            if (a.startsWith("--metric=")) {
+                metric = a.substring(9);
+            } else if (a.startsWith("--alpha=")) {
+                alpha = Double.parseDouble(a.substring(8));
+            } else if (a.startsWith("--batch=")) {
+                batch = Integer.parseInt(a.substring(8));
+            } else if (a.startsWith("--max-pairs=")) {
+                maxPairs = Long.parseLong(a.substring(12));
+            } else if (a.startsWith("--tolerance=")) {
+                tolerance = Double.parseDouble(a.substring(12));
+            } else if (a.startsWith("--seed=")) {
+                seed = Long.parseLong(a.substring(7));
+            } else if (a.startsWith("--threads=")) {
+                threads = Integer.parseInt(a.substring(10));
+            } else if (a.startsWith("--") && a.contains("=")) {
+                // --turns=50 for both arms, --a.limits=... / --b.stage=2 for one
+                String key = a.substring(2, a.indexOf('='));
+                String value = a.substring(a.indexOf('=') + 1);
+                if (key.startsWith("a.")) {
+                    onlyA.put(key.substring(2), value);
+                } else if (key.startsWith("b.")) {
+                    onlyB.put(key.substring(2), value);
+                } else {
+                    shared.put(key, value);
+                }
+            }
+        }
+        Map<String, String> optionsA = new HashMap<>(shared);
+        optionsA.putAll(onlyA);
+        Map<String, String> optionsB = new HashMap<>(shared);
+        optionsB.putAll(onlyB);
+
+        PairedComparison comparison = new PairedComparison(arm(optionsA), arm(optionsB), metric, alpha,
+                batch, maxPairs, tolerance, seed);
+        try (BatchEngine engine = new BatchEngine(threads)) {
+            comparison.run(engine);
+        }
+        comparison.printResults();
+        comparison.exportResults();
+        PhaseTimer.dumpIfEnabled();
+    }
+}
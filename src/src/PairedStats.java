@@ -0,0 +1,133 @@
+/**
+ * Mergeable aggregate of paired runs: configuration A and configuration B played with the same
+ * seed, so both start from the same random stream (common random numbers). Keeps per-arm sums and
+ * the sums of squared per-pair differences, which give the paired standard error of every
+ * difference; the variance an unpaired comparison would have is kept alongside, to show what the
+ * pairing gained.
+ *
+ * Absorption (every stack WILDS) and the final composition are paired per seed; the absorption
+ * round only exists for absorbed runs, so it is compared over the pairs where both arms absorbed.
+ */
+public class PairedStats {
+    /** Metrics that can be compared: absorption probability, absorption round, final count per state. */
+    static final String[] METRICS = {"absorption", "round", "WILDS", "WASTES", "DEVA", "DEVB"};
+
+    long pairs;
+    long differing; // pairs whose absorption round or final composition differ at all
+    long absorbedA, absorbedB, absorbedBoth;
+    long roundSumA, roundSumB, roundSqA, roundSqB, roundDiffSq; // over pairs where both absorbed
+    final long[] finalA = new long[State.values().length];  // stacks per state at the last round, summed
+    final long[] finalB = new long[State.values().length];
+    final long[] finalSqA = new long[State.values().length];
+    final long[] finalSqB = new long[State.values().length];
+    final long[] finalDiffSq = new long[State.values().length]; // sum of (countA - countB)^2
+
+    /** Difference A - B of one metric with its paired and unpaired standard errors. */
+    static class Effect {
+        final String metric;
+        final double a, b, diff, se, unpairedSe;
+
+        Effect(String metric, double a, double b, double se, double unpairedSe) {
+            this.metric = metric;
+            this.a = a;
+            this.b = b;
+            this.diff = a - b;
+            this.se = se;
+            this.unpairedSe = unpairedSe;
+        }
+
+        double lower(double z) {
+            return diff - z * se;
+        }
+
+        double upper(double z) {
+            return diff + z * se;
+        }
+
+        /** How many independent pairs one common-random-number pair is worth for this metric. */
+        double varianceReduction() {
+            return se > 0 ? (unpairedSe * unpairedSe) / (se * se) : Double.NaN;
+        }
+    }
+
+    /** Record one pair; absorption rounds are -1 when the board never became all WILDS. */
+    void record(Simulation a, int absorbedAtA, Simulation b, int absorbedAtB) {
+        pairs++;
+        boolean same = absorbedAtA == absorbedAtB;
+        if (absorbedAtA >= 0) absorbedA++;
+        if (absorbedAtB >= 0) absorbedB++;
+        if (absorbedAtA >= 0 && absorbedAtB >= 0) {
+            absorbedBoth++;
+            roundSumA += absorbedAtA;
+            roundSumB += absorbedAtB;
+            roundSqA += (long) absorbedAtA * absorbedAtA;
+            roundSqB += (long) absorbedAtB * absorbedAtB;
+            roundDiffSq += (long) (absorbedAtA - absorbedAtB) * (absorbedAtA - absorbedAtB);
+        }
+        for (State st : State.values()) {
+            int ca = a.countState(st), cb = b.countState(st);
+            int s = st.ordinal();
+            finalA[s] += ca;
+            finalB[s] += cb;
+            finalSqA[s] += (long) ca * ca;
+            finalSqB[s] += (long) cb * cb;
+            finalDiffSq[s] += (long) (ca - cb) * (ca - cb);
+            same &= ca == cb;
+        }
+        if (!same) differing++;
+    }
+
+    void merge(PairedStats other) {
+        pairs += other.pairs;
+        differing += other.differing;
+        absorbedA += other.absorbedA;
+        absorbedB += other.absorbedB;
+        absorbedBoth += other.absorbedBoth;
+        roundSumA += other.roundSumA;
+        roundSumB += other.roundSumB;
+        roundSqA += other.roundSqA;
+        roundSqB += other.roundSqB;
+        roundDiffSq += other.roundDiffSq;
+        for (int s = 0; s < finalA.length; s++) {
+            finalA[s] += other.finalA[s];
+            finalB[s] += other.finalB[s];
+            finalSqA[s] += other.finalSqA[s];
+            finalSqB[s] += other.finalSqB[s];
+            finalDiffSq[s] += other.finalDiffSq[s];
+        }
+    }
+
+    /** One of {@link #METRICS}. */
+    Effect effect(String metric) {
+        double n = pairs;
+        switch (metric) {
+            case "absorption": {
+                double pa = absorbedA / n, pb = absorbedB / n;
+                // a, b in {0, 1}: sum of (a - b)^2 counts the pairs where exactly one arm absorbed
+                double diffSq = absorbedA + absorbedB - 2.0 * absorbedBoth;
+                return new Effect(metric, pa, pb,
+                        Math.sqrt(variance(diffSq, (pa - pb) * n, n) / n),
+                        Math.sqrt((variance(absorbedA, absorbedA, n) + variance(absorbedB, absorbedB, n)) / n));
+            }
+            case "round": {
+                double m = absorbedBoth;
+                return new Effect(metric, roundSumA / m, roundSumB / m,
+                        Math.sqrt(variance(roundDiffSq, roundSumA - roundSumB, m) / m),
+                        Math.sqrt((variance(roundSqA, roundSumA, m) + variance(roundSqB, roundSumB, m)) / m));
+            }
+            default: {
+                int s = State.valueOf(metric).ordinal();
+                double diffSum = finalA[s] - finalB[s];
+                return new Effect(metric, finalA[s] / n, finalB[s] / n,
+                        Math.sqrt(variance(finalDiffSq[s], diffSum, n) / n),
+                        Math.sqrt((variance(finalSqA[s], finalA[s], n) + variance(finalSqB[s], finalB[s], n)) / n));
+            }
+        }
+    }
+
+    // Sample variance from the sum of squares and the sum of n values; NaN below two values
+    private static double variance(double sumSq, double sum, double n) {
+        if (n < 2) return Double.NaN;
+        return Math.max(0, (sumSq - sum * sum / n) / (n - 1));
+    }
+}
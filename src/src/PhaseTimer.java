@@ -0,0 +1,95 @@
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Optional per-phase latency histograms for the turn loop.
+ *
+ * Enabled with -Dsimulation.profile=true. ENABLED is a static final constant, so when it is off
+ * the JIT removes every {@code if (PhaseTimer.ENABLED)} block and the hot path pays nothing.
+ * Each thread records into its own histogram (log2 nanosecond buckets); dump() merges them,
+ * so call it at the end of a batch once the worker threads are done.
+ */
+public final class PhaseTimer {
+    static final boolean ENABLED = Boolean.getBoolean("simulation.profile");
+
+    enum Phase { GENERATE, DRAW, RESOLVE, RECYCLE, SNAPSHOT, EXPORT }
+
+    private static final int BUCKETS = 64;
+    private static final Queue<Recorder> RECORDERS = new ConcurrentLinkedQueue<>();
+    private static final ThreadLocal<Recorder> LOCAL = ThreadLocal.withInitial(() -> {
+        Recorder r = new Recorder();
+        RECORDERS.add(r);
+        return r;
+    });
+
+    private PhaseTimer() {}
+
+    private static final class Recorder {
+        final long[][] buckets = new long[Phase.values().length][BUCKETS];
+        final long[] counts = new long[Phase.values().length];
+        final long[] totals = new long[Phase.values().length];
+        final long[] max = new long[Phase.values().length];
+    }
+
+    /** Record the time elapsed since startNanos (a System.nanoTime() value) against a phase. */
+    static void record(Phase phase, long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        Recorder r = LOCAL.get();
+        int p = phase.ordinal();
+        r.buckets[p][BUCKETS - Long.numberOfLeadingZeros(Math.max(nanos, 1))]++;
+        r.counts[p]++;
+        r.totals[p] += nanos;
+        if (nanos > r.max[p]) r.max[p] = nanos;
+    }
+
+    static void reset() {
+        for (Recorder r : RECORDERS) {
+            for (long[] b : r.buckets) Arrays.fill(b, 0);
+            Arrays.fill(r.counts, 0);
+            Arrays.fill(r.totals, 0);
+            Arrays.fill(r.max, 0);
+        }
+    }
+
+    /** Print counters and latency percentiles (bucket upper bounds) for every phase. */
+    static void dump(PrintStream out) {
+        int phases = Phase.values().length;
+        long[][] buckets = new long[phases][BUCKETS];
+        long[] counts = new long[phases];
+        long[] totals = new long[phases];
+        long[] max = new long[phases];
+        for (Recorder r : RECORDERS) {
+            for (int p = 0; p < phases; p++) {
+                for (int b = 0; b < BUCKETS; b++) buckets[p][b] += r.buckets[p][b];
+                counts[p] += r.counts[p];
+                totals[p] += r.totals[p];
+                max[p] = Math.max(max[p], r.max[p]);
+            }
+        }
+        out.println("Phase timings (ns; percentiles are log2 bucket upper bounds)");
+        out.printf("%-9s %12s %12s %9s %9s %9s %9s %11s%n", "phase", "count", "total ms", "mean", "p50", "p90", "p99", "max");
+        for (Phase phase : Phase.values()) {
+            int p = phase.ordinal();
+            if (counts[p] == 0) continue;
+            out.printf("%-9s %12d %12.2f %9d %9d %9d %9d %11d%n", phase, counts[p], totals[p] / 1e6,
+                    totals[p] / counts[p], percentile(buckets[p], counts[p], 0.50),
+                    percentile(buckets[p], counts[p], 0.90), percentile(buckets[p], counts[p], 0.99), max[p]);
+        }
+    }
+
+    static void dumpIfEnabled() {
+        if (ENABLED) dump(System.out);
+    }
+
+    private static long percentile(long[] buckets, long count, double q) {
+        long rank = (long) Math.ceil(q * count);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += buckets[b];
+            if (seen >= rank) return b >= 63 ? Long.MAX_VALUE : (1L << b);
+        }
+        return Long.MAX_VALUE;
+    }
+}
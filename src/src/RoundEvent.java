@@ -0,0 +1,59 @@
+import java.util.Arrays;
+
+/**
+ * Primitive, read-only view of a simulation after one round, passed to
+ * {@link SimulationEngine.RoundListener}s.
+ *
+ * One instance is reused for every round of a run, so listeners must copy anything they keep.
+ * States and tokens are ordinals of {@link State} / {@link FeedbackToken}; index 0 is stack 1.
+ */
+public final class RoundEvent {
+    private static final State[] STATES = State.values();
+
+    int round;
+    int turns;
+    long seed;
+    final int[] board;          // State ordinal per stack
+    final int[] bagCounts;      // FeedbackToken ordinal -> tokens in the bag
+    int bagTotal;
+    final int[] drawn;          // FeedbackToken ordinal drawn for each position this round, -1 in round 0
+
+    RoundEvent(int stacks) {
+        this.board = new int[stacks];
+        this.bagCounts = new int[Bag.TOKENS.length];
+        this.drawn = new int[stacks];
+    }
+
+    /** Refresh the view from the simulation's current round. */
+    RoundEvent capture(Simulation sim) {
+        round = sim.getCurrentRound();
+        turns = sim.turns;
+        seed = sim.seed;
+        for (int i = 0; i < board.length; i++) board[i] = sim.myStacks.get(i).state.ordinal();
+        System.arraycopy(sim.bag.counts, 0, bagCounts, 0, bagCounts.length);
+        bagTotal = sim.bag.totalCount();
+        if (round == 0) {
+            Arrays.fill(drawn, -1);
+        } else {
+            sim.copyDrawn(drawn);
+        }
+        return this;
+    }
+
+    public int round() { return round; }
+    public int turns() { return turns; }
+    public long seed() { return seed; }
+    public int stacks() { return board.length; }
+    public int bagTotal() { return bagTotal; }
+
+    /** State of stack {@code id} (1-based). */
+    public State state(int id) { return STATES[board[id - 1]]; }
+
+    public int bagCount(FeedbackToken token) { return bagCounts[token.ordinal()]; }
+
+    /** Token drawn for position {@code id} (1-based) this round, or null in round 0. */
+    public FeedbackToken drawn(int id) {
+        int t = drawn[id - 1];
+        return t < 0 ? null : Bag.TOKENS[t];
+    }
+}
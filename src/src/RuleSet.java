@@ -0,0 +1,208 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * The game rules as data: which token each state generates, what each token does to each state,
+ * which positions keep their token and how the bag limits apply. A rule variant is a small JSON
+ * file; anything it leaves out keeps the classic rule:
+ *
+ * <pre>
+ * {
+ *   "name": "deva-only-on-wilds",
+ *   "generate": {"DEVB": "none"},                       // state -&gt; token it adds to the bag, or "none"
+ *   "resolve": {"DEVA": {"WILDS": "WASTES", "*": "keep"}, // token -&gt; result, or state -&gt; result per token
+ *               "DEVB": "card"},                        //   a state, "keep", or "card" (Stage 2 disruption card)
+ *   "persist": [1, 8, 9, 10, 11],                       // overrides the board's persisting positions
+ *   "cap": "drop"                                       // drop | strict | none
+ * }
+ * </pre>
+ *
+ * Cap behavior: "drop" discards generated tokens above the limit while recycled tokens always go
+ * back (the classic rule), "strict" applies the limit to recycled tokens too, "none" has no limit.
+ *
+ * The spec is compiled once into int tables indexed by ordinal, so the turn loop resolves a
+ * token with one array lookup whatever the variant, exactly as fast as the classic rules.
+ */
+public class RuleSet {
+    static final int CARD = -1;  // resolve entry: draw a disruption card (no effect in Stage 1)
+    static final int NONE = -1;  // generate entry: the state adds no token
+
+    private static final State[] STATES = State.values();
+    private static final int TOKENS = FeedbackToken.values().length;
+
+    static final RuleSet CLASSIC = classic();
+
+    final String name;
+    final int[] generate;   // State ordinal -> FeedbackToken ordinal, or NONE
+    final int[] resolve;    // State ordinal * TOKENS + FeedbackToken ordinal -> next State ordinal, or CARD
+    final int[] persist;    // positions keeping their token, or null for the board's own set
+    final String cap;       // drop | strict | none
+
+    private RuleSet(String name, int[] generate, int[] resolve, int[] persist, String cap) {
+        this.name = name;
+        this.generate = generate;
+        this.resolve = resolve;
+        this.persist = persist;
+        this.cap = cap;
+    }
+
+    private static RuleSet classic() {
+        int[] generate = new int[STATES.length];
+        int[] resolve = new int[STATES.length * TOKENS];
+        for (int s = 0; s < STATES.length; s++) {
+            // State and FeedbackToken declare the same constants in the same order, so the ordinal is the token.
+            generate[s] = s;
+            resolve[s * TOKENS + FeedbackToken.WILDS.ordinal()] = State.WILDS.ordinal();   // set to wilds.
+            resolve[s * TOKENS + FeedbackToken.WASTES.ordinal()] = s;                       // no effect at this stage.
+            resolve[s * TOKENS + FeedbackToken.DEVA.ordinal()] = State.WASTES.ordinal();   // DevA token: set the state to wastes.
+            resolve[s * TOKENS + FeedbackToken.DEVB.ordinal()] = CARD;                     // DEVB token: disruption card.
+        }
+        return new RuleSet("classic", generate, resolve, null, "drop");
+    }
+
+    /** Apply a drawn token (ordinal) to the target stack. */
+    void resolve(int token, MyStack target, DisruptionCardManager disruptionManager, int stacks) {
+        int next = resolve[target.state.ordinal() * TOKENS + token];
+        if (next >= 0) {
+            target.state = STATES[next];
+        } else {
+            FeedbackToken.drawDisruptionCard(target, disruptionManager, stacks);
+        }
+    }
+
+    /** Persisting positions on a board of {@code stacks}: this rule set's, or the topology's when it has none. */
+    boolean[] persists(BoardTopology topology) {
+        if (persist == null) return topology.persists;
+        boolean[] mask = new boolean[topology.stacks + 1];
+        for (int pos : persist) {
+            if (pos < 1 || pos > topology.stacks) {
+                throw new IllegalArgumentException("rules " + name + ": persist position " + pos + " is outside 1.." + topology.stacks);
+            }
+            mask[pos] = true;
+        }
+        return mask;
+    }
+
+    boolean isClassic() {
+        return this == CLASSIC;
+    }
+
+    /** "classic" or the path of a JSON rules file. */
+    static RuleSet parse(String spec) throws IOException {
+        if (spec == null || spec.isEmpty() || spec.equals("classic")) return CLASSIC;
+        File file = new File(spec);
+        if (!file.isFile()) throw new IOException("No rules file " + spec);
+        return fromJson(new ObjectMapper().readTree(file), file.getName());
+    }
+
+    /** Compile a spec; unknown names and malformed entries are IllegalArgumentExceptions. */
+    static RuleSet fromJson(JsonNode node, String defaultName) {
+        if (node.isTextual()) {
+            try {
+                return parse(node.asText());
+            } catch (IOException e) {
+                throw new IllegalArgumentException(e.getMessage(), e);
+            }
+        }
+        String name = node.path("name").asText(defaultName);
+        int[] generate = CLASSIC.generate.clone();
+        int[] resolve = CLASSIC.resolve.clone();
+
+        for (Iterator<Map.Entry<String, JsonNode>> it = node.path("generate").fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> e = it.next();
+            String token = e.getValue().asText();
+            generate[state(name, e.getKey()).ordinal()] = token.equalsIgnoreCase("none") ? NONE : token(name, token).ordinal();
+        }
+        for (Iterator<Map.Entry<String, JsonNode>> it = node.path("resolve").fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> e = it.next();
+            int token = token(name, e.getKey()).ordinal();
+            JsonNode rule = e.getValue();
+            if (rule.isObject()) {
+                // Per state, "*" for the states not listed
+                JsonNode any = rule.get("*");
+                for (State st : STATES) {
+                    JsonNode r = rule.has(st.name()) ? rule.get(st.name()) : any;
+                    if (r != null) resolve[st.ordinal() * TOKENS + token] = result(name, r.asText(), st);
+                }
+                for (Iterator<String> keys = rule.fieldNames(); keys.hasNext(); ) {
+                    String key = keys.next();
+                    if (!key.equals("*")) state(name, key); // reject typos
+                }
+            } else {
+                for (State st : STATES) resolve[st.ordinal() * TOKENS + token] = result(name, rule.asText(), st);
+            }
+        }
+
+        int[] persist = null;
+        if (node.has("persist")) {
+            JsonNode p = node.get("persist");
+            if (!p.isArray()) throw new IllegalArgumentException("rules " + name + ": \"persist\" must be an array");
+            persist = new int[p.size()];
+            for (int i = 0; i < persist.length; i++) persist[i] = p.get(i).asInt();
+        }
+        String cap = node.path("cap").asText("drop");
+        if (!cap.equals("drop") && !cap.equals("strict") && !cap.equals("none")) {
+            throw new IllegalArgumentException("rules " + name + ": cap must be drop, strict or none, not " + cap);
+        }
+        return new RuleSet(name, generate, resolve, persist, cap);
+    }
+
+    private static int result(String rules, String result, State from) {
+        if (result.equalsIgnoreCase("keep")) return from.ordinal();
+        if (result.equalsIgnoreCase("card")) return CARD;
+        return state(rules, result).ordinal();
+    }
+
+    private static State state(String rules, String name) {
+        try {
+            return State.valueOf(name.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("rules " + rules + ": unknown state " + name);
+        }
+    }
+
+    private static FeedbackToken token(String rules, String name) {
+        try {
+            return FeedbackToken.valueOf(name.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("rules " + rules + ": unknown token " + name);
+        }
+    }
+
+    /** The compiled tables written out in full, so a worker rebuilds exactly the same rules. */
+    ObjectNode toJson(ObjectMapper mapper) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("name", name);
+        ObjectNode gen = node.putObject("generate");
+        for (State st : STATES) {
+            int t = generate[st.ordinal()];
+            gen.put(st.name(), t == NONE ? "none" : Bag.TOKENS[t].name());
+        }
+        ObjectNode res = node.putObject("resolve");
+        for (FeedbackToken token : Bag.TOKENS) {
+            ObjectNode byState = res.putObject(token.name());
+            for (State st : STATES) {
+                int next = resolve[st.ordinal() * TOKENS + token.ordinal()];
+                byState.put(st.name(), next == CARD ? "card" : STATES[next].name());
+            }
+        }
+        if (persist != null) {
+            ArrayNode p = node.putArray("persist");
+            for (int pos : persist) p.add(pos);
+        }
+        node.put("cap", cap);
+        return node;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
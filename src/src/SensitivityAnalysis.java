@@ -0,0 +1,330 @@
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Global sensitivity analysis (Sobol indices) of the outcome to the bag limits and the initial board.
+ *
+ * Factors, each drawn uniformly over its range:
+ * the four bag limits; "wilds", the number of stacks that start as WILDS (the others start as
+ * --fill); and "placement", where those WILDS sit: 0 puts them on the innermost positions, 1 on
+ * the outermost, values in between slide the block outwards ring by ring.
+ *
+ * Saltelli design: two N x k matrices A and B from a Sobol sequence, plus the k matrices AB_i
+ * (A with column i taken from B), N (k + 2) configurations in total. Every configuration is the
+ * mean of --replicates seeded runs; all configurations of one row share their seeds, so the
+ * differences the estimators take are not swamped by run-to-run noise. First-order indices use
+ * the Saltelli (2010) estimator and total indices Jansen's; the confidence intervals are
+ * percentile bootstraps over the rows.
+ *
+ * Usage: --turns=50 --stage=1 [--topology=...] [--rules=...] --limits=5:40 --wilds=1:10 --fill=A
+ *        --samples=1024 --replicates=32 --bootstrap=500 --alpha=0.05 --seed=5 --batch=64 --threads=N
+ */
+public class SensitivityAnalysis {
+    static final String[] FACTORS = {"limit.WILDS", "limit.WASTES", "limit.DEVA", "limit.DEVB", "wilds", "placement"};
+    static final String[] METRICS = {"absorption", "round", "wilds"};
+    private static final int K = FACTORS.length;
+    private static final int BLOCK = 4096; // configurations per engine call, for progress output
+
+    final int turns, version;
+    final BoardTopology topology;
+    final RuleSet rules;
+    final int limitMin, limitMax, wildsMin, wildsMax;
+    final State fill;
+    final int samples, replicates;
+    final long seed;
+    final double[][] a, b;      // [row][factor] in [0, 1)
+    final double[][] yA, yB;    // [metric][row]
+    final double[][][] yAB;     // [factor][metric][row]
+
+    SensitivityAnalysis(int turns, int version, BoardTopology topology, RuleSet rules, int limitMin, int limitMax,
+                        int wildsMin, int wildsMax, State fill, int samples, int replicates, long seed) {
+        if (limitMin < 0 || limitMax < limitMin) throw new IllegalArgumentException("limits must be MIN:MAX with 0 <= MIN <= MAX");
+        if (wildsMin < 0 || wildsMax < wildsMin || wildsMax > topology.stacks) {
+            throw new IllegalArgumentException("wilds must be MIN:MAX within 0.." + topology.stacks);
+        }
+        if (samples < 2 || replicates < 1) throw new IllegalArgumentException("need samples >= 2 and replicates >= 1");
+        this.turns = turns;
+        this.version = version;
+        this.topology = topology;
+        this.rules = rules;
+        this.limitMin = limitMin;
+        this.limitMax = limitMax;
+        this.wildsMin = wildsMin;
+        this.wildsMax = wildsMax;
+        this.fill = fill;
+        this.samples = samples;
+        this.replicates = replicates;
+        this.seed = seed;
+
+        // Row j of A is the first k coordinates of Sobol point j, row j of B the next k
+        SobolSequence sobol = new SobolSequence(2 * K);
+        a = new double[samples][];
+        b = new double[samples][];
+        for (int j = 0; j < samples; j++) {
+            double[] p = sobol.next();
+            a[j] = Arrays.copyOfRange(p, 0, K);
+            b[j] = Arrays.copyOfRange(p, K, 2 * K);
+        }
+        yA = new double[METRICS.length][samples];
+        yB = new double[METRICS.length][samples];
+        yAB = new double[K][METRICS.length][samples];
+    }
+
+    /** The configuration at a point of the unit cube. */
+    SweepPoint point(double[] u) {
+        int[] limits = new int[4];
+        for (int t = 0; t < 4; t++) limits[t] = scale(u[t], limitMin, limitMax);
+        int n = topology.stacks;
+        int wilds = scale(u[4], wildsMin, wildsMax);
+        // Ids run ring by ring from the inside out, so a block of consecutive ids moves outwards with its start
+        int start = Math.min(n - wilds, (int) (u[5] * (n - wilds + 1)));
+        State[] initial = new State[n];
+        for (int i = 0; i < n; i++) initial[i] = i >= start && i < start + wilds ? State.WILDS : fill;
+        return new SweepPoint(turns, version, limits, initial, topology, rules);
+    }
+
+    // Integer in min..max, every value equally likely
+    private static int scale(double u, int min, int max) {
+        return Math.min(max, min + (int) (u * (max - min + 1)));
+    }
+
+    /** Run all N (k + 2) configurations; configurations of a row are adjacent and share their seeds. */
+    void evaluate(BatchEngine engine, int batchSize) throws InterruptedException {
+        int perRow = K + 2;
+        int total = samples * perRow;
+        long started = System.nanoTime();
+        for (int from = 0; from < total; from += BLOCK) {
+            int to = Math.min(from + BLOCK, total);
+            SweepPoint[] points = new SweepPoint[to - from];
+            long[] seeds = new long[to - from];
+            for (int p = from; p < to; p++) {
+                int row = p / perRow, m = p % perRow;
+                double[] u = m == 0 ? a[row] : m == 1 ? b[row] : mix(a[row], b[row], m - 2);
+                points[p - from] = point(u);
+                seeds[p - from] = seed + (long) row * replicates;
+            }
+            BatchStats[] results = engine.runEach(points, seeds, replicates, batchSize);
+            for (int p = from; p < to; p++) {
+                int row = p / perRow, m = p % perRow;
+                double[] y = metrics(results[p - from]);
+                for (int q = 0; q < METRICS.length; q++) {
+                    if (m == 0) yA[q][row] = y[q];
+                    else if (m == 1) yB[q][row] = y[q];
+                    else yAB[m - 2][q][row] = y[q];
+                }
+            }
+            double seconds = (System.nanoTime() - started) / 1e9;
+            System.out.printf("Evaluated %d/%d configurations (%.0f runs/s)%n",
+                    to, total, (double) to * replicates / seconds);
+        }
+    }
+
+    // Row of A with column i taken from B
+    private static double[] mix(double[] a, double[] b, int i) {
+        double[] ab = a.clone();
+        ab[i] = b[i];
+        return ab;
+    }
+
+    /** absorption probability, absorption round (runs that never absorb count as the last round), final WILDS */
+    private double[] metrics(BatchStats s) {
+        double round = (s.absorptionRoundSum + (double) (s.runs - s.absorbed) * turns) / s.runs;
+        return new double[]{s.absorptionProbability(), round, s.meanFinalCount(State.WILDS)};
+    }
+
+    /** First-order indices then total indices of one metric over the given rows (repeats allowed). */
+    double[] indices(int metric, int[] rows) {
+        double[] fa = yA[metric], fb = yB[metric];
+        double mean = 0;
+        for (int j : rows) mean += fa[j] + fb[j];
+        mean /= 2.0 * rows.length;
+        double variance = 0;
+        for (int j : rows) variance += (fa[j] - mean) * (fa[j] - mean) + (fb[j] - mean) * (fb[j] - mean);
+        variance /= 2.0 * rows.length - 1;
+
+        double[] result = new double[2 * K];
+        if (!(variance > 0)) {
+            Arrays.fill(result, Double.NaN); // the metric does not move: nothing to apportion
+            return result;
+        }
+        for (int i = 0; i < K; i++) {
+            double[] fab = yAB[i][metric];
+            double first = 0, total = 0;
+            for (int j : rows) {
+                // Centered, which leaves the expectation alone but keeps the estimator's variance down
+                first += (fb[j] - mean) * (fab[j] - fa[j]);
+                total += (fa[j] - fab[j]) * (fa[j] - fab[j]);
+            }
+            result[i] = first / rows.length / variance;
+            result[K + i] = total / (2.0 * rows.length) / variance;
+        }
+        return result;
+    }
+
+    /** Point estimates and percentile bootstrap bounds: [metric][0 = estimate, 1 = lower, 2 = upper][index]. */
+    double[][][] analyze(int resamples, double alpha) {
+        int[] all = new int[samples];
+        for (int j = 0; j < samples; j++) all[j] = j;
+        SplittableRandom rng = new SplittableRandom(seed);
+        double[][][] out = new double[METRICS.length][3][];
+        for (int q = 0; q < METRICS.length; q++) {
+            out[q][0] = indices(q, all);
+            double[][] boot = new double[2 * K][resamples];
+            int[] rows = new int[samples];
+            for (int r = 0; r < resamples; r++) {
+                for (int j = 0; j < samples; j++) rows[j] = rng.nextInt(samples);
+                double[] est = indices(q, rows);
+                for (int i = 0; i < 2 * K; i++) boot[i][r] = est[i];
+            }
+            out[q][1] = new double[2 * K];
+            out[q][2] = new double[2 * K];
+            for (int i = 0; i < 2 * K; i++) {
+                // Resamples where the metric came out constant have no indices
+                double[] sorted = Arrays.stream(boot[i]).filter(v -> !Double.isNaN(v)).sorted().toArray();
+                out[q][1][i] = quantile(sorted, alpha / 2);
+                out[q][2][i] = quantile(sorted, 1 - alpha / 2);
+            }
+        }
+        return out;
+    }
+
+    private static double quantile(double[] sorted, double p) {
+        if (sorted.length == 0) return Double.NaN;
+        return sorted[Math.min(sorted.length - 1, (int) Math.floor(p * sorted.length))];
+    }
+
+    void printResults(double[][][] result, double alpha) {
+        System.out.printf("%d samples x %d configurations x %d runs, board %s, stage %d, %d turns%n",
+                samples, K + 2, replicates, topology, version, turns);
+        for (int q = 0; q < METRICS.length; q++) {
+            System.out.println();
+            System.out.printf("%s (%.0f%% CI)%n", METRICS[q], 100 * (1 - alpha));
+            if (Double.isNaN(result[q][0][0])) {
+                System.out.println("constant over the sampled ranges, no indices");
+                continue;
+            }
+            System.out.printf("%-13s %8s %19s %8s %19s%n", "factor", "S1", "", "ST", "");
+            double sum = 0;
+            for (int i = 0; i < K; i++) {
+                sum += result[q][0][i];
+                System.out.printf("%-13s %8.3f  [%7.3f, %7.3f] %8.3f  [%7.3f, %7.3f]%n", FACTORS[i],
+                        result[q][0][i], result[q][1][i], result[q][2][i],
+                        result[q][0][K + i], result[q][1][K + i], result[q][2][K + i]);
+            }
+            System.out.printf("%-13s %8.3f  (1 - sum = share of interactions)%n", "sum S1", sum);
+        }
+    }
+
+    void exportResults(double[][][] result, int resamples, double alpha) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode root = mapper.createObjectNode();
+        root.put("version", 1);
+        root.put("turns", turns);
+        root.put("stage", version);
+        root.set("topology", topology.toJson(mapper));
+        if (!rules.isClassic()) root.set("rules", rules.toJson(mapper));
+        root.put("fill", fill.name());
+        ObjectNode ranges = root.putObject("ranges");
+        ranges.putArray("limits").add(limitMin).add(limitMax);
+        ranges.putArray("wilds").add(wildsMin).add(wildsMax);
+        ranges.putArray("placement").add(0).add(1);
+        root.put("samples", samples);
+        root.put("replicates", replicates);
+        root.put("seed", seed);
+        root.put("bootstrap", resamples);
+        root.put("alpha", alpha);
+        ObjectNode metrics = root.putObject("indices");
+        for (int q = 0; q < METRICS.length; q++) {
+            ArrayNode factors = metrics.putArray(METRICS[q]);
+            for (int i = 0; i < K; i++) {
+                ObjectNode node = factors.addObject();
+                node.put("factor", FACTORS[i]);
+                node.put("S1", result[q][0][i]);
+                node.put("S1_low", result[q][1][i]);
+                node.put("S1_high", result[q][2][i]);
+                node.put("ST", result[q][0][K + i]);
+                node.put("ST_low", result[q][1][K + i]);
+                node.put("ST_high", result[q][2][K + i]);
+            }
+        }
+        File output = Simulation.newResultFile("sobol");
+        Simulation.writeResult(mapper, output, root, false);
+        System.out.println("Exported to: " + output.getPath());
+    }
+
+    private static int[] range(String spec, String what) {
+        String[] parts = spec.split(":");
+        if (parts.length != 2) throw new IllegalArgumentException(what + " must be MIN:MAX, not " + spec);
+        return new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+    }
+
+    // ---------- CLI Entrance ----------
+    public static void main(String[] args) throws Exception {
+        int turns = 50;
+        int version = 1;
+        String topologySpec = null;
+        String rulesSpec = null;
+        String limitsSpec = "5:40";
+        String wildsSpec = null;
+        String fillSpec = "A";
+        int samples = 1024;
+        int replicates = 32;
+        int resamples = 500;
+        double alpha = 0.05;
+        long seed = 5L;
+        int batch = 64;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (String a : args) {
+            if (a.startsWith("--turns=")) {
+                turns = Integer.parseInt(a.substring(8));
+            } else if (a.startsWith("--stage=")) {
+                version = Integer.parseInt(a.substring(8));
+            } else if (a.startsWith("--topology=")) {
+                topologySpec = a.substring(11);
+            } else if (a.startsWith("--rules=")) {
+                rulesSpec = a.substring(8);
+            } else if (a.startsWith("--limits=")) {
+                limitsSpec = a.substring(9);
+            } else if (a.startsWith("--wilds=")) {
+                wildsSpec = a.substring(8);
+            } else if (a.startsWith("--fill=")) {
+                fillSpec = a.substring(7);
+            } else if (a.startsWith("--samples=")) {
+                samples = Integer.parseInt(a.substring(10));
+            } else if (a.startsWith("--replicates=")) {
+                replicates = Integer.parseInt(a.substring(13));
+            } else if (a.startsWith("--bootstrap=")) {
+                resamples = Integer.parseInt(a.substring(12));
+            } else if (a.startsWith("--alpha=")) {
+                alpha = Double.parseDouble(a.substring(8));
+            } else if (a.startsWith("--seed=")) {
+                seed = Long.parseLong(a.substring(7));
+            } else if (a.startsWith("--batch=")) {
+                batch = Integer.parseInt(a.substring(8));
+            } else if (a.startsWith("--threads=")) {
+                threads = Integer.parseInt(a.substring(10));
+            }
+        }
+        BoardTopology topology = BoardTopology.parse(topologySpec);
+        int[] limits = range(limitsSpec, "limits");
+        int[] wilds = wildsSpec == null ? new int[]{1, topology.stacks - 1} : range(wildsSpec, "wilds");
+        State fill = SweepPoint.parsePattern(fillSpec)[0];
+
+        SensitivityAnalysis analysis = new SensitivityAnalysis(turns, version, topology, RuleSet.parse(rulesSpec),
+                limits[0], limits[1], wilds[0], wilds[1], fill, samples, replicates, seed);
+        try (BatchEngine engine = new BatchEngine(threads)) {
+            analysis.evaluate(engine, batch);
+        }
+        double[][][] result = analysis.analyze(resamples, alpha);
+        analysis.printResults(result, alpha);
+        analysis.exportResults(result, resamples, alpha);
+        PhaseTimer.dumpIfEnabled();
+    }
+}
@@ -1,15 +1,20 @@
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.stream.Collectors;
 
 public class Simulation {
-    final List<MyStack> myStacks = new ArrayList<>(11);
+    final List<MyStack> myStacks;
+    final BoardTopology topology;
+    final RuleSet rules;
     final Bag bag;
     final Random rng;
     final int turns;
@@ -23,11 +28,28 @@ public class Simulation {
         return currentRound;
     }
 
-    // Thw circles: 1(inner), 2-7(middle), 8-11(outer)
-    static final List<Integer> ORDER = List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11);
+    // Disruption deck, also found when started from a subdirectory such as visualization/.
+    static final String DISRUPTION_DECK = new File("game-data/disruption.json").exists()
+            ? "game-data/disruption.json" : "../game-data/disruption.json";
 
-    // Tokens in positions 1, 8–11 do not return to the Pool, while the remaining tokens in positions 2–7 return to the Pool.
-    static final Set<Integer> PERSIST_POSITIONS = Set.of(1, 8, 9, 10, 11);
+    // The deck is shuffled from its own stream derived from the seed, so Stage 2 never consumes the bag's
+    // draws: runs with the same seed see the same bag draws whatever the stage or the card effects.
+    private static final long DECK_SALT = 0x9E3779B97F4A7C15L;
+
+    private static Random deckRandom(long seed) {
+        return new Random(seed ^ DECK_SALT);
+    }
+
+    // Resolution order of the board and persisting positions of the board or the rules (persists is indexed by position).
+    // On the classic board the tokens in positions 1, 8–11 do not return to the Pool, while those in 2–7 do.
+    private final int[] orderPositions;
+    private final boolean[] persists;
+    // Compiled rule tables (see RuleSet)
+    private final int[] generate;
+    private final boolean strictCap;
+
+    // Token ordinals drawn this turn, reused every turn.
+    private final int[] drawn;
 
     Simulation(int turns, long seed,
                Map<Integer, State> initialStates,
@@ -39,43 +61,7 @@ public class Simulation {
                Map<Integer, State> initialStates,
                Map<FeedbackToken, Integer> poolLimitOverride,
                int version) {
-        if (turns < 1 || turns > 100) throw new IllegalArgumentException("turns must be 1..100");
-        this.turns = turns;
-        this.seed  = seed;
-        this.rng = new Random(seed);
-        this.version = version;
-        this.bag = new Bag(rng, 20); // Default is 20.
-        
-        // Initialize Stage 2 components
-        if (version == 2) {
-            this.disruptionManager = new DisruptionCardManager();
-            this.parameters = new Parameters();
-            
-            // Load disruption cards
-            if (!disruptionManager.loadCardsFromFile("game-data/disruption.json")) {
-                System.out.println("Warning: Failed to load disruption cards, using Stage 1 mode");
-                this.version = 1;
-            } else {
-                System.out.println("Stage 2 mode enabled with disruption cards");
-            }
-        }
-
-        // Set the bag limit to 20.
-        if (poolLimitOverride != null) {
-            for (var e : poolLimitOverride.entrySet()) bag.setLimit(e.getKey(), e.getValue());
-        }
-
-        // Create 11 Stacks.
-        // 1: inner, 2-7: middle, 8-11: outer
-        for (int id = 1; id <= 11; id++) {
-            StackRing ring = (id == 1) ? StackRing.INNER :
-                    (id >= 2 && id <= 7) ? StackRing.MIDDLE : StackRing.OUTER;
-            State init = initialStates.getOrDefault(id, State.WILDS); // Default to WILDS, modify as needed
-            myStacks.add(new MyStack(id, ring, init));
-        }
-        System.out.println("Init states => " +
-                myStacks.stream().map(s -> s.id + ":" + s.state.name())
-                        .collect(Collectors.joining("  ")));
+        this(turns, seed, initialStates, poolLimitOverride, null, version, true, BoardTopology.CLASSIC, RuleSet.CLASSIC);
     }
 
     Simulation(int turns, long seed,
@@ -90,24 +76,73 @@ public class Simulation {
                Map<FeedbackToken, Integer> poolLimitOverride,
                int[] poolLimitsArray,
                int version) {
+        this(turns, seed, initialStates, poolLimitOverride, poolLimitsArray, version, true);
+    }
+
+    /**
+     * @param verbose false for batch runs: skips the init/Stage 2 console output and the per-card messages.
+     */
+    Simulation(int turns, long seed,
+               Map<Integer, State> initialStates,
+               Map<FeedbackToken, Integer> poolLimitOverride,
+               int[] poolLimitsArray,
+               int version,
+               boolean verbose) {
+        this(turns, seed, initialStates, poolLimitOverride, poolLimitsArray, version, verbose, BoardTopology.CLASSIC);
+    }
+
+    /**
+     * @param topology board shape; stacks missing from initialStates start as WILDS.
+     */
+    Simulation(int turns, long seed,
+               Map<Integer, State> initialStates,
+               Map<FeedbackToken, Integer> poolLimitOverride,
+               int[] poolLimitsArray,
+               int version,
+               boolean verbose,
+               BoardTopology topology) {
+        this(turns, seed, initialStates, poolLimitOverride, poolLimitsArray, version, verbose, topology, RuleSet.CLASSIC);
+    }
+
+    /**
+     * @param rules token generation, resolution, recycling and cap rules; the classic ones by default.
+     */
+    Simulation(int turns, long seed,
+               Map<Integer, State> initialStates,
+               Map<FeedbackToken, Integer> poolLimitOverride,
+               int[] poolLimitsArray,
+               int version,
+               boolean verbose,
+               BoardTopology topology,
+               RuleSet rules) {
         if (turns < 1 || turns > 100) throw new IllegalArgumentException("turns must be 1..100");
         this.turns = turns;
         this.seed  = seed;
         this.rng = new Random(seed);
         this.version = version;
         this.bag = new Bag(rng, poolLimitsArray, 20); // Default is 20.
+        this.topology = topology;
+        this.rules = rules;
+        this.orderPositions = topology.order;
+        this.persists = rules.persists(topology);
+        this.generate = rules.generate;
+        this.strictCap = rules.cap.equals("strict");
+        this.drawn = new int[orderPositions.length];
+        this.myStacks = new ArrayList<>(topology.stacks);
         
         // Initialize Stage 2 components
         if (version == 2) {
-            this.disruptionManager = new DisruptionCardManager();
+            this.disruptionManager = new DisruptionCardManager(deckRandom(seed));
+            this.disruptionManager.setVerbose(verbose);
             this.parameters = new Parameters();
             
             // Load disruption cards
-            if (!disruptionManager.loadCardsFromFile("game-data/disruption.json")) {
+            if (!disruptionManager.loadCardsFromFile(DISRUPTION_DECK)) {
                 System.out.println("Warning: Failed to load disruption cards, using Stage 1 mode");
                 this.version = 1;
             } else {
-                System.out.println("Stage 2 mode enabled with disruption cards");
+                disruptionManager.shuffle();
+                if (verbose) System.out.println("Stage 2 mode enabled with disruption cards");
             }
         }
 
@@ -115,111 +150,171 @@ public class Simulation {
         if (poolLimitOverride != null) {
             for (var e : poolLimitOverride.entrySet()) bag.setLimit(e.getKey(), e.getValue());
         }
+        if (rules.cap.equals("none")) {
+            for (FeedbackToken t : Bag.TOKENS) bag.setLimit(t, Integer.MAX_VALUE);
+        }
 
-        // Create 11 Stacks.
-        // 1: inner, 2-7: middle, 8-11: outer
-        for (int id = 1; id <= 11; id++) {
-            StackRing ring = (id == 1) ? StackRing.INNER :
-                    (id >= 2 && id <= 7) ? StackRing.MIDDLE : StackRing.OUTER;
+        createStacks(initialStates);
+        if (verbose) {
+            System.out.println("Init states => " +
+                    myStacks.stream().map(s -> s.id + ":" + s.state.name())
+                            .collect(Collectors.joining("  ")));
+        }
+    }
+
+    // One stack per position of the topology; on the classic board 1: inner, 2-7: middle, 8-11: outer
+    private void createStacks(Map<Integer, State> initialStates) {
+        for (int id = 1; id <= topology.stacks; id++) {
             State init = initialStates.getOrDefault(id, State.WILDS); // 默认给 WILDS，按需改
-            myStacks.add(new MyStack(id, ring, init));
+            myStacks.add(new MyStack(id, topology.stackRing(id), init));
         }
-        System.out.println("Init states => " +
-                myStacks.stream().map(s -> s.id + ":" + s.state.name())
-                        .collect(Collectors.joining("  ")));
     }
 
     /**
-     * Each turn: 1) generate 11 tokens and put them into the bag; 2) Draw 11 cards and resolve them in sequence. 3) Recycle or retain according to the rules.
+     * Each turn: 1) generate one token per stack and put them into the bag; 2) Draw one token per position of the
+     * resolution order and resolve them in sequence. 3) Recycle or retain according to the rules.
+     * Prints every turn and exports the run to assets/ (see {@link JsonExportListener}).
      */
     void run() {
-        // This is to store the result of each turn.
-        List<int[]> timelineCodes = new ArrayList<>();
-        List<ObjectNode> roundSnapshots = new ArrayList<>();
-        ObjectMapper mapper = new ObjectMapper();
-
-        int[] round0 = new int[myStacks.size()];
-        for (int i = 0; i < myStacks.size(); i++) {
-            round0[i] = getCodeFromState(myStacks.get(i).state);
+        JsonExportListener export = new JsonExportListener(true);
+        RoundEvent event = new RoundEvent(myStacks.size());
+        export.onRound(event.capture(this));
+        while (currentRound < turns) {
+            playTurn();
+            export.onRound(event.capture(this));
         }
-        timelineCodes.add(round0);
+        export.onFinish(this);
+    }
 
-        for (int t = 1; t <= turns; t++) {
-            // 1) Each MyStack generates tokens into the pool (subject to the cap).
-            roundSnapshots.add(createRoundSnapshot(mapper, myStacks, bag, currentRound, seed, turns));
-            this.currentRound = t;
+    /**
+     * Play one turn: generate tokens into the bag, draw and resolve one token per position in the topology's order, then recycle.
+     */
+    void playTurn() {
+        this.currentRound++;
+        SimulationEvents.TurnEvent turnEvent = new SimulationEvents.TurnEvent();
+        turnEvent.begin();
 
-            for (MyStack s : myStacks) {
-                bag.add(toTokenFromState(s.state));
+        // 1) Each MyStack generates its token into the pool (subject to the cap); under the classic rules the state's own.
+        long t0 = PhaseTimer.ENABLED ? System.nanoTime() : 0;
+        for (int i = 0; i < myStacks.size(); i++) {
+            int token = generate[myStacks.get(i).state.ordinal()];
+            if (token != RuleSet.NONE) bag.add(token);
+        }
+        if (PhaseTimer.ENABLED) PhaseTimer.record(PhaseTimer.Phase.GENERATE, t0);
+
+
+        // 2) Draw a token for every position and settle according to the resolution order.
+        for (int i = 0; i < orderPositions.length; i++) {
+            int pos = orderPositions[i];
+            SimulationEvents.DrawEvent drawEvent = new SimulationEvents.DrawEvent();
+            drawEvent.begin();
+            if (PhaseTimer.ENABLED) t0 = System.nanoTime();
+            int token = bag.drawIndex();
+            boolean fallback = token < 0;
+            if (fallback) token = rng.nextInt(Bag.TOKENS.length); // When the pool is empty, default to random selection (in extreme cases).
+            if (PhaseTimer.ENABLED) PhaseTimer.record(PhaseTimer.Phase.DRAW, t0);
+            drawn[i] = token;
+            FeedbackToken tok = Bag.TOKENS[token];
+            // Immediately settle to the corresponding MyStack.
+            if (PhaseTimer.ENABLED) t0 = System.nanoTime();
+            MyStack target = myStacks.get(pos - 1); // ids start at 1, while lists start at 0.
+            rules.resolve(token, target, version == 2 ? disruptionManager : null, topology.stacks);
+            if (PhaseTimer.ENABLED) PhaseTimer.record(PhaseTimer.Phase.RESOLVE, t0);
+            drawEvent.end();
+            if (drawEvent.shouldCommit()) {
+                drawEvent.round = currentRound;
+                drawEvent.position = pos;
+                drawEvent.token = tok.name();
+                drawEvent.fallback = fallback;
+                drawEvent.commit();
             }
+        }
 
 
-            // 2) Draw 11 cards and settle according to ORDER.
-            List<FeedbackToken> drawn = new ArrayList<>();
-            for (int pos : ORDER) {
-                Optional<FeedbackToken> opt = bag.drawOne();
-                FeedbackToken tok = opt.orElseGet(() -> randomAnyToken()); // When the pool is empty, default to random selection (in extreme cases).
-                drawn.add(tok);
-                // Immediately settle to the corresponding MyStack.
-                MyStack target = myStacks.get(pos - 1); // ids start at 1, while lists start at 0.
-                if (version == 2 && disruptionManager != null) {
-                    tok.resolveOn(target, disruptionManager);
+        // 3) recycle：return the non-persisting positions to the pool (2-7 on the classic board); 1, 8–11 remain on the board
+        if (PhaseTimer.ENABLED) t0 = System.nanoTime();
+        for (int i = 0; i < orderPositions.length; i++) {
+            if (!persists[orderPositions[i]]) {
+                if (strictCap) {
+                    bag.add(drawn[i]);
                 } else {
-                    tok.resolveOn(target);
+                    bag.putBack(drawn[i]);
                 }
             }
+        }
+        if (PhaseTimer.ENABLED) PhaseTimer.record(PhaseTimer.Phase.RECYCLE, t0);
+
+        turnEvent.end();
+        if (turnEvent.shouldCommit()) {
+            turnEvent.round = currentRound;
+            turnEvent.board = boardPattern();
+            turnEvent.bagTotal = bag.totalCount();
+            turnEvent.commit();
+        }
+    }
 
+    /** Copy the tokens drawn in the last turn into {@code out}, indexed by position - 1 (-1 for positions not in the order). */
+    void copyDrawn(int[] out) {
+        if (orderPositions.length < out.length) Arrays.fill(out, -1);
+        for (int i = 0; i < orderPositions.length; i++) out[orderPositions[i] - 1] = drawn[i];
+    }
 
-            // 3) recycle：put 2-7 into the pool and 1, 8–11 remain on the board (do not return to pool)
-            for (int i = 0; i < ORDER.size(); i++) {
-                int pos = ORDER.get(i);
-                FeedbackToken tok = drawn.get(i);
-                if (!PERSIST_POSITIONS.contains(pos)) {
-                    bag.putBack(tok);
-                }
-            }
-
-
-            // Record the result of this turn.
-            int[] snapshot = new int[myStacks.size()];
-            for (int i = 0; i < myStacks.size(); i++) {
-                snapshot[i] = getCodeFromState(myStacks.get(i).state);
-            }
-            timelineCodes.add(snapshot);
-
-            // print the summary of this turn.
-            System.out.println("Turn " + t + " done.");
-            printStacks();
-        }
-        roundSnapshots.add(createRoundSnapshot(mapper, myStacks, bag, currentRound, seed, turns));
-        exportResultToJson(myStacks, bag, currentRound, turns, timelineCodes, roundSnapshots, seed);
+    /**
+     * Clone the current mid-run state (board, bag, disruption deck, round) and continue it with a fresh random stream.
+     * The cards left in the deck are reshuffled from newSeed alone, so a copy of a fresh template with seed s draws
+     * the same cards as a new simulation with seed s.
+     */
+    Simulation copy(long newSeed) {
+        return new Simulation(this, newSeed);
     }
 
-    private void printStacks() {
-        String s = myStacks.stream()
-                .sorted(Comparator.comparingInt(st -> st.id))
-                .map(st -> st.id + ":" + st.state.name())
-                .collect(Collectors.joining("  "));
-        System.out.println("Stacks => " + s);
+    private Simulation(Simulation other, long newSeed) {
+        this.turns = other.turns;
+        this.seed = newSeed;
+        this.topology = other.topology;
+        this.rules = other.rules;
+        this.orderPositions = other.orderPositions;
+        this.persists = other.persists;
+        this.generate = other.generate;
+        this.strictCap = other.strictCap;
+        this.drawn = new int[orderPositions.length];
+        this.myStacks = new ArrayList<>(other.myStacks.size());
+        this.rng = new Random(newSeed);
+        this.version = other.version;
+        this.currentRound = other.currentRound;
+        this.bag = new Bag(other.bag, rng);
+        if (other.disruptionManager != null) {
+            this.disruptionManager = new DisruptionCardManager(other.disruptionManager, deckRandom(newSeed));
+        }
+        if (other.parameters != null) {
+            Parameters p = other.parameters;
+            this.parameters = new Parameters(p.getCohesion(), p.getCybernationLevel(), p.getHumanRelation(),
+                    p.getEnvironment(), p.getTechnology());
+        }
+        for (MyStack s : other.myStacks) {
+            myStacks.add(new MyStack(s.id, s.ring, s.state));
+        }
     }
 
-    private FeedbackToken toTokenFromState(State st) {
-        return switch (st) {
-            case WILDS -> FeedbackToken.WILDS;
-            case WASTES -> FeedbackToken.WASTES;
-            case DEVA -> FeedbackToken.DEVA;
-            case DEVB -> FeedbackToken.DEVB;
-        };
+    /** Number of stacks currently in the given state. */
+    int countState(State st) {
+        int n = 0;
+        for (int i = 0; i < myStacks.size(); i++) {
+            if (myStacks.get(i).state == st) n++;
+        }
+        return n;
     }
 
-    private FeedbackToken randomAnyToken() {
-        FeedbackToken[] all = FeedbackToken.values();
-        return all[rng.nextInt(all.length)];
+    /** Current board as a SweepPoint pattern, one letter per stack. */
+    String boardPattern() {
+        State[] states = new State[myStacks.size()];
+        for (int i = 0; i < states.length; i++) states[i] = myStacks.get(i).state;
+        return SweepPoint.toPattern(states);
     }
 
 
     // Transform the state into numbers.
-    private static int getCodeFromState(State state) {
+    static int getCodeFromState(State state) {
         return switch (state) {
             case WILDS  -> 1;
             case WASTES -> 2;
@@ -238,7 +333,73 @@ public class Simulation {
             long seed
             ) {
         ObjectMapper mapper = new ObjectMapper();
+        ObjectNode root = createResult(mapper, myStacks, bag, currentRound, maxRounds, timelineCodes, roundSnapshots, seed);
+        try {
+            writeResult(mapper, newResultFile(), root, false);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    static ObjectNode createResult(
+            ObjectMapper mapper,
+            List<MyStack> myStacks,
+            Bag bag,
+            int currentRound,
+            int maxRounds,
+            List<int[]> timelineCodes,
+            List<ObjectNode> roundSnapshots,
+            long seed
+            ) {
+        ObjectNode root = createResultRoot(mapper, myStacks, bag, currentRound, maxRounds, seed);
+
+        // timeline：arrays for states in each turn.
+        var timeline = mapper.createArrayNode();
+        for (int r = 0; r < timelineCodes.size(); r++) {
+            ObjectNode round = mapper.createObjectNode();
+            round.put("round", r);
+            var arr = mapper.createArrayNode();
+            for (int code : timelineCodes.get(r)) arr.add(code);
+            round.set("states", arr);
+            timeline.add(round);
+        }
+        root.set("timeline", timeline);
+
+        ArrayNode roundOutputs = mapper.createArrayNode();
+        for (ObjectNode node : roundSnapshots) {
+            roundOutputs.add(node);
+        }
+        root.set("round_outputs", roundOutputs);
+        return root;
+    }
+
+    /**
+     * Same file with the rounds stored as a {@link DeltaTimeline} ("timeline_delta") instead of "timeline"
+     * and "round_outputs"; DeltaTimeline --expand restores the full format.
+     */
+    static ObjectNode createResult(
+            ObjectMapper mapper,
+            List<MyStack> myStacks,
+            Bag bag,
+            int currentRound,
+            int maxRounds,
+            DeltaTimeline timeline,
+            long seed
+            ) {
+        ObjectNode root = createResultRoot(mapper, myStacks, bag, currentRound, maxRounds, seed);
+        root.set("timeline_delta", timeline.toJson(mapper));
+        return root;
+    }
 
+    // Header of a result file: legend, limits, final board, game state and bag.
+    private static ObjectNode createResultRoot(
+            ObjectMapper mapper,
+            List<MyStack> myStacks,
+            Bag bag,
+            int currentRound,
+            int maxRounds,
+            long seed
+            ) {
         // Create the root.
         ObjectNode root = mapper.createObjectNode();
         root.put("version", 1);
@@ -252,10 +413,10 @@ public class Simulation {
         root.set("legend", legend);
 
         ObjectNode maximum_tokens = mapper.createObjectNode();
-        maximum_tokens.put("WILDS", bag.limitPerType.get(FeedbackToken.WILDS));
-        maximum_tokens.put("WASTES", bag.limitPerType.get(FeedbackToken.WASTES));
-        maximum_tokens.put("DEVA", bag.limitPerType.get(FeedbackToken.DEVA));
-        maximum_tokens.put("DEVB", bag.limitPerType.get(FeedbackToken.DEVB));
+        maximum_tokens.put("WILDS", bag.limit(FeedbackToken.WILDS));
+        maximum_tokens.put("WASTES", bag.limit(FeedbackToken.WASTES));
+        maximum_tokens.put("DEVA", bag.limit(FeedbackToken.DEVA));
+        maximum_tokens.put("DEVB", bag.limit(FeedbackToken.DEVB));
         root.set("maximum_tokens", maximum_tokens);
 
         // create board.hexes
@@ -285,25 +446,16 @@ public class Simulation {
             tokens.put(token.name(), bag.count(token));
         }
         root.set("tokens", tokens);
+        return root;
+    }
 
-        // timeline：arrays for states in each turn.
-        var timeline = mapper.createArrayNode();
-        for (int r = 0; r < timelineCodes.size(); r++) {
-            ObjectNode round = mapper.createObjectNode();
-            round.put("round", r);
-            var arr = mapper.createArrayNode();
-            for (int code : timelineCodes.get(r)) arr.add(code);
-            round.set("states", arr);
-            timeline.add(round);
-        }
-        root.set("timeline", timeline);
-
-        ArrayNode roundOutputs = mapper.createArrayNode();
-        for (ObjectNode node : roundSnapshots) {
-            roundOutputs.add(node);
-        }
-        root.set("round_outputs", roundOutputs);
+    /** A new timestamped file under assets/ (created if missing). */
+    static File newResultFile() {
+        return newResultFile("simulation");
+    }
 
+    /** Like {@link #newResultFile()}, with the file name starting prefix + "_result_". */
+    static File newResultFile(String prefix) {
         // create assets files.
         File dir = new File("assets");
         if (!dir.exists()) {
@@ -311,18 +463,32 @@ public class Simulation {
         }
 
         // generate files with timestamps.
-        String file_name= String.format("simulation_result_%s_%d.json",
+        String file_name= String.format("%s_result_%s_%d.json", prefix,
                 new SimpleDateFormat("yyyyMMdd_HHmmss_SSS").format(new Date()),
                 System.nanoTime()
         );
-        File output = new File(dir, file_name);
+        return new File(dir, file_name);
+    }
 
+    /**
+     * Serialize a result file; with sync the data is forced to disk before returning.
+     */
+    static void writeResult(ObjectMapper mapper, File output, ObjectNode root, boolean sync) throws IOException {
+        SimulationEvents.ExportEvent exportEvent = new SimulationEvents.ExportEvent();
+        exportEvent.begin();
         // write in files.
-        try {
-            mapper.writerWithDefaultPrettyPrinter().writeValue(output, root);
+        try (FileOutputStream out = new FileOutputStream(output)) {
+            BufferedOutputStream buffered = new BufferedOutputStream(out);
+            mapper.writerWithDefaultPrettyPrinter().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValue(buffered, root);
+            buffered.flush();
+            if (sync) out.getFD().sync();
             //System.out.println("Exported to: " + output.getAbsolutePath());
-        } catch (IOException e) {
-            e.printStackTrace();
+        }
+        exportEvent.end();
+        if (exportEvent.shouldCommit()) {
+            exportEvent.file = output.getPath();
+            exportEvent.bytes = output.length();
+            exportEvent.commit();
         }
         System.out.println("✅");
     }
@@ -336,10 +502,14 @@ public class Simulation {
             case DEVB -> "blue";
         };
     }
-    private ObjectNode createRoundSnapshot(
+    /**
+     * One entry of round_outputs, built from primitive copies of the board (State ordinals, index 0 = stack 1)
+     * and the bag counts (FeedbackToken ordinals).
+     */
+    static ObjectNode createRoundSnapshot(
             ObjectMapper mapper,
-            List<MyStack> myStacks,
-            Bag bag,
+            int[] states,
+            int[] bagCounts,
             int currentRound,
             long seed,
             int max_round
@@ -351,20 +521,23 @@ public class Simulation {
         // 添加 hex 状态信息
         ObjectNode board = mapper.createObjectNode();
         ArrayNode hexesArray = mapper.createArrayNode();
-        for (MyStack s : myStacks) {
+        State[] all = State.values();
+        for (int i = 0; i < states.length; i++) {
             ObjectNode hex = mapper.createObjectNode();
-            hex.put("id", s.id);
-            hex.put("type", s.state.name());
-            hex.put("color", getColorFromState(s.state));
+            hex.put("id", i + 1);
+            hex.put("type", all[states[i]].name());
+            hex.put("color", getColorFromState(all[states[i]]));
             hexesArray.add(hex);
         }
         board.set("hexes", hexesArray);
         snapshot.set("board", board);
 
+        int bagTotal = 0;
+        for (int c : bagCounts) bagTotal += c;
         ObjectNode game = mapper.createObjectNode();
         game.put("current_round", currentRound);
         game.put("max_round", max_round);
-        game.put("bag_total", bag.totalCount());
+        game.put("bag_total", bagTotal);
         game.put("seed", seed);
 
         snapshot.set("game_state", game);
@@ -372,7 +545,7 @@ public class Simulation {
         // 添加当前 bag 状态
         ObjectNode tokens = mapper.createObjectNode();
         for (FeedbackToken token : FeedbackToken.values()) {
-            tokens.put(token.name(), bag.count(token));
+            tokens.put(token.name(), bagCounts[token.ordinal()]);
         }
         snapshot.set("tokens", tokens);
 
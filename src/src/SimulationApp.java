@@ -1,13 +1,27 @@
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.SynchronousQueue;
 import java.util.stream.Collectors;
 
 public class SimulationApp {
     // ---------- CLI Entrance ----------
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException, InterruptedException {
         int turns  = -1;
         long seed = 5L;
         int version = 1; // Default to Stage 1
+        boolean deltaTimeline = Arrays.asList(args).contains("--delta-timeline"); // compact timeline_delta output
+        // Result files are written by background threads: --export-threads=N (0 = on the simulation thread)
+        // and --export-queue=N (results waiting before the simulation blocks).
+        int exportThreads = 2;
+        int exportQueue = 64;
+        for (String a : args) {
+            if (a.startsWith("--export-threads=")) {
+                exportThreads = Integer.parseInt(a.substring(17));
+            } else if (a.startsWith("--export-queue=")) {
+                exportQueue = Integer.parseInt(a.substring(15));
+            }
+        }
+        ExportWriter writer = exportThreads > 0 ? new ExportWriter(exportThreads, exportQueue) : null;
 
         // Initialize the state of 11 stacks.
         Map<Integer, State> init = new HashMap<>();
@@ -97,8 +111,11 @@ public class SimulationApp {
                     }
                 }
             }
-            Simulation sim = new Simulation(turns, seed, init, limitOverride, version);
-            sim.run();
+            SimulationEngine.builder()
+                    .turns(turns).stage(version).initialStates(init).limits(limitOverride)
+                    .listener(new JsonExportListener(true, deltaTimeline, writer))
+                    .build()
+                    .run(seed);
         } else if(choice.equals("y")){
             System.out.println("Please type your turn number in (1 - 100).");
             //System.out.println("Stack " + i + ": Please type your initial states, choose one: 1 - WILDS, 2 - WASTES, 3 - DEVA, 4 - DEVB.");
@@ -192,8 +209,11 @@ public class SimulationApp {
                     }
                 }
             }
-            Simulation sim = new Simulation(turns, seed, init, limitOverride, limits, version);
-            sim.run();
+            SimulationEngine.builder()
+                    .turns(turns).stage(version).initialStates(init).limits(limits).limits(limitOverride)
+                    .listener(new JsonExportListener(true, deltaTimeline, writer))
+                    .build()
+                    .run(seed);
         }else {
 //            System.out.println("Please type your turn number in (1 - 100).");
 //            //System.out.println("Stack " + i + ": Please type your initial states, choose one: 1 - WILDS, 2 - WASTES, 3 - DEVA, 4 - DEVB.");
@@ -218,6 +238,7 @@ public class SimulationApp {
 //                Random rng = new Random(); // 或者传入 Simulation 的 seed
 //                init = generateWildDevaState(num, rng);
 //            }
+            JsonExportListener export = new JsonExportListener(true, deltaTimeline, writer);
             for (int i=0; i<=11;i++){
               for(int k=0; k<30; k++){
                     init = generateWildDevaState(i, rng);
@@ -242,11 +263,18 @@ public class SimulationApp {
                             }
                         }
                     }
-                    Simulation sim = new Simulation(turns, seed, init, limitOverride, version);
-                    sim.run();
+                    SimulationEngine.builder()
+                            .turns(turns).stage(version).initialStates(init).limits(limitOverride)
+                            .listener(export)
+                            .build()
+                            .run(seed);
                }
             }
         }
+        if (writer != null) {
+            writer.close(); // every result is on disk before we exit
+        }
+        PhaseTimer.dumpIfEnabled();
     }
 
     public static Map<Integer, State> generateWildDevaState(int wildCount, Random rng) {
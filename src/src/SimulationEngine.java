@@ -0,0 +1,155 @@
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Embeddable entry point to the game rules, shared by the CLI and the visualizer.
+ *
+ * A configured engine keeps a round-0 template (board, bag limits, loaded disruption deck) and can
+ * be run any number of times; each run clones the template with {@link Simulation#copy(long)},
+ * plays it with {@link Simulation#playTurn()} and reports round 0 and every following round to
+ * the registered listeners as a primitive {@link RoundEvent}. Listeners subscribe to the data they
+ * need (JSON export, statistics, charts); with no listener a run is just the turn loop.
+ *
+ * <pre>
+ * SimulationEngine engine = SimulationEngine.builder()
+ *         .turns(50).stage(2).limits(new int[]{20, 20, 20, 20}).initialStates(init)
+ *         .listener(event -> chart.add(event.bagTotal()))
+ *         .build();
+ * engine.run(5L);
+ * </pre>
+ */
+public class SimulationEngine {
+
+    /** Receives the board after every round of a run. */
+    @FunctionalInterface
+    interface RoundListener {
+        /** Called for round 0 and after each turn; the event is reused, copy what you keep. */
+        void onRound(RoundEvent event);
+
+        /** Called once after the last round with the final simulation (read-only). */
+        default void onFinish(Simulation sim) {}
+    }
+
+    private final Simulation template;
+    private final List<RoundListener> listeners;
+
+    private SimulationEngine(Simulation template, List<RoundListener> listeners) {
+        this.template = template;
+        this.listeners = listeners;
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    int turns() {
+        return template.turns;
+    }
+
+    /** A fresh simulation at round 0, for callers that drive playTurn() themselves. */
+    Simulation start(long seed) {
+        return template.copy(seed);
+    }
+
+    /** Play a full run with the given seed, notifying the listeners; returns the final state. */
+    Simulation run(long seed) {
+        Simulation sim = template.copy(seed);
+        if (listeners.isEmpty()) {
+            while (sim.getCurrentRound() < sim.turns) sim.playTurn();
+            return sim;
+        }
+        RoundEvent event = new RoundEvent(sim.myStacks.size());
+        notifyRound(event.capture(sim));
+        while (sim.getCurrentRound() < sim.turns) {
+            sim.playTurn();
+            notifyRound(event.capture(sim));
+        }
+        for (RoundListener l : listeners) l.onFinish(sim);
+        return sim;
+    }
+
+    private void notifyRound(RoundEvent event) {
+        for (int i = 0; i < listeners.size(); i++) listeners.get(i).onRound(event);
+    }
+
+    static class Builder {
+        private int turns = 50;
+        private int version = 1;
+        private int[] limits = {-1}; // -1: default limit for every token type
+        private final Map<FeedbackToken, Integer> limitOverride = new EnumMap<>(FeedbackToken.class);
+        private final Map<Integer, State> initialStates = new HashMap<>();
+        private boolean verbose = true;
+        private BoardTopology topology = BoardTopology.CLASSIC;
+        private RuleSet rules = RuleSet.CLASSIC;
+        private final List<RoundListener> listeners = new ArrayList<>();
+
+        Builder turns(int turns) {
+            this.turns = turns;
+            return this;
+        }
+
+        /** 1 = Stage 1, 2 = Stage 2 (disruption cards). */
+        Builder stage(int version) {
+            this.version = version;
+            return this;
+        }
+
+        /** Per-type bag limits in WILDS, WASTES, DEVA, DEVB order. */
+        Builder limits(int[] limits) {
+            this.limits = limits.clone();
+            return this;
+        }
+
+        Builder limit(FeedbackToken token, int limit) {
+            limitOverride.put(token, limit);
+            return this;
+        }
+
+        Builder limits(Map<FeedbackToken, Integer> overrides) {
+            limitOverride.putAll(overrides);
+            return this;
+        }
+
+        /** Board shape; the classic 11-stack board by default. */
+        Builder topology(BoardTopology topology) {
+            this.topology = topology;
+            return this;
+        }
+
+        /** Rule variant (see RuleSet); the classic rules by default. */
+        Builder rules(RuleSet rules) {
+            this.rules = rules;
+            return this;
+        }
+
+        /** Stack id (1..stacks) to initial state; missing stacks start as WILDS. */
+        Builder initialStates(Map<Integer, State> init) {
+            initialStates.putAll(init);
+            return this;
+        }
+
+        Builder initialState(int stackId, State state) {
+            initialStates.put(stackId, state);
+            return this;
+        }
+
+        /** false suppresses the init/Stage 2 console output and the per-card messages. */
+        Builder verbose(boolean verbose) {
+            this.verbose = verbose;
+            return this;
+        }
+
+        Builder listener(RoundListener listener) {
+            listeners.add(listener);
+            return this;
+        }
+
+        SimulationEngine build() {
+            Simulation template = new Simulation(turns, 0L, initialStates, limitOverride, limits, version, verbose, topology, rules);
+            return new SimulationEngine(template, new ArrayList<>(listeners));
+        }
+    }
+}
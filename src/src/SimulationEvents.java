@@ -0,0 +1,97 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder events for game-level activity, so a recording of a batch run lines GC,
+ * allocation and I/O up with turns, draws, disruption cards and exports.
+ *
+ * Record with e.g. -XX:StartFlightRecording=filename=sim.jfr,settings=profile and view with
+ * `jfr print --events simulation.Turn sim.jfr`. Callers check shouldCommit() before filling fields,
+ * so with no recording running an event costs one branch. Per-draw events are off by default;
+ * turn them on with -XX:StartFlightRecording:+simulation.Draw#enabled=true,filename=sim.jfr.
+ */
+final class SimulationEvents {
+    private SimulationEvents() {}
+
+    @Name("simulation.Turn")
+    @Label("Turn")
+    @Category("Simulation")
+    @Description("One turn: generation, one draw per stack and recycling")
+    @StackTrace(false)
+    @Threshold("0 ms")
+    static final class TurnEvent extends Event {
+        @Label("Round")
+        int round;
+
+        @Label("Board")
+        @Description("Stack states after the turn, one letter per stack (W WILDS, X WASTES, A DEVA, B DEVB)")
+        String board;
+
+        @Label("Bag Total")
+        int bagTotal;
+    }
+
+    @Name("simulation.Draw")
+    @Label("Draw")
+    @Category("Simulation")
+    @Description("A token drawn from the bag and resolved on a stack")
+    @StackTrace(false)
+    @Enabled(false)
+    @Threshold("0 ms")
+    static final class DrawEvent extends Event {
+        @Label("Round")
+        int round;
+
+        @Label("Position")
+        int position;
+
+        @Label("Token")
+        String token;
+
+        @Label("Bag Empty")
+        @Description("The bag was empty and a random token was used")
+        boolean fallback;
+    }
+
+    @Name("simulation.DisruptionCard")
+    @Label("Disruption Card")
+    @Category("Simulation")
+    @Description("A disruption card drawn by a DEVB token in Stage 2")
+    @StackTrace(false)
+    static final class DisruptionCardEvent extends Event {
+        @Label("Card")
+        String card;
+
+        @Label("Targets")
+        String targets;
+
+        @Label("Effects Applied")
+        @Description("Effects of the card, e.g. [DISRUPTION_TURN_WASTE=1]; empty when it has no tile change")
+        String effects;
+
+        @Label("Resolved Stack")
+        int stack;
+    }
+
+    @Name("simulation.Export")
+    @Label("Export")
+    @Category("Simulation")
+    @Description("A result file written to assets/")
+    @StackTrace(false)
+    @Threshold("0 ms")
+    static final class ExportEvent extends Event {
+        @Label("File")
+        String file;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+}
@@ -0,0 +1,272 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Long-lived simulation service on a local HTTP port, so notebooks and chart tooling avoid a JVM
+ * start per job. Every request runs on its own virtual thread; at most --max-jobs simulations run
+ * at once and further requests wait for a slot. Results stream back as NDJSON (one JSON per line).
+ *
+ *   POST /simulate  {"turns":50,"stage":1,"limits":[20,20,20,20],"init":"WAAAAAAAAAA","seed":5}
+ *                   ("init" defaults to every stack of the board WILDS, and so does "inits" of /sweep)
+ *                   -> {"job":id} then one line per round, then {"type":"done",...}
+ *   POST /sweep     {"turns":50,"stage":1,"limits":[[20,20,20,20]],"inits":["WAAAAAAAAAA"],"runs":10000,"seed":5}
+ *                   -> {"job":id} then progress lines and one result line per configuration
+ *   Both accept "topology": "hex:R" or {"rings":[...],"order":[...],"persist":[...]} for another board
+ *   (see BoardTopology); "init" may then be shorter than the board, the other stacks start as WILDS.
+ *   "rules": a rule variant spec or the path of one (see RuleSet) replaces the classic rules.
+ *   POST /cancel?job=id   stop a running job (closing the connection does the same)
+ *   GET  /profile   per-phase timings when started with -Dsimulation.profile=true
+ *   GET  /health
+ *
+ * Usage: --port=8765 --max-jobs=8
+ */
+public class SimulationService {
+    private static final int SWEEP_CHUNK = 1000; // runs between progress lines / cancellation checks
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Semaphore slots;
+    private final BatchEngine engine;
+    private final Map<Long, AtomicBoolean> jobs = new ConcurrentHashMap<>();
+    private final AtomicLong nextJob = new AtomicLong(1);
+
+    SimulationService(int maxJobs) {
+        this.slots = new Semaphore(maxJobs, true);
+        this.engine = new BatchEngine();
+    }
+
+    HttpServer start(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/simulate", ex -> handleJob(ex, this::simulate));
+        server.createContext("/sweep", ex -> handleJob(ex, this::sweep));
+        server.createContext("/cancel", this::handleCancel);
+        server.createContext("/profile", ex -> {
+            // Phase timings collected so far (requires -Dsimulation.profile=true).
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            PhaseTimer.dump(new PrintStream(buf, true, StandardCharsets.UTF_8));
+            byte[] bytes = buf.toByteArray();
+            ex.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            ex.sendResponseHeaders(200, bytes.length);
+            try (OutputStream os = ex.getResponseBody()) {
+                os.write(bytes);
+            }
+        });
+        server.createContext("/health", ex -> {
+            ObjectNode health = mapper.createObjectNode();
+            health.put("status", "ok");
+            health.put("running_jobs", jobs.size());
+            health.put("free_slots", slots.availablePermits());
+            respond(ex, 200, mapper.writeValueAsString(health));
+        });
+        server.start();
+        return server;
+    }
+
+    interface Job {
+        void run(JsonNode request, PrintWriter out, AtomicBoolean cancelled) throws Exception;
+    }
+
+    private void handleJob(HttpExchange ex, Job job) throws IOException {
+        if (!ex.getRequestMethod().equals("POST")) {
+            respond(ex, 405, "{\"error\":\"POST required\"}");
+            return;
+        }
+        JsonNode request;
+        try (InputStream body = ex.getRequestBody()) {
+            byte[] bytes = body.readAllBytes();
+            request = bytes.length == 0 ? mapper.createObjectNode() : mapper.readTree(bytes);
+        } catch (IOException e) {
+            respond(ex, 400, "{\"error\":\"invalid JSON\"}");
+            return;
+        }
+
+        long id = nextJob.getAndIncrement();
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        try {
+            if (!slots.tryAcquire(30, TimeUnit.SECONDS)) {
+                respond(ex, 503, "{\"error\":\"all simulation slots busy\"}");
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        jobs.put(id, cancelled);
+        ex.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+        ex.getResponseHeaders().set("X-Job-Id", String.valueOf(id));
+        ex.sendResponseHeaders(200, 0); // chunked
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(ex.getResponseBody(), StandardCharsets.UTF_8))) {
+            out.println("{\"job\":" + id + "}");
+            out.flush();
+            try {
+                job.run(request, out, cancelled);
+            } catch (IOException e) {
+                // Client went away mid-stream: nothing left to report.
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IllegalArgumentException e) {
+                writeError(out, e.getMessage());
+            } catch (Exception e) {
+                // A failure on our side, not a bad request: tell the client instead of ending the stream silently
+                e.printStackTrace();
+                writeError(out, "simulation failed: " + e);
+            }
+            if (cancelled.get()) out.println("{\"type\":\"cancelled\"}");
+        } finally {
+            jobs.remove(id);
+            slots.release();
+            ex.close();
+        }
+    }
+
+    private void handleCancel(HttpExchange ex) throws IOException {
+        String query = ex.getRequestURI().getQuery();
+        AtomicBoolean flag = null;
+        if (query != null && query.startsWith("job=")) {
+            try {
+                flag = jobs.get(Long.parseLong(query.substring(4)));
+            } catch (NumberFormatException ignored) {
+                // falls through to 404
+            }
+        }
+        if (flag == null) {
+            respond(ex, 404, "{\"error\":\"no such running job\"}");
+        } else {
+            flag.set(true);
+            respond(ex, 200, "{\"cancelled\":true}");
+        }
+    }
+
+    private void writeError(PrintWriter out, String message) throws IOException {
+        ObjectNode err = mapper.createObjectNode();
+        err.put("type", "error");
+        err.put("message", message);
+        out.println(mapper.writeValueAsString(err));
+    }
+
+    private void respond(HttpExchange ex, int status, String json) throws IOException {
+        byte[] bytes = (json + "\n").getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json");
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    /** Stream every round of one simulation. */
+    private void simulate(JsonNode req, PrintWriter out, AtomicBoolean cancelled) throws IOException {
+        // Without "init" every stack of the board starts as WILDS
+        SweepPoint point = pointFrom(req, req.path("limits"), req.path("init").asText(""));
+        Simulation sim = point.newSimulation(req.path("seed").asLong(System.nanoTime()));
+        writeRound(sim, out);
+        while (sim.getCurrentRound() < sim.turns && !cancelled.get()) {
+            sim.playTurn();
+            writeRound(sim, out);
+        }
+        ObjectNode done = mapper.createObjectNode();
+        done.put("type", "done");
+        done.put("rounds", sim.getCurrentRound());
+        done.put("seed", sim.seed);
+        out.println(mapper.writeValueAsString(done));
+    }
+
+    private void writeRound(Simulation sim, PrintWriter out) throws IOException {
+        ObjectNode line = mapper.createObjectNode();
+        line.put("type", "round");
+        line.put("round", sim.getCurrentRound());
+        ArrayNode states = line.putArray("states");
+        for (MyStack s : sim.myStacks) states.add(Simulation.getCodeFromState(s.state));
+        ObjectNode tokens = line.putObject("tokens");
+        for (FeedbackToken token : FeedbackToken.values()) tokens.put(token.name(), sim.bag.count(token));
+        line.put("bag_total", sim.bag.totalCount());
+        out.println(mapper.writeValueAsString(line));
+        out.flush();
+        if (out.checkError()) throw new IOException("client disconnected");
+    }
+
+    /** Run the batch engine over every (limits, init) pair and stream aggregated results. */
+    private void sweep(JsonNode req, PrintWriter out, AtomicBoolean cancelled) throws Exception {
+        int runs = req.path("runs").asInt(1000);
+        long seed = req.path("seed").asLong(5L);
+        JsonNode limitList = req.path("limits");
+        if (!limitList.isArray() || limitList.size() == 0 || !limitList.get(0).isArray()) {
+            limitList = mapper.createArrayNode().add(limitList.isArray() ? limitList : mapper.createArrayNode());
+        }
+        JsonNode inits = req.path("inits");
+        // Without "inits" one configuration with every stack of the board WILDS, as /simulate
+        if (!inits.isArray() || inits.size() == 0) inits = mapper.createArrayNode().add("");
+
+        for (JsonNode limits : limitList) {
+            for (JsonNode init : inits) {
+                SweepPoint point = pointFrom(req, limits, init.asText());
+                BatchStats total = new BatchStats(point.stacks(), point.turns);
+                for (int done = 0; done < runs && !cancelled.get(); done += SWEEP_CHUNK) {
+                    int count = Math.min(SWEEP_CHUNK, runs - done);
+                    total.merge(engine.run(point, seed + done, count));
+                    ObjectNode progress = mapper.createObjectNode();
+                    progress.put("type", "progress");
+                    progress.put("point", point.label());
+                    progress.put("runs", total.runs);
+                    out.println(mapper.writeValueAsString(progress));
+                    out.flush();
+                    if (out.checkError()) throw new IOException("client disconnected");
+                }
+                if (cancelled.get()) return;
+                ObjectNode result = mapper.createObjectNode();
+                result.put("type", "result");
+                result.set("point", point.toJson(mapper));
+                result.set("stats", total.toJson(mapper));
+                out.println(mapper.writeValueAsString(result));
+                out.flush();
+            }
+        }
+        out.println("{\"type\":\"done\"}");
+    }
+
+    private SweepPoint pointFrom(JsonNode req, JsonNode limitsNode, String init) {
+        int turns = req.path("turns").asInt(50);
+        if (turns < 1 || turns > 100) throw new IllegalArgumentException("turns must be 1..100");
+        int[] limits = {20, 20, 20, 20};
+        if (limitsNode.isArray()) {
+            for (int i = 0; i < limits.length && i < limitsNode.size(); i++) limits[i] = limitsNode.get(i).asInt();
+        }
+        BoardTopology topology = req.has("topology")
+                ? BoardTopology.fromJson(req.get("topology"), "board") : BoardTopology.CLASSIC;
+        State[] initial = SweepPoint.parsePattern(init.isEmpty() ? "W".repeat(topology.stacks) : init);
+        if (topology.isClassic() && initial.length != 11) throw new IllegalArgumentException("init must have one letter per stack (11)");
+        RuleSet rules = req.has("rules") ? RuleSet.fromJson(req.get("rules"), "rules") : RuleSet.CLASSIC;
+        return new SweepPoint(turns, req.path("stage").asInt(1), limits, initial, topology, rules);
+    }
+
+    // ---------- CLI Entrance ----------
+    public static void main(String[] args) throws IOException {
+        int port = 8765;
+        int maxJobs = Runtime.getRuntime().availableProcessors();
+        for (String a : args) {
+            if (a.startsWith("--port=")) {
+                port = Integer.parseInt(a.substring(7));
+            } else if (a.startsWith("--max-jobs=")) {
+                maxJobs = Integer.parseInt(a.substring(11));
+            }
+        }
+        new SimulationService(maxJobs).start(port);
+        System.out.println("Simulation service listening on http://127.0.0.1:" + port + " (max " + maxJobs + " concurrent jobs)");
+    }
+}
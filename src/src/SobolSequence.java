@@ -0,0 +1,67 @@
+/**
+ * Sobol low-discrepancy sequence in up to {@link #MAX_DIMENSIONS} dimensions, with the direction
+ * numbers of Joe and Kuo (new-joe-kuo-6.21201). Point n is built from point n-1 with one XOR per
+ * dimension (Gray-code order), so generating the whole design costs next to nothing.
+ */
+public class SobolSequence {
+    // Joe-Kuo direction numbers for dimensions 2..16: degree s, coefficients a, initial m_1..m_s
+    private static final int[][] PRIMITIVES = {
+            {1, 0, 1},
+            {2, 1, 1, 3},
+            {3, 1, 1, 3, 1},
+            {3, 2, 1, 1, 1},
+            {4, 1, 1, 1, 3, 3},
+            {4, 4, 1, 3, 5, 13},
+            {5, 2, 1, 1, 5, 5, 17},
+            {5, 4, 1, 1, 5, 5, 5},
+            {5, 7, 1, 1, 7, 11, 19},
+            {5, 11, 1, 1, 5, 1, 1},
+            {5, 13, 1, 1, 1, 3, 11},
+            {5, 14, 1, 3, 5, 5, 31},
+            {6, 1, 1, 3, 3, 9, 7, 49},
+            {6, 13, 1, 1, 1, 15, 21, 21},
+            {6, 16, 1, 3, 1, 13, 27, 49}};
+    static final int MAX_DIMENSIONS = PRIMITIVES.length + 1;
+    private static final int BITS = 32;
+
+    final int dimensions;
+    private final long[][] direction; // [dimension][bit], 32-bit values
+    private final long[] x;
+    private long index;
+
+    SobolSequence(int dimensions) {
+        if (dimensions < 1 || dimensions > MAX_DIMENSIONS) {
+            throw new IllegalArgumentException("Sobol sequence supports 1.." + MAX_DIMENSIONS + " dimensions, not " + dimensions);
+        }
+        this.dimensions = dimensions;
+        this.direction = new long[dimensions][BITS];
+        this.x = new long[dimensions];
+        for (int i = 0; i < BITS; i++) direction[0][i] = 1L << (BITS - 1 - i);
+        for (int d = 1; d < dimensions; d++) {
+            int[] p = PRIMITIVES[d - 1];
+            int s = p[0], a = p[1];
+            long[] v = direction[d];
+            for (int i = 0; i < s && i < BITS; i++) v[i] = (long) p[2 + i] << (BITS - 1 - i);
+            for (int i = s; i < BITS; i++) {
+                v[i] = v[i - s] ^ (v[i - s] >>> s);
+                for (int k = 1; k < s; k++) {
+                    if (((a >>> (s - 1 - k)) & 1) != 0) v[i] ^= v[i - k];
+                }
+            }
+        }
+    }
+
+    /** The next point in [0, 1)^dimensions; the first call returns the point after the origin. */
+    double[] next() {
+        // The bit that changes between Gray codes of index and index+1 is the lowest zero bit of index
+        int c = Long.numberOfTrailingZeros(~index);
+        if (c >= BITS) throw new IllegalStateException("Sobol sequence exhausted");
+        index++;
+        double[] point = new double[dimensions];
+        for (int d = 0; d < dimensions; d++) {
+            x[d] ^= direction[d][c];
+            point[d] = x[d] / (double) (1L << BITS);
+        }
+        return point;
+    }
+}
@@ -0,0 +1,303 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Coordinator of a distributed sweep over bag limits, initial boards and seeds.
+ *
+ * The sweep is split into leases (one configuration, a contiguous seed range). Workers
+ * ({@link SweepWorker}) connect over TCP, pull leases, run them with {@link BatchEngine} and push
+ * back {@link BatchStats}. Leases not returned within the timeout, or held by a worker that
+ * disconnects, are handed out again; the first result for a lease wins.
+ *
+ * Protocol: one JSON object per line.
+ *   worker -> {"type":"request"} | {"type":"result","lease":id,"stats":{...}}
+ *   coordinator -> {"type":"lease","lease":id,"point":{...},"seed_start":s,"count":n} | {"type":"wait","millis":m} | {"type":"done"}
+ *
+ * Usage: --runs=1000 --lease=250 --turns=50 --stage=1 --seed=5 --limits=20/20/20/20,30/20/10/20
+ *        --inits=WAAAAAAAAAA,WWWWWWAAAAA --port=5050 --bind=127.0.0.1 --lease-timeout=60 --local-workers=4
+ *        [--topology=hex:10|board.json] [--rules=variant.json]
+ *
+ * The port is unauthenticated, so it listens on loopback only; pass --bind=0.0.0.0 (or one interface's
+ * address) to take workers from other machines, on a trusted network only.
+ */
+public class SweepCoordinator {
+    static class Lease {
+        final int id;
+        final int point;
+        final long seedStart;
+        final int count;
+        long deadline;
+        boolean done;
+
+        Lease(int id, int point, long seedStart, int count) {
+            this.id = id;
+            this.point = point;
+            this.seedStart = seedStart;
+            this.count = count;
+        }
+    }
+
+    final List<SweepPoint> points;
+    final BatchStats[] results;
+    final long leaseTimeoutMillis;
+    private final Map<Integer, Lease> leases = new HashMap<>();
+    private final Deque<Lease> pending = new ArrayDeque<>();
+    private final Set<Lease> outstanding = new HashSet<>();
+    private int remaining;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    SweepCoordinator(List<SweepPoint> points, int runsPerPoint, int leaseSize, long seed, long leaseTimeoutMillis) {
+        this.points = points;
+        this.results = new BatchStats[points.size()];
+        this.leaseTimeoutMillis = leaseTimeoutMillis;
+        int id = 0;
+        for (int p = 0; p < points.size(); p++) {
+            SweepPoint sp = points.get(p);
+            results[p] = new BatchStats(sp.stacks(), sp.turns);
+            // Every configuration uses the same seeds (common random numbers across the sweep).
+            for (int start = 0; start < runsPerPoint; start += leaseSize) {
+                Lease lease = new Lease(id++, p, seed + start, Math.min(leaseSize, runsPerPoint - start));
+                leases.put(lease.id, lease);
+                pending.add(lease);
+            }
+        }
+        this.remaining = leases.size();
+    }
+
+    synchronized Lease nextLease() {
+        expireLeases();
+        Lease lease = pending.poll();
+        if (lease != null) {
+            lease.deadline = System.currentTimeMillis() + leaseTimeoutMillis;
+            outstanding.add(lease);
+        }
+        return lease;
+    }
+
+    synchronized void complete(int leaseId, BatchStats stats) {
+        Lease lease = leases.get(leaseId);
+        if (lease == null || lease.done) return; // late duplicate of a reassigned lease
+        lease.done = true;
+        outstanding.remove(lease);
+        pending.remove(lease);
+        results[lease.point].merge(stats);
+        remaining--;
+        notifyAll();
+    }
+
+    /** Hand the leases of a disconnected worker to the next requester. */
+    synchronized void release(Collection<Lease> held) {
+        for (Lease lease : held) {
+            if (!lease.done && outstanding.remove(lease)) pending.addFirst(lease);
+        }
+    }
+
+    synchronized boolean isFinished() {
+        return remaining == 0;
+    }
+
+    private void expireLeases() {
+        long now = System.currentTimeMillis();
+        for (Iterator<Lease> it = outstanding.iterator(); it.hasNext(); ) {
+            Lease lease = it.next();
+            if (lease.deadline < now) {
+                it.remove();
+                pending.addFirst(lease);
+                System.out.println("Lease " + lease.id + " timed out, reassigning");
+            }
+        }
+    }
+
+    synchronized void awaitCompletion() throws InterruptedException {
+        int total = leases.size();
+        int reported = -1;
+        while (remaining > 0) {
+            wait(1000);
+            expireLeases();
+            if (remaining != reported) {
+                reported = remaining;
+                System.out.println("Leases done: " + (total - remaining) + "/" + total);
+            }
+        }
+    }
+
+    /**
+     * Serve one worker connection until it disconnects or the sweep finishes.
+     */
+    void serve(Socket socket) {
+        List<Lease> held = new ArrayList<>();
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                JsonNode msg = mapper.readTree(line);
+                String type = msg.get("type").asText();
+                if (type.equals("result")) {
+                    complete(msg.get("lease").asInt(), BatchStats.fromJson(msg.get("stats")));
+                    held.removeIf(l -> l.id == msg.get("lease").asInt());
+                } else if (type.equals("request")) {
+                    ObjectNode reply = mapper.createObjectNode();
+                    Lease lease = nextLease();
+                    if (lease != null) {
+                        held.add(lease);
+                        reply.put("type", "lease");
+                        reply.put("lease", lease.id);
+                        reply.set("point", points.get(lease.point).toJson(mapper));
+                        reply.put("seed_start", lease.seedStart);
+                        reply.put("count", lease.count);
+                    } else if (isFinished()) {
+                        reply.put("type", "done");
+                    } else {
+                        // Everything is leased out; poll again in case a lease expires.
+                        reply.put("type", "wait");
+                        reply.put("millis", 500);
+                    }
+                    out.println(mapper.writeValueAsString(reply));
+                    if (reply.get("type").asText().equals("done")) break;
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Worker " + socket.getRemoteSocketAddress() + " disconnected: " + e.getMessage());
+        } finally {
+            release(held);
+        }
+    }
+
+    void printResults() {
+        for (int p = 0; p < points.size(); p++) {
+            System.out.println(points.get(p).label() + " => " + results[p].summary());
+        }
+    }
+
+    void exportResults() throws IOException {
+        ObjectNode root = mapper.createObjectNode();
+        root.put("version", 1);
+        ArrayNode arr = root.putArray("sweep");
+        for (int p = 0; p < points.size(); p++) {
+            ObjectNode entry = arr.addObject();
+            entry.set("point", points.get(p).toJson(mapper));
+            entry.set("stats", results[p].toJson(mapper));
+        }
+        File output = Simulation.newResultFile("sweep");
+        Simulation.writeResult(mapper, output, root, false);
+        System.out.println("Exported to: " + output.getPath());
+    }
+
+    // ---------- CLI Entrance ----------
+    public static void main(String[] args) throws Exception {
+        int runs = 1000;
+        int leaseSize = 250;
+        int turns = 50;
+        int version = 1;
+        long seed = 5L;
+        int port = 5050;
+        String bind = "127.0.0.1"; // loopback unless --bind opens it to other machines
+        long leaseTimeout = 60_000;
+        int localWorkers = 0;
+        List<int[]> limitList = new ArrayList<>();
+        List<String> inits = new ArrayList<>();
+        BoardTopology topology = BoardTopology.CLASSIC;
+        RuleSet rules = RuleSet.CLASSIC;
+
+        for (String a : args) {
+            if (a.startsWith("--runs=")) {
+                runs = Integer.parseInt(a.substring(7));
+            } else if (a.startsWith("--lease=")) {
+                leaseSize = Integer.parseInt(a.substring(8));
+            } else if (a.startsWith("--turns=")) {
+                turns = Integer.parseInt(a.substring(8));
+            } else if (a.startsWith("--stage=")) {
+                version = Integer.parseInt(a.substring(8));
+            } else if (a.startsWith("--seed=")) {
+                seed = Long.parseLong(a.substring(7));
+            } else if (a.startsWith("--port=")) {
+                port = Integer.parseInt(a.substring(7));
+            } else if (a.startsWith("--bind=")) {
+                bind = a.substring(7);
+            } else if (a.startsWith("--lease-timeout=")) {
+                leaseTimeout = Long.parseLong(a.substring(16)) * 1000;
+            } else if (a.startsWith("--local-workers=")) {
+                localWorkers = Integer.parseInt(a.substring(16));
+            } else if (a.startsWith("--limits=")) {
+                for (String spec : a.substring(9).split(",")) { // 20/20/20/20,30/20/10/20
+                    limitList.add(Arrays.stream(spec.split("/")).mapToInt(Integer::parseInt).toArray());
+                }
+            } else if (a.startsWith("--inits=")) {
+                inits.addAll(Arrays.asList(a.substring(8).split(",")));
+            } else if (a.startsWith("--topology=")) {
+                topology = BoardTopology.parse(a.substring(11));
+            } else if (a.startsWith("--rules=")) {
+                rules = RuleSet.parse(a.substring(8));
+            }
+        }
+        if (limitList.isEmpty()) limitList.add(new int[]{20, 20, 20, 20});
+        if (inits.isEmpty()) {
+            // Default: the WILDS/DEVA ratio sweep of SimulationApp, WILDS filled from stack 1 outwards.
+            int n = topology.stacks;
+            int step = Math.max(1, n / 11); // about a dozen ratios on large boards
+            for (int w = 0; w < n; w += step) {
+                inits.add("W".repeat(w) + "A".repeat(n - w));
+            }
+            inits.add("W".repeat(n));
+        }
+
+        List<SweepPoint> points = new ArrayList<>();
+        for (int[] limits : limitList) {
+            for (String init : inits) {
+                points.add(new SweepPoint(turns, version, limits, SweepPoint.parsePattern(init), topology, rules));
+            }
+        }
+
+        SweepCoordinator coordinator = new SweepCoordinator(points, runs, leaseSize, seed, leaseTimeout);
+        ServerSocket server = new ServerSocket(port, 50, InetAddress.getByName(bind));
+        System.out.println("Coordinator listening on " + bind + ":" + port + " with " + coordinator.leases.size()
+                + " leases over " + points.size() + " configurations");
+
+        Thread acceptor = new Thread(() -> {
+            while (!server.isClosed()) {
+                try {
+                    Socket socket = server.accept();
+                    Thread handler = new Thread(() -> coordinator.serve(socket), "sweep-conn");
+                    handler.setDaemon(true);
+                    handler.start();
+                } catch (SocketException e) {
+                    break; // server closed
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }, "sweep-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        List<Process> workers = new ArrayList<>();
+        if (localWorkers > 0) {
+            // Spawn worker JVMs on this machine with the same classpath; they split the cores between them.
+            String java = new File(System.getProperty("java.home"), "bin/java").getPath();
+            int threadsEach = Math.max(1, Runtime.getRuntime().availableProcessors() / localWorkers);
+            for (int i = 0; i < localWorkers; i++) {
+                workers.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                        "-Dsimulation.profile=" + PhaseTimer.ENABLED, "SweepWorker",
+                        "--host=127.0.0.1", "--port=" + port, "--threads=" + threadsEach)
+                        .inheritIO().start());
+            }
+        }
+
+        coordinator.awaitCompletion();
+        for (Process p : workers) p.waitFor();
+        server.close();
+        coordinator.printResults();
+        coordinator.exportResults();
+    }
+}
@@ -0,0 +1,116 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One configuration of a sweep: turns, stage, bag limits, board, rules and the initial state of every
+ * stack. Stacks beyond the initial pattern start as WILDS.
+ */
+public class SweepPoint {
+    final int turns;
+    final int version;
+    final int[] limits;     // WILDS, WASTES, DEVA, DEVB
+    final State[] initial;  // index 0 = stack 1
+    final BoardTopology topology;
+    final RuleSet rules;
+
+    SweepPoint(int turns, int version, int[] limits, State[] initial) {
+        this(turns, version, limits, initial, BoardTopology.CLASSIC);
+    }
+
+    SweepPoint(int turns, int version, int[] limits, State[] initial, BoardTopology topology) {
+        this(turns, version, limits, initial, topology, RuleSet.CLASSIC);
+    }
+
+    SweepPoint(int turns, int version, int[] limits, State[] initial, BoardTopology topology, RuleSet rules) {
+        if (initial.length > topology.stacks) {
+            throw new IllegalArgumentException("init has " + initial.length + " stacks, board " + topology + " has fewer");
+        }
+        this.turns = turns;
+        this.version = version;
+        this.limits = limits;
+        this.initial = initial;
+        this.topology = topology;
+        this.rules = rules;
+        rules.persists(topology); // fail here, not in a worker, if the persist set does not fit the board
+    }
+
+    /** Number of stacks on the board. */
+    int stacks() {
+        return topology.stacks;
+    }
+
+    /**
+     * Parse a board pattern with one letter per stack: W = WILDS, X = WASTES, A = DEVA, B = DEVB.
+     */
+    static State[] parsePattern(String pattern) {
+        State[] states = new State[pattern.length()];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = switch (Character.toUpperCase(pattern.charAt(i))) {
+                case 'W' -> State.WILDS;
+                case 'X' -> State.WASTES;
+                case 'A' -> State.DEVA;
+                case 'B' -> State.DEVB;
+                default -> throw new IllegalArgumentException("Unknown state letter in pattern: " + pattern);
+            };
+        }
+        return states;
+    }
+
+    static String toPattern(State[] states) {
+        StringBuilder sb = new StringBuilder(states.length);
+        for (State st : states) {
+            sb.append(switch (st) {
+                case WILDS -> 'W';
+                case WASTES -> 'X';
+                case DEVA -> 'A';
+                case DEVB -> 'B';
+            });
+        }
+        return sb.toString();
+    }
+
+    Map<Integer, State> initialStates() {
+        Map<Integer, State> init = new HashMap<>();
+        for (int i = 0; i < initial.length; i++) init.put(i + 1, initial[i]);
+        return init;
+    }
+
+    /** A quiet simulation at round 0 for this configuration. */
+    Simulation newSimulation(long seed) {
+        return new Simulation(turns, seed, initialStates(), null, limits, version, false, topology, rules);
+    }
+
+    String label() {
+        String label = String.format("stage=%d turns=%d limits=%d/%d/%d/%d init=%s",
+                version, turns, limits[0], limits[1], limits[2], limits[3], toPattern(initial));
+        if (!topology.isClassic()) label += " board=" + topology.name;
+        return rules.isClassic() ? label : label + " rules=" + rules.name;
+    }
+
+    ObjectNode toJson(ObjectMapper mapper) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("turns", turns);
+        node.put("version", version);
+        ArrayNode lim = node.putArray("limits");
+        for (int l : limits) lim.add(l);
+        node.put("init", toPattern(initial));
+        if (!topology.isClassic()) node.set("topology", topology.toJson(mapper));
+        if (!rules.isClassic()) node.set("rules", rules.toJson(mapper));
+        return node;
+    }
+
+    static SweepPoint fromJson(JsonNode node) {
+        int[] limits = new int[4];
+        for (int i = 0; i < 4; i++) limits[i] = node.get("limits").get(i).asInt();
+        BoardTopology topology = node.has("topology")
+                ? BoardTopology.fromJson(node.get("topology"), "board") : BoardTopology.CLASSIC;
+        RuleSet rules = node.has("rules") ? RuleSet.fromJson(node.get("rules"), "rules") : RuleSet.CLASSIC;
+        return new SweepPoint(node.get("turns").asInt(), node.get("version").asInt(), limits,
+                parsePattern(node.get("init").asText()), topology, rules);
+    }
+}
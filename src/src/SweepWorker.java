@@ -0,0 +1,77 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.*;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Worker of a distributed sweep: pulls leases from a {@link SweepCoordinator}, runs them on all
+ * local cores with {@link BatchEngine} and pushes back the aggregated {@link BatchStats}.
+ *
+ * Usage: --host=127.0.0.1 --port=5050 --threads=8
+ */
+public class SweepWorker {
+    public static void main(String[] args) throws Exception {
+        String host = "127.0.0.1";
+        int port = 5050;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (String a : args) {
+            if (a.startsWith("--host=")) {
+                host = a.substring(7);
+            } else if (a.startsWith("--port=")) {
+                port = Integer.parseInt(a.substring(7));
+            } else if (a.startsWith("--threads=")) {
+                threads = Integer.parseInt(a.substring(10));
+            }
+        }
+
+        ObjectMapper mapper = new ObjectMapper();
+        try (BatchEngine engine = new BatchEngine(threads);
+             Socket socket = connect(host, port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true)) {
+            int leasesRun = 0;
+            ObjectNode request = mapper.createObjectNode();
+            request.put("type", "request");
+            String requestLine = mapper.writeValueAsString(request);
+            while (true) {
+                out.println(requestLine);
+                String line = in.readLine();
+                if (line == null) break; // coordinator went away
+                JsonNode msg = mapper.readTree(line);
+                String type = msg.get("type").asText();
+                if (type.equals("done")) {
+                    break;
+                } else if (type.equals("wait")) {
+                    Thread.sleep(msg.get("millis").asLong());
+                } else if (type.equals("lease")) {
+                    SweepPoint point = SweepPoint.fromJson(msg.get("point"));
+                    BatchStats stats = engine.run(point, msg.get("seed_start").asLong(), msg.get("count").asInt());
+                    ObjectNode result = mapper.createObjectNode();
+                    result.put("type", "result");
+                    result.put("lease", msg.get("lease").asInt());
+                    result.set("stats", stats.toJson(mapper));
+                    out.println(mapper.writeValueAsString(result));
+                    leasesRun++;
+                }
+            }
+            System.out.println("Worker finished after " + leasesRun + " leases");
+        }
+        PhaseTimer.dumpIfEnabled();
+    }
+
+    /** Retry for a few seconds so workers may be started before the coordinator is listening. */
+    private static Socket connect(String host, int port) throws IOException, InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return new Socket(host, port);
+            } catch (ConnectException e) {
+                if (attempt >= 20) throw e;
+                Thread.sleep(500);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures time and heap allocation per turn of {@link Simulation#playTurn()}.
+ *
+ * Simulations are built before each measured pass so only the turn loop is counted; allocation
+ * comes from the per-thread counter of com.sun.management.ThreadMXBean. Exits with status 1 if
+ * the steady-state allocation exceeds --max-bytes per turn (default 1).
+ *
+ * Usage: --init=WAAAAAAAAAA --stage=1 --sims=2000 --turns=100 --passes=10 --max-bytes=1 [--topology=hex:10] [--rules=variant.json]
+ *
+ * On another board the init pattern covers the first stacks and the rest start as WILDS; the
+ * report is then also given per stack, to compare boards of different sizes.
+ */
+public class TurnLoopBenchmark {
+    public static void main(String[] args) throws java.io.IOException {
+        String init = "WAAAAAAAAAA";
+        int version = 1;
+        int sims = 2000;
+        int turns = 100;
+        int passes = 10;
+        double maxBytes = 1.0;
+        BoardTopology topology = BoardTopology.CLASSIC;
+        RuleSet rules = RuleSet.CLASSIC;
+        for (String a : args) {
+            if (a.startsWith("--init=")) {
+                init = a.substring(7);
+            } else if (a.startsWith("--stage=")) {
+                version = Integer.parseInt(a.substring(8));
+            } else if (a.startsWith("--sims=")) {
+                sims = Integer.parseInt(a.substring(7));
+            } else if (a.startsWith("--turns=")) {
+                turns = Integer.parseInt(a.substring(8));
+            } else if (a.startsWith("--passes=")) {
+                passes = Integer.parseInt(a.substring(9));
+            } else if (a.startsWith("--max-bytes=")) {
+                maxBytes = Double.parseDouble(a.substring(12));
+            } else if (a.startsWith("--topology=")) {
+                topology = BoardTopology.parse(a.substring(11));
+            } else if (a.startsWith("--rules=")) {
+                rules = RuleSet.parse(a.substring(8));
+            }
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long tid = Thread.currentThread().threadId();
+        SweepPoint point = new SweepPoint(turns, version, new int[]{20, 20, 20, 20}, SweepPoint.parsePattern(init), topology, rules);
+        Simulation[] batch = new Simulation[sims];
+
+        double bytesPerTurn = 0;
+        for (int pass = 0; pass < passes; pass++) {
+            for (int i = 0; i < sims; i++) batch[i] = point.newSimulation(pass * (long) sims + i);
+
+            long bytes0 = threads.getThreadAllocatedBytes(tid);
+            long t0 = System.nanoTime();
+            long checksum = 0;
+            for (Simulation sim : batch) {
+                for (int t = 0; t < turns; t++) sim.playTurn();
+                checksum += sim.countState(State.WILDS);
+            }
+            long elapsed = System.nanoTime() - t0;
+            long allocated = threads.getThreadAllocatedBytes(tid) - bytes0;
+
+            long ops = (long) sims * turns;
+            bytesPerTurn = (double) allocated / ops;
+            System.out.printf("pass %2d: %7.1f ns/turn  %6.2f ns/stack  %8.3f B/turn  (checksum %d)%n",
+                    pass, (double) elapsed / ops, (double) elapsed / ops / topology.stacks, bytesPerTurn, checksum);
+        }
+
+        // The early passes include JIT warm-up; judge the last one.
+        if (bytesPerTurn > maxBytes) {
+            System.out.printf("FAIL: %.3f B/turn exceeds %.3f%n", bytesPerTurn, maxBytes);
+            System.exit(1);
+        }
+        System.out.println("OK: steady-state turn loop allocates ~0 B/turn");
+    }
+}
@@ -4,22 +4,11 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
 import java.io.IOException;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.Map;
-import java.util.HashMap;
 import java.util.List;
 import java.util.ArrayList;
-
-// State enum for simulation
-enum State {
-    WILDS, WASTES, DEVA, DEVB
-}
-
-// FeedbackToken enum for simulation
-enum FeedbackToken {
-    WILDS, WASTES, DEVA, DEVB;
-}
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 public class AnimatedGameVisualizer extends JFrame {
     private MultiRoundGameData multiRoundData;
@@ -31,9 +20,24 @@ public class AnimatedGameVisualizer extends JFrame {
     private AnimationControlPanel animationControlPanel;
     private JLabel statusLabel;
     
-    private Timer animationTimer;
+    // Playback frame clock: one Swing timer (events arrive on the EDT) that polls every few ms;
+    // frames are due at a fixed rate measured from clockStart, and rounds that fell behind are skipped.
+    private static final int CLOCK_TICK_MS = 10;
+    private final Timer frameClock = new Timer(CLOCK_TICK_MS, e -> onFrameTick());
+    private long clockStart;
+    private long framesPlayed;
     private int currentRoundIndex = 0;
     
+    // Simulation running in the background for "Create Random Data" / "Custom Simulation", or null
+    private SimulationWorker generator;
+    // Configuration of the last generated simulation, rerun many times by "Ensemble Runs"
+    private SweepPoint lastSimulation;
+    private EnsembleWorker ensemble;
+    // Latest ensemble result (possibly still growing), shown by the chart bands and board overlay
+    private EnsembleStats ensembleStats;
+    private JButton cancelButton;
+    private JComboBox<String> boardViewBox;
+    
     
     public AnimatedGameVisualizer() {
         initializeComponents();
@@ -86,18 +90,17 @@ public class AnimatedGameVisualizer extends JFrame {
             
             @Override
             protected void onProgressChanged(int round) {
-                goToRound(round);
+                // Ignore the echo of setCurrentRound() for the round already on screen
+                if (round != currentRoundIndex + 1) {
+                    goToRound(round);
+                }
             }
             
             @Override
             protected void onSpeedChanged(int speed) {
-                // Speed change is applied immediately, even during playback
+                // Speed change is applied immediately, even during playback: restart the pacing
                 if (isPlaying()) {
-                    // Cancel current timer and reschedule with new speed
-                    if (animationTimer != null) {
-                        animationTimer.cancel();
-                    }
-                    scheduleNextFrame();
+                    restartFrameClock();
                 }
             }
         };
@@ -106,6 +109,7 @@ public class AnimatedGameVisualizer extends JFrame {
         gameInfoPanel = new GameInfoPanel();
         chartPanel = new ChartPanel();
         lineChartPanel = new LineChartPanel();
+        hexagonPanel = new HexagonPanel(null); // filled by updateDisplay()
         
         // Load multi-round JSON data
         try {
@@ -123,7 +127,7 @@ public class AnimatedGameVisualizer extends JFrame {
             createSampleData();
         }
         
-        hexagonPanel = new HexagonPanel(currentGameData.getBoard().getHexes());
+        hexagonPanel.setHexes(currentGameData.getBoard().getHexes());
     }
     
     private void setupLayout() {
@@ -158,24 +162,40 @@ public class AnimatedGameVisualizer extends JFrame {
     }
     
     private JPanel createControlPanel() {
-        JPanel controlPanel = new JPanel(new GridLayout(4, 1, 5, 5));
+        JPanel controlPanel = new JPanel(new GridLayout(7, 1, 5, 5));
         controlPanel.setBackground(Color.LIGHT_GRAY);
         controlPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         
         JButton loadJsonButton = new JButton("Load JSON");
         JButton createRandomButton = new JButton("Create Random Data");
         JButton customSimButton = new JButton("Custom Simulation");
+        JButton ensembleButton = new JButton("Ensemble Runs");
         JButton saveButton = new JButton("Save Data");
+        cancelButton = new JButton("Cancel");
+        cancelButton.setEnabled(false);
+        // Board view: the replayed run, or the ensemble's per-stack state probabilities at the current round
+        boardViewBox = new JComboBox<>(new String[]{"Board: Replay", "Board: Ensemble States",
+                "Board: P(WILDS)", "Board: P(WASTES)", "Board: P(DEVA)", "Board: P(DEVB)"});
         
         loadJsonButton.addActionListener(e -> loadJsonFile());
         createRandomButton.addActionListener(e -> createRandomData());
         customSimButton.addActionListener(e -> createCustomSimulation());
+        ensembleButton.addActionListener(e -> runEnsemble());
         saveButton.addActionListener(e -> saveDataToFile());
+        boardViewBox.addActionListener(e -> updateBoardOverlay());
+        cancelButton.addActionListener(e -> {
+            if (cancelGeneration()) {
+                statusLabel.setText("Generation cancelled");
+            }
+        });
         
         controlPanel.add(loadJsonButton);
         controlPanel.add(createRandomButton);
         controlPanel.add(customSimButton);
+        controlPanel.add(ensembleButton);
         controlPanel.add(saveButton);
+        controlPanel.add(cancelButton);
+        controlPanel.add(boardViewBox);
         
         return controlPanel;
     }
@@ -186,56 +206,24 @@ public class AnimatedGameVisualizer extends JFrame {
     
     
     private void createRandomData() {
-        try {
-            // Generate completely random data using Simulation class
-            int rounds = 10 + (int)(Math.random() * 11); // 10-20 rounds
-            long seed = System.currentTimeMillis();
-            
-            // Generate random initial states
-            java.util.Random rng = new java.util.Random(seed);
-            java.util.Map<Integer, State> initialStates = new java.util.HashMap<>();
-            String[] stateNames = {"WILDS", "WASTES", "DEVA", "DEVB"};
-            
-            for (int i = 1; i <= 11; i++) {
-                String stateName = stateNames[rng.nextInt(stateNames.length)];
-                State state = State.valueOf(stateName);
-                initialStates.put(i, state);
-            }
-            
-            multiRoundData = generateSimulationData(rounds, seed, initialStates);
-            
-            if (multiRoundData != null && !multiRoundData.getRounds().isEmpty()) {
-                currentRoundIndex = 0;
-                currentGameData = convertRoundToGameData(multiRoundData.getRounds().get(0));
-                
-                // Reset line chart state to ensure new data displays correctly
-                if (animationControlPanel.isDynamicChartEnabled()) {
-                    lineChartPanel.setDynamicMode(true);
-                    lineChartPanel.resetDynamicState();
-                    // Only update multiRoundData reference, do not display static chart
-                    lineChartPanel.setMultiRoundData(multiRoundData);
-                    lineChartPanel.forceRecalculateAxisRange();
-                } else {
-                    lineChartPanel.setDynamicMode(false);
-                    // Force reset axis range to ensure new data displays correctly
-                    lineChartPanel.restoreAutoScaling();
-                }
-                
-                updateDisplay();
-                animationControlPanel.setTotalRounds(multiRoundData.getRounds().size());
-                animationControlPanel.setCurrentRound(1);
-                
-                statusLabel.setText("Generated random data: " + rounds + " rounds (Stage " + multiRoundData.getVersion() + ")");
-                
-                // Don't ask for save immediately - wait for animation to complete
-                // Store the data for later save option
-            } else {
-                statusLabel.setText("Failed to generate random data");
-            }
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Failed to generate random data: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-            statusLabel.setText("Error generating random data");
+        // Generate completely random data using Simulation class
+        int rounds = 10 + (int)(Math.random() * 11); // 10-20 rounds
+        long seed = System.currentTimeMillis();
+        
+        // Generate random initial states
+        java.util.Random rng = new java.util.Random(seed);
+        java.util.Map<Integer, State> initialStates = new java.util.HashMap<>();
+        String[] stateNames = {"WILDS", "WASTES", "DEVA", "DEVB"};
+        
+        for (int i = 1; i <= 11; i++) {
+            String stateName = stateNames[rng.nextInt(stateNames.length)];
+            State state = State.valueOf(stateName);
+            initialStates.put(i, state);
         }
+        
+        // Stage 2 with the default token limits (20 each)
+        int[] defaultLimits = {20, 20, 20, 20};
+        startGeneration(new SimulationWorker(sweepPoint(rounds, initialStates, defaultLimits, 2), seed, "random data"));
     }
     
     private void createCustomSimulation() {
@@ -244,43 +232,21 @@ public class AnimatedGameVisualizer extends JFrame {
         dialog.setVisible(true);
         
         if (dialog.isConfirmed()) {
-            try {
-                // Get parameters from dialog
-                int rounds = dialog.getRounds();
-                String[] initialStateNames = dialog.getInitialStates();
-                int[] tokenLimits = dialog.getTokenLimits();
-                int stage = dialog.getSelectedStage();
-                long seed = System.currentTimeMillis(); // Use current time as random seed
-                
-                // Convert string states to State enum
-                java.util.Map<Integer, State> initialStates = new java.util.HashMap<>();
-                for (int i = 0; i < 11; i++) {
-                    State state = State.valueOf(initialStateNames[i]);
-                    initialStates.put(i + 1, state);
-                }
-                
-                // Generate custom simulation data using simplified logic with stage version
-                multiRoundData = generateSimplifiedSimulationData(rounds, seed, initialStates, tokenLimits, stage);
-                
-                if (multiRoundData != null && !multiRoundData.getRounds().isEmpty()) {
-                    currentRoundIndex = 0;
-                    currentGameData = convertRoundToGameData(multiRoundData.getRounds().get(0));
-                    
-                    updateDisplay();
-                    animationControlPanel.setTotalRounds(multiRoundData.getRounds().size());
-                    animationControlPanel.setCurrentRound(1);
-                    
-                    statusLabel.setText("Generated custom simulation: " + rounds + " rounds (Stage " + stage + ")");
-                    
-                    // Don't ask for save immediately - wait for animation to complete
-                    // Store the data for later save option
-                } else {
-                    statusLabel.setText("Failed to generate custom simulation");
-                }
-            } catch (Exception e) {
-                JOptionPane.showMessageDialog(this, "Failed to generate custom simulation: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-                statusLabel.setText("Error generating custom simulation");
+            // Get parameters from dialog
+            int rounds = dialog.getRounds();
+            String[] initialStateNames = dialog.getInitialStates();
+            int[] tokenLimits = dialog.getTokenLimits();
+            int stage = dialog.getSelectedStage();
+            long seed = System.currentTimeMillis(); // Use current time as random seed
+            
+            // Convert string states to State enum
+            java.util.Map<Integer, State> initialStates = new java.util.HashMap<>();
+            for (int i = 0; i < 11; i++) {
+                State state = State.valueOf(initialStateNames[i]);
+                initialStates.put(i + 1, state);
             }
+            
+            startGeneration(new SimulationWorker(sweepPoint(rounds, initialStates, tokenLimits, stage), seed, "custom simulation"));
         }
     }
     
@@ -404,190 +370,285 @@ public class AnimatedGameVisualizer extends JFrame {
         }
     }
     
-    private MultiRoundGameData generateSimulationData(int rounds, long seed, Map<Integer, State> initialStates) {
-        // Use default token limits (20 each)
-        int[] defaultLimits = {20, 20, 20, 20};
-        return generateSimulationData(rounds, seed, initialStates, defaultLimits);
-    }
-    
-    private MultiRoundGameData generateSimulationData(int rounds, long seed, Map<Integer, State> initialStates, int[] tokenLimits) {
-        // Use simplified simulation logic with Stage 2 version
-        MultiRoundGameData data = generateSimplifiedSimulationData(rounds, seed, initialStates, tokenLimits, 2);
-        return data;
-    }
-    
-    private MultiRoundGameData generateSimplifiedSimulationData(int rounds, long seed, Map<Integer, State> initialStates) {
-        // Use default token limits
-        int[] defaultLimits = {20, 20, 20, 20};
-        return generateSimplifiedSimulationData(rounds, seed, initialStates, defaultLimits);
-    }
-    
-    private MultiRoundGameData generateSimplifiedSimulationData(int rounds, long seed, Map<Integer, State> initialStates, int[] tokenLimits) {
-        return generateSimplifiedSimulationData(rounds, seed, initialStates, tokenLimits, 1);
-    }
-    
-    private MultiRoundGameData generateSimplifiedSimulationData(int rounds, long seed, Map<Integer, State> initialStates, int[] tokenLimits, int version) {
-        // Simplified fallback logic that mimics the real game rules
-        MultiRoundGameData multiRoundData = new MultiRoundGameData();
-        multiRoundData.setVersion(version);
-        multiRoundData.setTotal_rounds(rounds);
-        
-        java.util.List<RoundData> roundList = new java.util.ArrayList<>();
-        java.util.Random rng = new java.util.Random(seed);
+    /**
+     * Runs the shared simulation engine (src/src) off the EDT. Rounds are published as they are
+     * produced; process() appends them on the EDT, so the first round is on screen (and can be
+     * played) while later ones are still computing. Cancelling stops the run at the next round.
+     */
+    private final class SimulationWorker extends SwingWorker<Void, RoundData> {
+        private final SweepPoint point;
+        private final int rounds;
+        private final int version;
+        private final long seed;
+        private final String description;
+        // Only touched on the EDT: the worker thread hands rounds over through publish()
+        private final MultiRoundGameData data = new MultiRoundGameData();
         
-        // Initialize current states
-        State[] currentStates = new State[11];
-        for (int i = 0; i < 11; i++) {
-            currentStates[i] = initialStates.get(i + 1);
+        SimulationWorker(SweepPoint point, long seed, String description) {
+            this.point = point;
+            this.rounds = point.turns;
+            this.version = point.version;
+            this.seed = seed;
+            this.description = description;
+            data.setVersion(version);
+            data.setTotal_rounds(rounds);
+            data.setRounds(new ArrayList<>());
         }
         
-        // Initialize token pool with all available tokens (up to limits)
-        java.util.Map<FeedbackToken, Integer> tokenPool = new java.util.HashMap<>();
-        tokenPool.put(FeedbackToken.WILDS, tokenLimits[0]);
-        tokenPool.put(FeedbackToken.WASTES, tokenLimits[1]);
-        tokenPool.put(FeedbackToken.DEVA, tokenLimits[2]);
-        tokenPool.put(FeedbackToken.DEVB, tokenLimits[3]);
-        
-        // Initialize empty bag for each round
-        java.util.Map<FeedbackToken, Integer> bag = new java.util.HashMap<>();
-        bag.put(FeedbackToken.WILDS, 0);
-        bag.put(FeedbackToken.WASTES, 0);
-        bag.put(FeedbackToken.DEVA, 0);
-        bag.put(FeedbackToken.DEVB, 0);
-        
-        // Generate each round using real game logic
-        // Round 0: Record initial state
-        RoundData round0Data = createRoundData(0, currentStates, tokenPool, null, rounds, tokenLimits);
-        roundList.add(round0Data);
+        @Override
+        protected Void doInBackground() {
+            SimulationEngine engine = SimulationEngine.builder()
+                    .turns(point.turns)
+                    .stage(point.version)
+                    .limits(point.limits)
+                    .initialStates(point.initialStates())
+                    .verbose(false)
+                    .listener(event -> {
+                        if (isCancelled()) {
+                            throw new CancellationException(); // abandon the run
+                        }
+                        publish(createRoundData(event));
+                    })
+                    .build();
+            try {
+                engine.run(seed);
+            } catch (CancellationException e) {
+                // cancelled from the UI, done() ignores this worker
+            }
+            return null;
+        }
         
-        // Rounds 1 to N: Simulate round, then record the result
-        for (int round = 1; round <= rounds; round++) {
-            // First simulate this round
-            simulateOneRound(currentStates, tokenPool, bag, rng, tokenLimits);
-            
-            // Then record the result of this round (after simulation, bag contains recycled tokens)
-            RoundData roundData = createRoundData(round, currentStates, tokenPool, bag, rounds, tokenLimits);
-            roundList.add(roundData);
+        @Override
+        protected void process(List<RoundData> chunk) {
+            if (generator == this && !isCancelled()) {
+                onRoundsGenerated(this, chunk);
+            }
         }
         
-        multiRoundData.setRounds(roundList);
-        return multiRoundData;
+        @Override
+        protected void done() {
+            if (generator == this) {
+                onGenerationFinished(this);
+            }
+        }
     }
     
-    private void simulateOneRound(State[] currentStates, java.util.Map<FeedbackToken, Integer> tokenPool, java.util.Map<FeedbackToken, Integer> bag, java.util.Random rng, int[] tokenLimits) {
-        // 1. Each stack generates tokens from pool into the bag (subject to pool limits)
-        // Bag is NOT cleared - tokens accumulate in the bag
-        for (State state : currentStates) {
-            FeedbackToken token = toTokenFromState(state);
-            int poolCount = tokenPool.get(token);
-            int bagCount = bag.get(token);
-            
-            if (poolCount > 0) {
-                // Move one token from pool to bag
-                tokenPool.put(token, poolCount - 1);
-                bag.put(token, bagCount + 1);
-            }
-            // If pool is empty for this token type, no token is added to bag
+    /**
+     * Reruns one configuration many times on all cores (BatchEngine) and draws the per-round
+     * count quantiles as bands. Only the histogram sketches are kept, not the trajectories;
+     * each finished chunk is merged on the EDT and the bands are redrawn.
+     */
+    private final class EnsembleWorker extends SwingWorker<Void, EnsembleStats> {
+        private final SweepPoint point;
+        private final int runs;
+        private final long seedStart = System.currentTimeMillis();
+        // Only touched on the EDT
+        private final EnsembleStats total;
+        
+        EnsembleWorker(SweepPoint point, int runs) {
+            this.point = point;
+            this.runs = runs;
+            this.total = new EnsembleStats(point.stacks(), point.turns);
         }
         
-        // 3. Draw 11 tokens in order (1,2,3,4,5,6,7,8,9,10,11)
-        int[] order = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11};
-        java.util.List<FeedbackToken> drawn = new java.util.ArrayList<>();
+        @Override
+        protected Void doInBackground() {
+            try (BatchEngine engine = new BatchEngine()) {
+                // Small chunks so the bands fill in early, large enough to keep merges rare
+                int chunk = Math.max(1, Math.min(256, runs / (engine.threads * 8)));
+                engine.runEnsemble(point, seedStart, runs, chunk, stats -> publish(stats));
+            } catch (InterruptedException e) {
+                // cancelled from the UI
+            }
+            return null;
+        }
         
-        for (int pos : order) {
-            FeedbackToken token = drawTokenFromBag(bag, rng);
-            drawn.add(token);
-            
-            // 4. Resolve token on the corresponding stack
-            resolveTokenOnStack(token, currentStates, pos - 1);
+        @Override
+        protected void process(List<EnsembleStats> chunks) {
+            if (ensemble != this || isCancelled()) {
+                return;
+            }
+            for (EnsembleStats stats : chunks) {
+                total.merge(stats);
+            }
+            ensembleStats = total;
+            lineChartPanel.showEnsemble(total);
+            updateBoardOverlay();
+            statusLabel.setText("Ensemble: " + total.runs + "/" + runs + " runs");
         }
         
-        // 5. Recycle tokens: positions 2-7 go back to bag, 1,8-11 go back to pool
-        java.util.Set<Integer> persistPositions = java.util.Set.of(1, 8, 9, 10, 11);
-        for (int i = 0; i < drawn.size(); i++) {
-            int pos = order[i];
-            FeedbackToken token = drawn.get(i);
-            if (!persistPositions.contains(pos)) {
-                // Positions 2-7: return to bag
-                bag.put(token, bag.get(token) + 1);
-            } else {
-                // Positions 1,8-11: return to token pool (need to check pool capacity limit)
-                int currentPoolCount = tokenPool.get(token);
-                int limit = getTokenLimit(token, tokenLimits);
-                if (currentPoolCount < limit) {
-                    tokenPool.put(token, currentPoolCount + 1);
-                }
-                // If pool is full, token is discarded
+        @Override
+        protected void done() {
+            if (ensemble != this) {
+                return;
+            }
+            ensemble = null;
+            updateCancelButton();
+            try {
+                get();
+                statusLabel.setText("Ensemble finished: " + runs + " runs (" + point.label() + ")");
+            } catch (ExecutionException e) {
+                JOptionPane.showMessageDialog(AnimatedGameVisualizer.this, "Ensemble failed: " + e.getCause().getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                statusLabel.setText("Error in ensemble runs");
+            } catch (InterruptedException | CancellationException e) {
+                statusLabel.setText("Ensemble cancelled after " + total.runs + " runs");
             }
         }
     }
     
-    private FeedbackToken toTokenFromState(State state) {
-        return switch (state) {
-            case WILDS -> FeedbackToken.WILDS;
-            case WASTES -> FeedbackToken.WASTES;
-            case DEVA -> FeedbackToken.DEVA;
-            case DEVB -> FeedbackToken.DEVB;
-        };
+    private void runEnsemble() {
+        if (lastSimulation == null) {
+            JOptionPane.showMessageDialog(this, "Create random data or a custom simulation first; the ensemble reruns its configuration.", "Ensemble Runs", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        String input = JOptionPane.showInputDialog(this, "Number of runs:", "1000");
+        if (input == null) {
+            return;
+        }
+        int runs;
+        try {
+            runs = Integer.parseInt(input.trim());
+        } catch (NumberFormatException e) {
+            runs = 0;
+        }
+        if (runs < 1) {
+            JOptionPane.showMessageDialog(this, "Please enter a positive number of runs", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        if (ensemble != null) {
+            ensemble.cancel(true);
+        }
+        lineChartPanel.clearEnsemble();
+        ensembleStats = null;
+        updateBoardOverlay();
+        ensemble = new EnsembleWorker(lastSimulation, runs);
+        updateCancelButton();
+        statusLabel.setText("Ensemble: 0/" + runs + " runs");
+        ensemble.execute();
     }
     
-    private int getTokenLimit(FeedbackToken token, int[] tokenLimits) {
-        return switch (token) {
-            case WILDS -> tokenLimits[0];
-            case WASTES -> tokenLimits[1];
-            case DEVA -> tokenLimits[2];
-            case DEVB -> tokenLimits[3];
-        };
+    private SweepPoint sweepPoint(int rounds, Map<Integer, State> initialStates, int[] tokenLimits, int version) {
+        State[] initial = new State[11];
+        for (int i = 0; i < initial.length; i++) {
+            initial[i] = initialStates.getOrDefault(i + 1, State.WILDS);
+        }
+        return new SweepPoint(rounds, version, tokenLimits.clone(), initial);
     }
     
-    private FeedbackToken drawTokenFromBag(java.util.Map<FeedbackToken, Integer> bag, java.util.Random rng) {
-        // Find available tokens
-        java.util.List<FeedbackToken> available = new java.util.ArrayList<>();
-        for (java.util.Map.Entry<FeedbackToken, Integer> entry : bag.entrySet()) {
-            if (entry.getValue() > 0) {
-                available.add(entry.getKey());
-            }
+    private void startGeneration(SimulationWorker worker) {
+        discardBackgroundJobs();
+        stopAnimation();
+        generator = worker;
+        lastSimulation = worker.point;
+        updateCancelButton();
+        statusLabel.setText("Generating " + worker.description + ": " + worker.rounds + " rounds (Stage " + worker.version + ")...");
+        worker.execute();
+    }
+    
+    /** Abort the background simulation and ensemble, if any; returns whether one was running. */
+    private boolean cancelGeneration() {
+        boolean running = generator != null || ensemble != null;
+        if (generator != null) {
+            generator.cancel(false);
+            generator = null;
         }
-        
-        if (available.isEmpty()) {
-            // If bag is empty, return random token
-            FeedbackToken[] all = FeedbackToken.values();
-            return all[rng.nextInt(all.length)];
+        if (ensemble != null) {
+            ensemble.cancel(true); // interrupts the batch run
+            ensemble = null;
         }
-        
-        // Draw random token from available ones
-        FeedbackToken token = available.get(rng.nextInt(available.size()));
-        bag.put(token, bag.get(token) - 1);
-        return token;
+        updateCancelButton();
+        return running;
+    }
+    
+    /** New data replaces the shown configuration: stop its jobs and drop its ensemble bands. */
+    private void discardBackgroundJobs() {
+        cancelGeneration();
+        lineChartPanel.clearEnsemble();
+        ensembleStats = null;
+        updateBoardOverlay();
     }
     
-    private void resolveTokenOnStack(FeedbackToken token, State[] currentStates, int stackIndex) {
-        // Apply token resolution rules according to FeedbackToken.resolveOn logic
-        switch (token) {
-            case WILDS -> currentStates[stackIndex] = State.WILDS;   // set to wilds
-            case DEVA -> currentStates[stackIndex] = State.WASTES;  // DevA token: set the state to wastes
-            case WASTES, DEVB -> {
-                // No effect at this stage
+    /** Show the ensemble probabilities on the board when selected and available, else the replay. */
+    private void updateBoardOverlay() {
+        int view = boardViewBox.getSelectedIndex(); // 0 = replay, 1 = pie of all states, 2.. = one state
+        if (view <= 0 || ensembleStats == null || ensembleStats.runs == 0) {
+            hexagonPanel.setProbabilities(null, -1);
+            return;
+        }
+        // Round on screen (generated rounds start at 0), or the last round when nothing is loaded
+        int round = ensembleStats.turns;
+        if (multiRoundData != null && currentRoundIndex < multiRoundData.getRounds().size()) {
+            round = Math.min(Math.max(multiRoundData.getRounds().get(currentRoundIndex).getRound_number(), 0), ensembleStats.turns);
+        }
+        hexagonPanel.setProbabilities(ensembleStats.positionProbabilities(round), view - 2);
+    }
+    
+    private void updateCancelButton() {
+        cancelButton.setEnabled(generator != null || ensemble != null);
+    }
+    
+    private void onRoundsGenerated(SimulationWorker worker, List<RoundData> chunk) {
+        List<RoundData> rounds = worker.data.getRounds();
+        boolean first = rounds.isEmpty();
+        rounds.addAll(chunk);
+        animationControlPanel.setTotalRounds(rounds.size());
+        
+        if (first) {
+            // First round is ready: show it now, the rest is appended while playing
+            multiRoundData = worker.data;
+            currentRoundIndex = 0;
+            currentGameData = convertRoundToGameData(rounds.get(0));
+            
+            // Reset line chart state to ensure new data displays correctly
+            if (animationControlPanel.isDynamicChartEnabled()) {
+                lineChartPanel.setDynamicMode(true);
+                lineChartPanel.resetDynamicState();
+                // Only update multiRoundData reference, do not display static chart
+                lineChartPanel.setMultiRoundData(multiRoundData);
+                lineChartPanel.forceRecalculateAxisRange();
+            } else {
+                lineChartPanel.setDynamicMode(false);
+                // Force reset axis range to ensure new data displays correctly
+                lineChartPanel.restoreAutoScaling();
             }
+            
+            updateDisplay();
+            animationControlPanel.setCurrentRound(1);
+        } else if (!animationControlPanel.isDynamicChartEnabled()) {
+            // Static chart shows every round generated so far (counted incrementally)
+            lineChartPanel.updateFromMultiRoundData(multiRoundData);
         }
     }
     
-    private RoundData createRoundData(int round, State[] currentStates, java.util.Map<FeedbackToken, Integer> tokenPool, int totalRounds, int[] tokenLimits) {
-        return createRoundData(round, currentStates, tokenPool, null, totalRounds, tokenLimits);
+    private void onGenerationFinished(SimulationWorker worker) {
+        generator = null;
+        updateCancelButton();
+        try {
+            worker.get();
+            statusLabel.setText("Generated " + worker.description + ": " + worker.rounds + " rounds (Stage " + worker.version + ")");
+            // Don't ask for save immediately - wait for animation to complete
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            JOptionPane.showMessageDialog(this, "Failed to generate " + worker.description + ": " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            statusLabel.setText("Error generating " + worker.description);
+        } catch (InterruptedException | CancellationException e) {
+            statusLabel.setText("Generation cancelled");
+        }
     }
     
-    private RoundData createRoundData(int round, State[] currentStates, java.util.Map<FeedbackToken, Integer> tokenPool, java.util.Map<FeedbackToken, Integer> bag, int totalRounds, int[] tokenLimits) {
+    private RoundData createRoundData(RoundEvent event) {
         RoundData roundData = new RoundData();
-        roundData.setRound_number(round);
+        roundData.setRound_number(event.round());
         
         // Create game board
         GameBoard board = new GameBoard();
         java.util.List<HexData> hexes = new java.util.ArrayList<>();
         
         // Create hexes based on current states
-        for (int i = 0; i < 11; i++) {
-            String stateName = currentStates[i].name();
-            HexData hex = new HexData(i + 1, stateName, getColorFromState(stateName));
+        for (int id = 1; id <= event.stacks(); id++) {
+            String stateName = event.state(id).name();
+            HexData hex = new HexData(id, stateName, getColorFromState(stateName));
             hexes.add(hex);
         }
         
@@ -596,45 +657,19 @@ public class AnimatedGameVisualizer extends JFrame {
         
         // Create game state
         GameState gameState = new GameState();
-        gameState.setCurrent_round(round);
-        gameState.setMax_rounds(totalRounds);
-        // Bag total is the sum of tokens currently in the bag (if bag is provided)
-        if (bag != null) {
-            gameState.setBag_total(bag.values().stream().mapToInt(Integer::intValue).sum());
-        } else {
-            gameState.setBag_total(0); // Round 0 has no bag
-        }
+        gameState.setCurrent_round(event.round());
+        gameState.setMax_rounds(event.turns());
+        gameState.setBag_total(event.bagTotal());
         roundData.setGame_state(gameState);
         
         // Create tokens (current bag state - what's displayed in Game Info)
         Tokens tokens = new Tokens();
-        if (bag != null) {
-            tokens.setWilds(bag.get(FeedbackToken.WILDS));
-            tokens.setWastes(bag.get(FeedbackToken.WASTES));
-            tokens.setDevA(bag.get(FeedbackToken.DEVA));
-            tokens.setDevB(bag.get(FeedbackToken.DEVB));
-        } else {
-            // Round 0 has no bag
-            tokens.setWilds(0);
-            tokens.setWastes(0);
-            tokens.setDevA(0);
-            tokens.setDevB(0);
-        }
+        tokens.setWilds(event.bagCount(FeedbackToken.WILDS));
+        tokens.setWastes(event.bagCount(FeedbackToken.WASTES));
+        tokens.setDevA(event.bagCount(FeedbackToken.DEVA));
+        tokens.setDevB(event.bagCount(FeedbackToken.DEVB));
         roundData.setTokens(tokens);
         
-        // Debug: Print states
-        System.out.println("Round " + round + " - Token Pool: WILDS=" + tokenPool.get(FeedbackToken.WILDS) + 
-                          ", WASTES=" + tokenPool.get(FeedbackToken.WASTES) + 
-                          ", DEVA=" + tokenPool.get(FeedbackToken.DEVA) + 
-                          ", DEVB=" + tokenPool.get(FeedbackToken.DEVB));
-        if (bag != null) {
-            System.out.println("Round " + round + " - Bag (Displayed): WILDS=" + bag.get(FeedbackToken.WILDS) + 
-                              ", WASTES=" + bag.get(FeedbackToken.WASTES) + 
-                              ", DEVA=" + bag.get(FeedbackToken.DEVA) + 
-                              ", DEVB=" + bag.get(FeedbackToken.DEVB) + 
-                              ", Total=" + bag.values().stream().mapToInt(Integer::intValue).sum());
-        }
-        
         return roundData;
     }
     
@@ -730,6 +765,8 @@ public class AnimatedGameVisualizer extends JFrame {
         
         int result = fileChooser.showOpenDialog(this);
         if (result == JFileChooser.APPROVE_OPTION) {
+            discardBackgroundJobs();
+            lastSimulation = null;
             try {
                 JsonReader reader = new JsonReader();
                 GameData singleGameData = reader.readUniversalSingleRoundData(fileChooser.getSelectedFile().getAbsolutePath());
@@ -778,6 +815,8 @@ public class AnimatedGameVisualizer extends JFrame {
         
         int result = fileChooser.showOpenDialog(this);
         if (result == JFileChooser.APPROVE_OPTION) {
+            discardBackgroundJobs();
+            lastSimulation = null;
             try {
                 // Use UniversalDataConverter to automatically detect format and convert
                 multiRoundData = UniversalDataConverter.convertFileToMultiRound(fileChooser.getSelectedFile().getAbsolutePath());
@@ -816,7 +855,9 @@ public class AnimatedGameVisualizer extends JFrame {
     
     private void updateDisplay() {
         if (currentGameData != null) {
-            hexagonPanel = new HexagonPanel(currentGameData.getBoard().getHexes());
+            // The board stays in place; it repaints only the hexes that changed
+            hexagonPanel.setHexes(currentGameData.getBoard().getHexes());
+            updateBoardOverlay();
             gameInfoPanel.updateGameInfo(currentGameData);
             chartPanel.updateFromGameData(currentGameData);
             
@@ -824,20 +865,13 @@ public class AnimatedGameVisualizer extends JFrame {
             if (animationControlPanel.isDynamicChartEnabled()) {
                 // Dynamic mode: only update current round data
                 // Only set on first enable of dynamic mode to avoid repeated clearing
+                if (multiRoundData != null) {
+                    lineChartPanel.setMultiRoundData(multiRoundData);
+                }
                 if (!lineChartPanel.isDynamicMode()) {
                     lineChartPanel.setDynamicMode(true);
-                    // On first enable, add all data from round 1 to current round
-                    for (int i = 0; i <= currentRoundIndex; i++) {
-                        if (multiRoundData != null && i < multiRoundData.getRounds().size()) {
-                            GameData roundData = convertRoundToGameData(multiRoundData.getRounds().get(i));
-                            Map<String, Integer> roundStackCounts = new HashMap<>();
-                            for (HexData hex : roundData.getBoard().getHexes()) {
-                                String stackType = hex.getType();
-                                roundStackCounts.put(stackType, roundStackCounts.getOrDefault(stackType, 0) + 1);
-                            }
-                            lineChartPanel.addDynamicRoundData(i + 1, roundStackCounts);
-                        }
-                    }
+                    // On first enable, show all data from round 1 to current round in one update
+                    lineChartPanel.setDynamicRoundTo(currentRoundIndex + 1);
                 } else {
                     // Check if rollback is needed
                     int currentRound = currentRoundIndex + 1;
@@ -848,8 +882,10 @@ public class AnimatedGameVisualizer extends JFrame {
                         lineChartPanel.setDynamicRoundTo(currentRound);
                     } else if (currentRound == dynamicRound + 1) {
                         // Normal advance: only add current round data
-                        Map<String, Integer> stackCounts = getCurrentRoundStackCounts();
-                        lineChartPanel.addDynamicRoundData(currentRound, stackCounts);
+                        lineChartPanel.advanceDynamicRound(currentRound);
+                    } else if (currentRound > dynamicRound + 1) {
+                        // Skipped frames or a jump forward: catch up in one update
+                        lineChartPanel.setDynamicRoundTo(currentRound);
                     }
                     // If currentRound == dynamicRound, no change, no update needed
                 }
@@ -864,28 +900,6 @@ public class AnimatedGameVisualizer extends JFrame {
             }
             
             updateStatusLabel();
-            
-            // Only update hexagonPanel, do not rebuild entire layout
-            if (hexagonPanel != null) {
-                // Find hexagonPanel position in layout and update
-                Container contentPane = getContentPane();
-                Component[] components = contentPane.getComponents();
-                for (Component comp : components) {
-                    if (comp instanceof JPanel) {
-                        JPanel panel = (JPanel) comp;
-                        Component[] subComponents = panel.getComponents();
-                        for (Component subComp : subComponents) {
-                            if (subComp instanceof HexagonPanel) {
-                                panel.remove(subComp);
-                                panel.add(hexagonPanel, BorderLayout.CENTER);
-                                panel.revalidate();
-                                panel.repaint();
-                                break;
-                            }
-                        }
-                    }
-                }
-            }
         }
     }
     
@@ -904,51 +918,56 @@ public class AnimatedGameVisualizer extends JFrame {
     
     // Animation control methods
     private void startAnimation() {
-        if (animationTimer != null) {
-            animationTimer.cancel();
+        if (animationControlPanel.isPlaying()) {
+            restartFrameClock();
+            frameClock.start();
         }
-        
-        scheduleNextFrame();
     }
     
-    private void scheduleNextFrame() {
-        if (animationControlPanel.isPlaying()) {
-            animationTimer = new Timer();
-            animationTimer.schedule(new TimerTask() {
-                @Override
-                public void run() {
-                    SwingUtilities.invokeLater(() -> {
-                        goToNextRound();
-                        if (currentRoundIndex >= multiRoundData.getRounds().size() - 1) {
-                            if (animationControlPanel.isLoopEnabled()) {
-                                goToRound(1);
-                            } else {
-                                stopAnimation();
-                                // Animation complete, prompt user to save
-                                statusLabel.setText("🎉 Animation completed! Use 'Save Data' button to save results.");
-                            }
-                        } else {
-                            // Schedule next frame with current speed
-                            scheduleNextFrame();
-                        }
-                    });
-                }
-            }, animationControlPanel.getAnimationSpeed());
+    private void restartFrameClock() {
+        clockStart = System.nanoTime();
+        framesPlayed = 0;
+    }
+    
+    private void onFrameTick() {
+        if (!animationControlPanel.isPlaying() || multiRoundData == null || multiRoundData.getRounds().isEmpty()) {
+            frameClock.stop();
+            return;
+        }
+        long period = animationControlPanel.getAnimationSpeed() * 1_000_000L;
+        long due = (System.nanoTime() - clockStart) / period;
+        if (due <= framesPlayed) {
+            return;
+        }
+        // Behind schedule (slow render or a busy EDT): jump over the missed rounds, render once
+        int steps = (int) Math.min(due - framesPlayed, Integer.MAX_VALUE);
+        framesPlayed = due;
+        
+        int lastIndex = multiRoundData.getRounds().size() - 1;
+        if (currentRoundIndex >= lastIndex && generator != null && multiRoundData == generator.data) {
+            // Caught up with the simulation still running: wait for its next rounds
+            return;
+        }
+        if (currentRoundIndex < lastIndex) {
+            goToRound((int) Math.min((long) currentRoundIndex + steps, lastIndex) + 1);
+        }
+        if (currentRoundIndex >= lastIndex) {
+            if (animationControlPanel.isLoopEnabled()) {
+                goToRound(1);
+            } else {
+                stopAnimation();
+                // Animation complete, prompt user to save
+                statusLabel.setText("🎉 Animation completed! Use 'Save Data' button to save results.");
+            }
         }
     }
     
     private void pauseAnimation() {
-        if (animationTimer != null) {
-            animationTimer.cancel();
-            animationTimer = null;
-        }
+        frameClock.stop();
     }
     
     private void stopAnimation() {
-        if (animationTimer != null) {
-            animationTimer.cancel();
-            animationTimer = null;
-        }
+        frameClock.stop();
         animationControlPanel.setPlaying(false);
     }
     
@@ -966,6 +985,7 @@ public class AnimatedGameVisualizer extends JFrame {
             updateDisplay();
             animationControlPanel.setCurrentRound(1);
             // Start playing directly
+            animationControlPanel.setPlaying(true);
             startAnimation();
         }
     }
@@ -991,21 +1011,6 @@ public class AnimatedGameVisualizer extends JFrame {
         }
     }
     
-    /**
-     * Get current round stack count (hexagon position type statistics)
-     */
-    private Map<String, Integer> getCurrentRoundStackCounts() {
-        Map<String, Integer> stackCounts = new HashMap<>();
-        if (currentGameData != null && currentGameData.getBoard() != null) {
-            // Count various types of hexagons
-            for (HexData hex : currentGameData.getBoard().getHexes()) {
-                String stackType = hex.getType();
-                stackCounts.put(stackType, stackCounts.getOrDefault(stackType, 0) + 1);
-            }
-        }
-        return stackCounts;
-    }
-    
     private void updateCurrentRound() {
         if (multiRoundData != null && currentRoundIndex < multiRoundData.getRounds().size()) {
             currentGameData = convertRoundToGameData(multiRoundData.getRounds().get(currentRoundIndex));
@@ -1104,6 +1109,8 @@ public class AnimatedGameVisualizer extends JFrame {
     }
     
     private void loadFileAutomatically(String filePath) {
+        discardBackgroundJobs();
+        lastSimulation = null;
         try {
             // Use UniversalDataConverter to automatically detect format and convert
             multiRoundData = UniversalDataConverter.convertFileToMultiRound(filePath);
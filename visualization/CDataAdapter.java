@@ -2,6 +2,9 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -9,72 +12,82 @@ public class CDataAdapter {
     
     public static MultiRoundGameData convertToMultiRound(String jsonString) {
         try {
-            JsonArray root = JsonParser.parseString(jsonString).getAsJsonArray();
-            MultiRoundGameData multiRoundData = new MultiRoundGameData();
-            
-            List<RoundData> rounds = new ArrayList<>();
-            
-            for (JsonElement roundElement : root) {
-                JsonObject roundObj = roundElement.getAsJsonObject();
-                RoundData roundData = new RoundData();
-                
-                // Set round number (1-based)
-                roundData.setRound_number(rounds.size() + 1);
-                
-                // Convert board
-                GameBoard board = new GameBoard();
-                List<HexData> hexes = new ArrayList<>();
-                
-                JsonObject boardObj = roundObj.getAsJsonObject("board");
-                JsonArray hexArray = boardObj.getAsJsonArray("hex");
-                
-                for (JsonElement hexElement : hexArray) {
-                    JsonObject hexObj = hexElement.getAsJsonObject();
-                    
-                    int id = hexObj.get("id").getAsInt();
-                    String type = hexObj.get("type").getAsString();
-                    
-                    // Use new constructor that handles single-type to layered mapping
-                    HexData hex = new HexData(id, type, getColorFromType(type));
-                    
-                    hexes.add(hex);
-                }
-                
-                board.setHexes(hexes);
-                roundData.setBoard(board);
-                
-                // Convert game state
-                GameState gameState = new GameState();
-                JsonObject gameStateObj = roundObj.getAsJsonObject("game_state");
-                gameState.setCurrent_round(gameStateObj.get("current_round").getAsInt());
-                gameState.setMax_rounds(gameStateObj.get("max_round").getAsInt()); // Note: "max_round" not "max_rounds"
-                gameState.setBag_total(gameStateObj.get("bag_total").getAsInt());
-                
-                roundData.setGame_state(gameState);
-                
-                // Convert tokens
-                Tokens tokens = new Tokens();
-                JsonObject tokensObj = roundObj.getAsJsonObject("tokens");
-                tokens.setWilds(tokensObj.get("Wilds").getAsInt());
-                tokens.setWastes(tokensObj.get("Wastes").getAsInt());
-                tokens.setDevA(tokensObj.get("DevA").getAsInt());
-                tokens.setDevB(tokensObj.get("DevB").getAsInt());
-                
-                roundData.setTokens(tokens);
-                rounds.add(roundData);
-            }
-            
-            multiRoundData.setRounds(rounds);
-            multiRoundData.setTotal_rounds(rounds.size());
-            multiRoundData.setVersion(rounds.get(0).getGame_state().getCurrent_round()); // Use first round's version
-            
-            return multiRoundData;
-            
+            return readRounds(new JsonReader(new StringReader(jsonString)));
         } catch (Exception e) {
             e.printStackTrace();
             return null;
         }
     }
+
+    /** Convert the array of rounds one element at a time; only the current round is held as a tree. */
+    static MultiRoundGameData readRounds(JsonReader in) throws IOException {
+        MultiRoundGameData multiRoundData = new MultiRoundGameData();
+        
+        List<RoundData> rounds = new ArrayList<>();
+        
+        in.beginArray();
+        while (in.hasNext()) {
+            JsonObject roundObj = JsonParser.parseReader(in).getAsJsonObject();
+            rounds.add(toRoundData(roundObj, rounds.size() + 1));
+        }
+        in.endArray();
+        
+        multiRoundData.setRounds(rounds);
+        multiRoundData.setTotal_rounds(rounds.size());
+        multiRoundData.setVersion(rounds.get(0).getGame_state().getCurrent_round()); // Use first round's version
+        
+        return multiRoundData;
+    }
+    
+    /** Convert one element of the C array; roundNumber is 1-based. */
+    static RoundData toRoundData(JsonObject roundObj, int roundNumber) {
+        RoundData roundData = new RoundData();
+        
+        // Set round number (1-based)
+        roundData.setRound_number(roundNumber);
+        
+        // Convert board
+        GameBoard board = new GameBoard();
+        List<HexData> hexes = new ArrayList<>();
+        
+        JsonObject boardObj = roundObj.getAsJsonObject("board");
+        JsonArray hexArray = boardObj.getAsJsonArray("hex");
+        
+        for (JsonElement hexElement : hexArray) {
+            JsonObject hexObj = hexElement.getAsJsonObject();
+            
+            int id = hexObj.get("id").getAsInt();
+            String type = hexObj.get("type").getAsString();
+            
+            // Use new constructor that handles single-type to layered mapping
+            HexData hex = new HexData(id, type, getColorFromType(type));
+            
+            hexes.add(hex);
+        }
+        
+        board.setHexes(hexes);
+        roundData.setBoard(board);
+        
+        // Convert game state
+        GameState gameState = new GameState();
+        JsonObject gameStateObj = roundObj.getAsJsonObject("game_state");
+        gameState.setCurrent_round(gameStateObj.get("current_round").getAsInt());
+        gameState.setMax_rounds(gameStateObj.get("max_round").getAsInt()); // Note: "max_round" not "max_rounds"
+        gameState.setBag_total(gameStateObj.get("bag_total").getAsInt());
+        
+        roundData.setGame_state(gameState);
+        
+        // Convert tokens
+        Tokens tokens = new Tokens();
+        JsonObject tokensObj = roundObj.getAsJsonObject("tokens");
+        tokens.setWilds(tokensObj.get("Wilds").getAsInt());
+        tokens.setWastes(tokensObj.get("Wastes").getAsInt());
+        tokens.setDevA(tokensObj.get("DevA").getAsInt());
+        tokens.setDevB(tokensObj.get("DevB").getAsInt());
+        
+        roundData.setTokens(tokens);
+        return roundData;
+    }
     
     private static String getColorFromType(String type) {
         switch (type) {
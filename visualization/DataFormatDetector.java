@@ -2,6 +2,12 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonElement;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.Reader;
+import java.io.StringReader;
 
 public class DataFormatDetector {
     
@@ -13,55 +19,81 @@ public class DataFormatDetector {
     }
     
     public static DataFormat detectFormat(String jsonString) {
+        return detectFormat(new StringReader(jsonString));
+    }
+    
+    public static DataFormat detectFormatFromFile(String filePath) {
+        try (Reader reader = new BufferedReader(new FileReader(filePath))) {
+            return detectFormat(reader);
+        } catch (Exception e) {
+            return DataFormat.UNKNOWN;
+        }
+    }
+    
+    /**
+     * Sniff the format from the leading tokens and stop as soon as it is known; sections that
+     * do not decide the format are skipped without building a tree.
+     */
+    public static DataFormat detectFormat(Reader reader) {
         try {
-            JsonElement root = JsonParser.parseString(jsonString);
+            JsonReader in = new JsonReader(reader);
+            JsonToken first = in.peek();
             
             // Check if it's an array (C format)
-            if (root.isJsonArray()) {
+            if (first == JsonToken.BEGIN_ARRAY) {
                 return DataFormat.C_FORMAT;
             }
+            if (first != JsonToken.BEGIN_OBJECT) {
+                return DataFormat.UNKNOWN;
+            }
             
-            // Check if it's an object
-            if (root.isJsonObject()) {
-                JsonObject obj = root.getAsJsonObject();
-                
-                // Check for Java format indicators
-                if (obj.has("legend") && obj.has("timeline")) {
-                    return DataFormat.JAVA_FORMAT;
-                }
-                
-                // Check for your format indicators (single round)
-                if (obj.has("board")) {
-                    JsonObject board = obj.getAsJsonObject("board");
-                    if (board.has("hexes")) {
-                        JsonArray hexes = board.getAsJsonArray("hexes");
-                        if (hexes.size() > 0) {
-                            JsonObject firstHex = hexes.get(0).getAsJsonObject();
-                            if (firstHex.has("baseType") || firstHex.has("topType")) {
-                                return DataFormat.MY_FORMAT;
-                            }
+            boolean legend = false, timeline = false;
+            boolean totalRounds = false, layeredRounds = false;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "legend":
+                        legend = true;
+                        in.skipValue();
+                        break;
+                    case "timeline":
+                    case "timeline_delta":
+                        timeline = true;
+                        in.skipValue();
+                        break;
+                    case "board":
+                        // Your format indicators (single round)
+                        if (hasLayeredHexes(JsonParser.parseReader(in))) {
+                            return DataFormat.MY_FORMAT;
+                        }
+                        break;
+                    case "total_rounds":
+                        totalRounds = true;
+                        in.skipValue();
+                        break;
+                    case "rounds":
+                        // Your multi-round format: only the first round is looked at
+                        in.beginArray();
+                        if (in.hasNext()) {
+                            JsonElement firstRound = JsonParser.parseReader(in);
+                            layeredRounds = firstRound.isJsonObject()
+                                    && hasLayeredHexes(firstRound.getAsJsonObject().get("board"));
+                        }
+                        while (in.hasNext()) {
+                            in.skipValue();
                         }
-                    }
+                        in.endArray();
+                        break;
+                    default:
+                        in.skipValue();
                 }
                 
-                // Check for your multi-round format indicators
-                if (obj.has("rounds") && obj.has("total_rounds")) {
-                    JsonArray rounds = obj.getAsJsonArray("rounds");
-                    if (rounds.size() > 0) {
-                        JsonObject firstRound = rounds.get(0).getAsJsonObject();
-                        if (firstRound.has("board")) {
-                            JsonObject board = firstRound.getAsJsonObject("board");
-                            if (board.has("hexes")) {
-                                JsonArray hexes = board.getAsJsonArray("hexes");
-                                if (hexes.size() > 0) {
-                                    JsonObject firstHex = hexes.get(0).getAsJsonObject();
-                                    if (firstHex.has("baseType") || firstHex.has("topType")) {
-                                        return DataFormat.MY_FORMAT;
-                                    }
-                                }
-                            }
-                        }
-                    }
+                // Java format indicators
+                if (legend && timeline) {
+                    return DataFormat.JAVA_FORMAT;
+                }
+                if (layeredRounds && totalRounds) {
+                    return DataFormat.MY_FORMAT;
                 }
             }
             
@@ -71,18 +103,19 @@ public class DataFormatDetector {
         }
     }
     
-    public static DataFormat detectFormatFromFile(String filePath) {
-        try {
-            java.io.FileReader reader = new java.io.FileReader(filePath);
-            StringBuilder content = new StringBuilder();
-            int ch;
-            while ((ch = reader.read()) != -1) {
-                content.append((char) ch);
+    /** True when the first hex of a board uses the layered baseType/topType fields. */
+    static boolean hasLayeredHexes(JsonElement board) {
+        if (board == null || !board.isJsonObject()) {
+            return false;
+        }
+        JsonObject boardObj = board.getAsJsonObject();
+        if (boardObj.has("hexes")) {
+            JsonArray hexes = boardObj.getAsJsonArray("hexes");
+            if (hexes.size() > 0) {
+                JsonObject firstHex = hexes.get(0).getAsJsonObject();
+                return firstHex.has("baseType") || firstHex.has("topType");
             }
-            reader.close();
-            return detectFormat(content.toString());
-        } catch (Exception e) {
-            return DataFormat.UNKNOWN;
         }
+        return false;
     }
 }
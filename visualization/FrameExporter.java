@@ -0,0 +1,451 @@
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless batch renderer: paints the stack pie, trend chart, board and game info of every round
+ * of one or more result files offscreen and writes a PNG sequence or an animated GIF per file.
+ *
+ * <pre>
+ * java -Djava.awt.headless=true FrameExporter [--out=frames] [--format=png|gif] [--threads=N]
+ *      [--every=K] [--delay=MS] result1.json result2.json ...
+ * </pre>
+ *
+ * Rounds are cut into chunks that are rendered in parallel. Every thread has its own renderer
+ * (drawer, charts), so only the read-only round data is shared. PNGs are written by the thread
+ * that rendered them; GIF frames are handed back and encoded in round order by the main thread
+ * while later chunks render. At most two chunks per thread are in flight, which bounds the
+ * memory held by pending frames.
+ */
+public class FrameExporter {
+    static final int SIDE_WIDTH = 300;
+    static final int BOARD_WIDTH = 900;
+    static final int INFO_WIDTH = 240;
+    static final int WIDTH = SIDE_WIDTH + BOARD_WIDTH + INFO_WIDTH;
+    static final int HEIGHT = 600;
+    private static final int PIE_HEIGHT = 250;
+    private static final int CHUNK = 32;
+
+    private static final Font TITLE_FONT = new Font("Arial", Font.BOLD, 12);
+    private static final Font INFO_FONT = new Font("Arial", Font.PLAIN, 12);
+    private static final Color PANEL_BACKGROUND = new Color(240, 240, 240);
+    // GIF palette: grays plus each board color blended towards white and black, for antialiased edges
+    private static final IndexColorModel GIF_PALETTE = gifPalette();
+    // Nearest palette entry + 1 for every color at 5 bits per channel, 0 until first use
+    private static final short[] GIF_LOOKUP = new short[1 << 15];
+
+    /** One input file and, for GIF output, its open writer. */
+    private static final class FileJob {
+        final String name;
+        final MultiRoundGameData data;
+        final int[] rounds; // round indices to render
+        final File outDir;
+        ImageWriter gif;
+        ImageOutputStream gifOut;
+        int framesWritten;
+
+        FileJob(String name, MultiRoundGameData data, int[] rounds, File outDir) {
+            this.name = name;
+            this.data = data;
+            this.rounds = rounds;
+            this.outDir = outDir;
+        }
+    }
+
+    /** Per-thread drawing state; the trend chart advances incrementally over consecutive rounds. */
+    private static final class FrameRenderer {
+        final HexagonDrawer drawer = new HexagonDrawer();
+        final ChartPanel pie = new ChartPanel();
+        final LineChartPanel trend = new LineChartPanel();
+        MultiRoundGameData trendData;
+
+        BufferedImage render(MultiRoundGameData data, int index) {
+            RoundData round = data.getRounds().get(index);
+            GameData gameData = new GameData();
+            gameData.setVersion(data.getVersion());
+            gameData.setBoard(round.getBoard());
+            gameData.setGame_state(round.getGame_state());
+            gameData.setTokens(round.getTokens());
+
+            // Trend up to this round on the axes of the whole file, as the dynamic chart in the GUI
+            if (trendData != data) {
+                trend.setMultiRoundData(data);
+                trend.setDynamicMode(true);
+                trendData = data;
+            }
+            int roundNumber = index + 1;
+            if (roundNumber == trend.getCurrentDynamicRound() + 1) {
+                trend.advanceDynamicRound(roundNumber);
+            } else if (roundNumber != trend.getCurrentDynamicRound()) {
+                trend.setDynamicRoundTo(roundNumber);
+            }
+            pie.updateFromGameData(gameData);
+
+            BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = image.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setColor(PANEL_BACKGROUND);
+            g.fillRect(0, 0, WIDTH, HEIGHT);
+
+            // Left: stack distribution and trend, right: game info, center: the board
+            drawChart(g, pie.getChartPanel().getChart(), "Stack Distribution Chart", 0, 0, SIDE_WIDTH, PIE_HEIGHT);
+            drawChart(g, trend.getChartPanel().getChart(), "Stack Trends", 0, PIE_HEIGHT, SIDE_WIDTH, HEIGHT - PIE_HEIGHT);
+            drawInfo(g, gameData, SIDE_WIDTH + BOARD_WIDTH, 0);
+
+            Graphics2D board = (Graphics2D) g.create(SIDE_WIDTH, 0, BOARD_WIDTH, HEIGHT);
+            board.setColor(Color.WHITE);
+            board.fillRect(0, 0, BOARD_WIDTH, HEIGHT);
+            drawer.drawHexagons(board, round.getBoard().getHexes(), BOARD_WIDTH, HEIGHT);
+            board.dispose();
+            g.dispose();
+            return image;
+        }
+
+        private static void drawChart(Graphics2D g, org.jfree.chart.JFreeChart chart, String title, int x, int y, int w, int h) {
+            g.setFont(TITLE_FONT);
+            g.setColor(Color.DARK_GRAY);
+            g.drawString(title, x + 8, y + 16);
+            chart.draw(g, new Rectangle2D.Double(x + 5, y + 22, w - 10, h - 27));
+        }
+
+        // The fields of GameInfoPanel
+        private static void drawInfo(Graphics2D g, GameData gameData, int x, int y) {
+            GameState state = gameData.getGame_state();
+            Tokens tokens = gameData.getTokens();
+            int total = tokens.getWilds() + tokens.getWastes() + tokens.getDevA() + tokens.getDevB();
+            String[] lines = {
+                    "Current Round: " + state.getCurrent_round(),
+                    "Max Rounds: " + state.getMax_rounds(),
+                    "Bag Total: " + state.getBag_total(),
+                    "",
+                    "Token Counts:",
+                    "Wilds: " + tokens.getWilds() + "    Wastes: " + tokens.getWastes(),
+                    "DevA: " + tokens.getDevA() + "    DevB: " + tokens.getDevB(),
+                    "",
+                    "Token Percentages:",
+                    String.format("Wilds %%: %.1f%%", percent(tokens.getWilds(), total)),
+                    String.format("Wastes %%: %.1f%%", percent(tokens.getWastes(), total)),
+                    String.format("DevA %%: %.1f%%", percent(tokens.getDevA(), total)),
+                    String.format("DevB %%: %.1f%%", percent(tokens.getDevB(), total)),
+            };
+            g.setFont(TITLE_FONT);
+            g.setColor(Color.DARK_GRAY);
+            g.drawString("Game Information", x + 8, y + 16);
+            g.setFont(INFO_FONT);
+            g.setColor(Color.BLACK);
+            for (int i = 0; i < lines.length; i++) {
+                g.drawString(lines[i], x + 12, y + 40 + 18 * i);
+            }
+        }
+
+        private static double percent(int count, int total) {
+            return total > 0 ? (double) count / total * 100 : 0;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String out = "frames";
+        String format = "png";
+        int threads = Runtime.getRuntime().availableProcessors();
+        int every = 1;
+        int delayMs = 200;
+        List<String> files = new ArrayList<>();
+        for (String a : args) {
+            if (a.startsWith("--out=")) {
+                out = a.substring(6);
+            } else if (a.startsWith("--format=")) {
+                format = a.substring(9).toLowerCase();
+            } else if (a.startsWith("--threads=")) {
+                threads = Integer.parseInt(a.substring(10));
+            } else if (a.startsWith("--every=")) {
+                every = Integer.parseInt(a.substring(8));
+            } else if (a.startsWith("--delay=")) {
+                delayMs = Integer.parseInt(a.substring(8));
+            } else {
+                files.add(a);
+            }
+        }
+        if (files.isEmpty() || threads < 1 || every < 1 || !(format.equals("png") || format.equals("gif"))) {
+            System.out.println("Usage: FrameExporter [--out=frames] [--format=png|gif] [--threads=N] [--every=K] [--delay=MS] file.json ...");
+            System.exit(1);
+        }
+        System.setProperty("java.awt.headless", "true");
+
+        long start = System.nanoTime();
+        int frames = export(files, new File(out), format.equals("gif"), threads, every, delayMs);
+        System.out.printf("Rendered %d frames from %d file(s) in %.1f s -> %s%n",
+                frames, files.size(), (System.nanoTime() - start) / 1e9, out);
+    }
+
+    /** Render every K-th round (and the last) of each file; returns the number of frames. */
+    static int export(List<String> files, File outDir, boolean gif, int threads, int every, int delayMs)
+            throws IOException, InterruptedException {
+        if (!outDir.isDirectory() && !outDir.mkdirs()) {
+            throw new IOException("Cannot create output directory " + outDir);
+        }
+        AtomicInteger threadIds = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "frame-export-" + threadIds.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+        ThreadLocal<FrameRenderer> renderers = ThreadLocal.withInitial(FrameRenderer::new);
+        Deque<Future<List<BufferedImage>>> inFlight = new ArrayDeque<>();
+        Deque<FileJob> inFlightFiles = new ArrayDeque<>();
+        Deque<Boolean> lastChunk = new ArrayDeque<>();
+        int frames = 0;
+        try {
+            for (String path : files) {
+                FileJob job = load(path, outDir, gif, every);
+                if (job == null) {
+                    continue;
+                }
+                for (int from = 0; from < job.rounds.length; from += CHUNK) {
+                    int chunkFrom = from;
+                    int chunkTo = Math.min(from + CHUNK, job.rounds.length);
+                    if (inFlight.size() >= 2 * threads) {
+                        frames += finish(inFlight.poll(), inFlightFiles.poll(), lastChunk.poll(), delayMs);
+                    }
+                    inFlight.add(pool.submit(() -> renderChunk(renderers.get(), job, chunkFrom, chunkTo, gif)));
+                    inFlightFiles.add(job);
+                    lastChunk.add(chunkTo == job.rounds.length);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                frames += finish(inFlight.poll(), inFlightFiles.poll(), lastChunk.poll(), delayMs);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return frames;
+    }
+
+    private static FileJob load(String path, File outDir, boolean gif, int every) throws IOException {
+        MultiRoundGameData data;
+        try {
+            data = UniversalDataConverter.convertFileToMultiRound(path);
+        } catch (IOException e) {
+            System.out.println("Skipping " + path + ": " + e.getMessage());
+            return null;
+        }
+        if (data == null || data.getRounds() == null || data.getRounds().isEmpty()) {
+            System.out.println("Skipping " + path + ": no rounds");
+            return null;
+        }
+        int n = data.getRounds().size();
+        int count = (n - 1) / every + 1;
+        boolean addLast = (n - 1) % every != 0;
+        int[] rounds = new int[count + (addLast ? 1 : 0)];
+        for (int i = 0; i < count; i++) {
+            rounds[i] = i * every;
+        }
+        if (addLast) {
+            rounds[count] = n - 1;
+        }
+
+        String name = new File(path).getName().replaceFirst("\\.json$", "");
+        File dir = gif ? outDir : new File(outDir, name);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create output directory " + dir);
+        }
+        return new FileJob(name, data, rounds, dir);
+    }
+
+    private static List<BufferedImage> renderChunk(FrameRenderer renderer, FileJob job, int from, int to, boolean gif)
+            throws IOException {
+        List<BufferedImage> frames = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            int index = job.rounds[i];
+            BufferedImage image = renderer.render(job.data, index);
+            if (gif) {
+                frames.add(toGifPalette(image)); // quantize here, in parallel, not in the encoder
+            } else {
+                ImageIO.write(image, "png", new File(job.outDir, String.format("frame_%05d.png", index + 1)));
+                frames.add(null);
+            }
+        }
+        return frames;
+    }
+
+    // Waits for the oldest chunk, appends its frames to the file's GIF, closes the GIF after its last chunk
+    private static int finish(Future<List<BufferedImage>> chunk, FileJob job, boolean last, int delayMs)
+            throws IOException, InterruptedException {
+        List<BufferedImage> frames;
+        try {
+            frames = chunk.get();
+        } catch (ExecutionException e) {
+            throw new IOException("Rendering " + job.name + " failed", e.getCause());
+        }
+        for (BufferedImage frame : frames) {
+            if (frame != null) {
+                writeGifFrame(job, frame, delayMs);
+            }
+        }
+        if (last) {
+            if (job.gif != null) {
+                job.gif.endWriteSequence();
+                job.gifOut.close();
+                job.gif.dispose();
+                System.out.println("Wrote " + new File(job.outDir, job.name + ".gif") + " (" + job.framesWritten + " frames)");
+            } else {
+                System.out.println("Wrote " + job.rounds.length + " frames to " + job.outDir);
+            }
+        }
+        return frames.size();
+    }
+
+    private static void writeGifFrame(FileJob job, BufferedImage frame, int delayMs) throws IOException {
+        boolean first = job.gif == null;
+        if (first) {
+            job.gif = ImageIO.getImageWritersByFormatName("gif").next();
+            File file = new File(job.outDir, job.name + ".gif");
+            file.delete();
+            job.gifOut = ImageIO.createImageOutputStream(file);
+            job.gif.setOutput(job.gifOut);
+            job.gif.prepareWriteSequence(null);
+        }
+        IIOMetadata meta = job.gif.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(frame), null);
+        String formatName = meta.getNativeMetadataFormatName();
+        IIOMetadataNode root = (IIOMetadataNode) meta.getAsTree(formatName);
+        IIOMetadataNode control = child(root, "GraphicControlExtension");
+        control.setAttribute("disposalMethod", "none");
+        control.setAttribute("userInputFlag", "FALSE");
+        control.setAttribute("transparentColorFlag", "FALSE");
+        control.setAttribute("delayTime", String.valueOf(Math.max(1, delayMs / 10))); // 1/100 s
+        control.setAttribute("transparentColorIndex", "0");
+        // Our palette as the frame's color table (the sequence's default global table is a different one)
+        IIOMetadataNode table = child(root, "LocalColorTable");
+        table.setAttribute("sizeOfLocalColorTable", String.valueOf(GIF_PALETTE.getMapSize()));
+        table.setAttribute("sortFlag", "FALSE");
+        while (table.getLength() > 0) {
+            table.removeChild(table.getFirstChild());
+        }
+        for (int i = 0; i < GIF_PALETTE.getMapSize(); i++) {
+            IIOMetadataNode entry = new IIOMetadataNode("ColorTableEntry");
+            entry.setAttribute("index", String.valueOf(i));
+            entry.setAttribute("red", String.valueOf(GIF_PALETTE.getRed(i)));
+            entry.setAttribute("green", String.valueOf(GIF_PALETTE.getGreen(i)));
+            entry.setAttribute("blue", String.valueOf(GIF_PALETTE.getBlue(i)));
+            table.appendChild(entry);
+        }
+        if (first) {
+            // Loop forever
+            IIOMetadataNode app = new IIOMetadataNode("ApplicationExtension");
+            app.setAttribute("applicationID", "NETSCAPE");
+            app.setAttribute("authenticationCode", "2.0");
+            app.setUserObject(new byte[]{1, 0, 0});
+            child(root, "ApplicationExtensions").appendChild(app);
+        }
+        meta.setFromTree(formatName, root);
+        job.gif.writeToSequence(new IIOImage(frame, null, meta), null);
+        job.framesWritten++;
+    }
+
+    private static IIOMetadataNode child(IIOMetadataNode parent, String name) {
+        for (int i = 0; i < parent.getLength(); i++) {
+            if (parent.item(i).getNodeName().equalsIgnoreCase(name)) {
+                return (IIOMetadataNode) parent.item(i);
+            }
+        }
+        IIOMetadataNode node = new IIOMetadataNode(name);
+        parent.appendChild(node);
+        return node;
+    }
+
+    // Nearest-color mapping without dithering, so flat areas stay flat (and compress well)
+    private static BufferedImage toGifPalette(BufferedImage image) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        int[] rgb = image.getRGB(0, 0, w, h, null, 0, w);
+        byte[] pixels = new byte[w * h];
+        for (int i = 0; i < rgb.length; i++) {
+            int c = rgb[i];
+            int key = ((c >> 9) & 0x7c00) | ((c >> 6) & 0x3e0) | ((c >> 3) & 0x1f);
+            pixels[i] = paletteIndex(key);
+        }
+        BufferedImage indexed = new BufferedImage(w, h, BufferedImage.TYPE_BYTE_INDEXED, GIF_PALETTE);
+        indexed.getRaster().setDataElements(0, 0, w, h, pixels);
+        return indexed;
+    }
+
+    // Racy but idempotent: index and "set" live in one short, so a thread sees either 0 (compute it
+    // again) or the whole entry; two threads computing the same entry store the same value
+    private static byte paletteIndex(int key) {
+        int cached = GIF_LOOKUP[key];
+        if (cached != 0) {
+            return (byte) (cached - 1);
+        }
+        int r = ((key >> 10) & 0x1f) * 255 / 31;
+        int g = ((key >> 5) & 0x1f) * 255 / 31;
+        int b = (key & 0x1f) * 255 / 31;
+        int best = 0;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int i = 0; i < GIF_PALETTE.getMapSize(); i++) {
+            int dr = GIF_PALETTE.getRed(i) - r;
+            int dg = GIF_PALETTE.getGreen(i) - g;
+            int db = GIF_PALETTE.getBlue(i) - b;
+            int distance = dr * dr + dg * dg + db * db;
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = i;
+            }
+        }
+        GIF_LOOKUP[key] = (short) (best + 1);
+        return (byte) best;
+    }
+
+    private static IndexColorModel gifPalette() {
+        Color[] bases = {
+                new Color(0x51ad2f), new Color(0xa17a6d), new Color(0x0ca3dd), new Color(0xe172d3),
+                new Color(0x808080), new Color(0xff0000), new Color(0xffff00),
+        };
+        byte[] r = new byte[256], g = new byte[256], b = new byte[256];
+        int n = 0;
+        for (int i = 0; i < 48; i++) {
+            int v = i * 255 / 47;
+            r[n] = g[n] = b[n] = (byte) v;
+            n++;
+        }
+        for (Color c : bases) {
+            // 20 blends towards white (incl. the color itself), 8 towards black
+            for (int i = 0; i < 20; i++) {
+                double t = i / 20.0;
+                r[n] = (byte) (c.getRed() + (255 - c.getRed()) * t);
+                g[n] = (byte) (c.getGreen() + (255 - c.getGreen()) * t);
+                b[n] = (byte) (c.getBlue() + (255 - c.getBlue()) * t);
+                n++;
+            }
+            for (int i = 1; i <= 8; i++) {
+                double t = 1 - i / 9.0;
+                r[n] = (byte) (c.getRed() * t);
+                g[n] = (byte) (c.getGreen() * t);
+                b[n] = (byte) (c.getBlue() * t);
+                n++;
+            }
+        }
+        while (n < 256) {
+            r[n] = g[n] = b[n] = (byte) 255; // unused
+            n++;
+        }
+        return new IndexColorModel(8, 256, r, g, b);
+    }
+}
@@ -0,0 +1,161 @@
+import java.util.Arrays;
+
+/**
+ * Where every stack sits on the board, in axial hex coordinates (q, r) of flat-topped hexes,
+ * with stack 1 at (0, 0). Stacks 1-11 keep the classic board: 2-7 around the center clockwise
+ * from the top, 8-11 at the corners of the second ring. Further stacks fill the free cells ring
+ * by ring, clockwise from the top, so any number of stacks forms a compact hexagonal board.
+ *
+ * Positions are in units of the hex side: the center of a stack is (1.5 q, sqrt(3) (r + q / 2)).
+ * The inverse, cell to stack, is a dense grid over the board's rhombus and serves as the spatial
+ * index: finding the stack under a point or the stacks inside a rectangle costs in proportion to
+ * the cells involved, not to the size of the board.
+ */
+final class HexLayout {
+    static final double SQRT3 = Math.sqrt(3);
+    // Classic board, stack 1..11
+    private static final int[][] CLASSIC = {
+            {0, 0},
+            {0, -1}, {1, -1}, {1, 0}, {0, 1}, {-1, 1}, {-1, 0},
+            {-2, 0}, {2, -2}, {2, 0}, {-2, 2}};
+    // Steps that walk a ring clockwise, starting from its top cell (0, -ring)
+    private static final int[][] DIRECTIONS = {{1, 0}, {0, 1}, {-1, 1}, {-1, 0}, {0, -1}, {1, -1}};
+
+    final int stacks;
+    final int radius; // outermost ring in use
+    private final int[] qs, rs; // [stack - 1]
+    private final int[] cells;  // [(q + radius) * side + r + radius] -> stack, 0 = empty
+    private final int side;
+    // Extent of the stack centers, in hex sides
+    final double minX, maxX, minY, maxY;
+
+    HexLayout(int stacks) {
+        this.stacks = stacks;
+        qs = new int[stacks];
+        rs = new int[stacks];
+        int classic = Math.min(stacks, CLASSIC.length);
+        int placed = 0;
+        for (; placed < classic; placed++) {
+            qs[placed] = CLASSIC[placed][0];
+            rs[placed] = CLASSIC[placed][1];
+        }
+        int ring = classic > 7 ? 2 : classic > 1 ? 1 : 0;
+        // Beyond the classic board: walk the rings and take every cell it leaves free
+        for (int k = 1; placed < stacks; k++) {
+            int q = 0, r = -k;
+            for (int d = 0; d < DIRECTIONS.length && placed < stacks; d++) {
+                for (int step = 0; step < k && placed < stacks; step++) {
+                    if (!isClassic(q, r)) {
+                        qs[placed] = q;
+                        rs[placed] = r;
+                        placed++;
+                        ring = k;
+                    }
+                    q += DIRECTIONS[d][0];
+                    r += DIRECTIONS[d][1];
+                }
+            }
+        }
+        radius = ring;
+        side = 2 * radius + 1;
+        cells = new int[side * side];
+        double x0 = 0, x1 = 0, y0 = 0, y1 = 0;
+        for (int i = 0; i < stacks; i++) {
+            cells[(qs[i] + radius) * side + rs[i] + radius] = i + 1;
+            x0 = Math.min(x0, x(i + 1));
+            x1 = Math.max(x1, x(i + 1));
+            y0 = Math.min(y0, y(i + 1));
+            y1 = Math.max(y1, y(i + 1));
+        }
+        minX = x0;
+        maxX = x1;
+        minY = y0;
+        maxY = y1;
+    }
+
+    private static boolean isClassic(int q, int r) {
+        for (int[] cell : CLASSIC) {
+            if (cell[0] == q && cell[1] == r) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    double x(int stack) {
+        return 1.5 * qs[stack - 1];
+    }
+
+    double y(int stack) {
+        return SQRT3 * (rs[stack - 1] + qs[stack - 1] / 2.0);
+    }
+
+    /** Ring of the stack: its distance in hexes from stack 1. */
+    int ring(int stack) {
+        int q = qs[stack - 1], r = rs[stack - 1];
+        return Math.max(Math.abs(q), Math.max(Math.abs(r), Math.abs(q + r)));
+    }
+
+    /** Stack at a cell, or 0 when the cell is outside the board or empty. */
+    int stackAt(int q, int r) {
+        if (Math.abs(q) > radius || Math.abs(r) > radius) {
+            return 0;
+        }
+        return cells[(q + radius) * side + r + radius];
+    }
+
+    /** Stack whose hex contains the point (in hex sides), or 0. */
+    int stackAtPoint(double x, double y) {
+        // Fractional cube coordinates, rounded to the nearest cell
+        double fq = x / 1.5;
+        double fr = y / SQRT3 - fq / 2;
+        double fs = -fq - fr;
+        long q = Math.round(fq), r = Math.round(fr), s = Math.round(fs);
+        double dq = Math.abs(q - fq), dr = Math.abs(r - fr), ds = Math.abs(s - fs);
+        if (dq > dr && dq > ds) {
+            q = -r - s;
+        } else if (dr > ds) {
+            r = -q - s;
+        }
+        return stackAt((int) q, (int) r);
+    }
+
+    /**
+     * Stacks whose hexes may overlap the rectangle (in hex sides), in column order; a hex reaches
+     * up to one side from its center, so cells one step outside the rectangle are included.
+     */
+    int[] stacksIn(double x0, double y0, double x1, double y1) {
+        int qFrom = Math.max(-radius, (int) Math.floor(x0 / 1.5) - 1);
+        int qTo = Math.min(radius, (int) Math.ceil(x1 / 1.5) + 1);
+        int[] found = new int[16];
+        int n = 0;
+        for (int q = qFrom; q <= qTo; q++) {
+            int rFrom = Math.max(-radius, (int) Math.floor(y0 / SQRT3 - q / 2.0) - 1);
+            int rTo = Math.min(radius, (int) Math.ceil(y1 / SQRT3 - q / 2.0) + 1);
+            for (int r = rFrom; r <= rTo; r++) {
+                int stack = cells[(q + radius) * side + r + radius];
+                if (stack != 0) {
+                    if (n == found.length) {
+                        found = Arrays.copyOf(found, n * 2);
+                    }
+                    found[n++] = stack;
+                }
+            }
+        }
+        return Arrays.copyOf(found, n);
+    }
+
+    /** Label of the stack's ring: Inner, Middle and Outer on the classic board, "Ring n" further out. */
+    String ringName(int stack) {
+        switch (ring(stack)) {
+            case 0:
+                return "Inner";
+            case 1:
+                return "Middle";
+            case 2:
+                return "Outer";
+            default:
+                return "Ring " + ring(stack);
+        }
+    }
+}
@@ -1,142 +1,289 @@
 import java.awt.*;
+import java.awt.geom.Arc2D;
 import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Draws the board. Stack positions come from a {@link HexLayout}, so boards of any size work;
+ * the view fits the whole board into the panel (never enlarging the classic 11-stack board) and
+ * setView() zooms and pans from there. A paint asks the layout which stacks lie inside the clip
+ * and draws only those, so repainting one changed hex or a zoomed-in corner of a huge board
+ * costs the same as the classic board.
+ *
+ * The antialiased hex itself (base fill, optional top layer, borders) is pre-rendered once per
+ * base/top color pair, zoom and device scale into a sprite, so drawing a hex is an image blit
+ * plus its two labels. Labels are skipped once hexes are too small to hold them.
+ *
+ * drawProbabilities() draws an ensemble instead of one board: each hex shows how likely its
+ * stack is to be in each state, as pie slices or as the intensity of one chosen state.
+ */
 public class HexagonDrawer {
     private static final int HEX_SIZE = 120;
     private static final int HEX_SPACING = 0; // Set spacing to 0 for tight packing
+    private static final int TOP_SIZE = (int)(HEX_SIZE * 0.6); // Smaller, 60% size
+    private static final int EXTENT = HEX_SIZE / 2 + 2; // half-width of a hex tile incl. its border
+    private static final int FIT_MARGIN = 10;
+    private static final int LABEL_MIN_SIZE = 56; // hex width in pixels below which labels are left out
+    
+    private static final Font TEXT_FONT = new Font("Arial", Font.BOLD, 12);
+    private static final BasicStroke BASE_STROKE = new BasicStroke(2);
+    private static final BasicStroke TOP_STROKE = new BasicStroke(1);
+    
+    private static final Color GREEN = new Color(0x51ad2f);
+    private static final Color BROWN = new Color(0xa17a6d);
+    private static final Color BLUE = new Color(0x0ca3dd);
+    private static final Color PINK = new Color(0xe172d3);
+    private static final Color RED = new Color(0xff0000);
+    private static final Color YELLOW = new Color(0xffff00);
+    private static final Color GRAY = new Color(0x808080);
+    private static final Color NO_TOP = new Color(0, true); // marks a type without a top layer
+    // Overlay colors in State order: WILDS, WASTES, DEVA, DEVB
+    private static final Color[] STATE_COLORS = {GREEN, BROWN, BLUE, PINK};
+    private static final Color LABEL_DARK = new Color(0x333333);
+    
+    private HexLayout layout = new HexLayout(0);
+    private String[] idTexts = new String[0], stackTypes = new String[0]; // [stack - 1], filled on demand
+    // View: zoom relative to the fitted board, pan in pixels
+    private double zoom = 1, panX, panY;
+    // Derived from layout, view and panel size by prepare()
+    private int layoutWidth = -1, layoutHeight = -1;
+    private double scale; // board pixels per unscaled pixel
+    private double unit;  // pixels per hex side
+    private int originX, originY, extent;
+    private boolean viewChanged = true;
+    
+    // Stack -> index in the last list of hexes drawn
+    private List<HexData> indexedHexes;
+    private int indexedSize;
+    private int[] hexIndex = new int[0];
+    
+    // Pre-rendered hexes by base color, then top color (null: no top layer), at spriteScale
+    private final Map<Color, Map<Color, Image>> sprites = new HashMap<>();
+    private double spriteScale = 0;
+    private final Map<String, Color> baseColors = new HashMap<>();
+    private final Map<String, Color> topColors = new HashMap<>();
     
     public void drawHexagons(Graphics2D g2d, List<HexData> hexes, int panelWidth, int panelHeight) {
+        indexHexes(hexes);
+        prepare(hexIndex.length, panelWidth, panelHeight);
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setFont(TEXT_FONT);
+        FontMetrics fm = g2d.getFontMetrics();
         
-        int centerX = panelWidth / 2;
-        int centerY = panelHeight / 2;
+        // Draw the hexagons the layout finds in the repaint area
+        for (int stack : visibleStacks(g2d, panelWidth, panelHeight)) {
+            int i = hexIndex[stack - 1];
+            if (i < 0) {
+                continue;
+            }
+            int centerX = centerX(stack), centerY = centerY(stack);
+            if (g2d.hitClip(centerX - extent, centerY - extent, 2 * extent, 2 * extent)) {
+                drawHexagon(g2d, fm, hexes.get(i), stack, centerX, centerY);
+            }
+        }
+    }
+    
+    /**
+     * Draw per-stack state probabilities (probabilities[stack - 1][state ordinal]). With
+     * focusState < 0 every hex is a pie of the four states, starting at the top and going
+     * clockwise; otherwise the hex is filled with that state's color at an opacity equal to its
+     * probability and labelled with the percentage.
+     */
+    public void drawProbabilities(Graphics2D g2d, double[][] probabilities, int focusState, int panelWidth, int panelHeight) {
+        prepare(probabilities.length, panelWidth, panelHeight);
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setFont(TEXT_FONT);
+        FontMetrics fm = g2d.getFontMetrics();
+        Shape clip = g2d.getClip();
+        boolean labels = scale * HEX_SIZE >= LABEL_MIN_SIZE;
+        g2d.setStroke(new BasicStroke((float) (2 * scale)));
         
-        // Draw hexagons in the specific pattern
+        for (int stack : visibleStacks(g2d, panelWidth, panelHeight)) {
+            int i = stack - 1;
+            int centerX = centerX(stack), centerY = centerY(stack);
+            if (!g2d.hitClip(centerX - extent, centerY - extent, 2 * extent, 2 * extent)) {
+                continue;
+            }
+            Path2D hexPath = createHexagonPath(centerX, centerY, scale * HEX_SIZE);
+            String valueText;
+            if (focusState < 0) {
+                g2d.clip(hexPath);
+                double start = 90;
+                for (int s = 0; s < STATE_COLORS.length; s++) {
+                    double sweep = -360 * probabilities[i][s];
+                    g2d.setColor(STATE_COLORS[s]);
+                    g2d.fill(new Arc2D.Double(centerX - extent, centerY - extent, 2 * extent, 2 * extent, start, sweep, Arc2D.PIE));
+                    start += sweep;
+                }
+                g2d.setClip(clip);
+                g2d.setColor(Color.WHITE);
+                valueText = labels ? stackType(stack) : null;
+            } else {
+                double p = probabilities[i][focusState];
+                Color c = STATE_COLORS[focusState];
+                g2d.setColor(Color.WHITE);
+                g2d.fill(hexPath);
+                g2d.setColor(new Color(c.getRed(), c.getGreen(), c.getBlue(), (int) Math.round(255 * p)));
+                g2d.fill(hexPath);
+                g2d.setColor(LABEL_DARK);
+                valueText = labels ? Math.round(100 * p) + "%" : null;
+            }
+            if (valueText != null) {
+                String idText = idText(stack);
+                g2d.drawString(idText, centerX - fm.stringWidth(idText) / 2, centerY - 8);
+                g2d.drawString(valueText, centerX - fm.stringWidth(valueText) / 2, centerY + 8);
+            }
+            
+            g2d.setColor(Color.BLACK);
+            g2d.draw(hexPath);
+        }
+    }
+    
+    /**
+     * Zoom (1 = the whole board fits the panel) and pan offset in pixels of the view; the point
+     * of the board at the panel center moves by (panX, panY).
+     */
+    public void setView(double zoom, double panX, double panY) {
+        if (zoom != this.zoom || panX != this.panX || panY != this.panY) {
+            this.zoom = zoom;
+            this.panX = panX;
+            this.panY = panY;
+            viewChanged = true;
+        }
+    }
+    
+    /** Area covered by a hex, for repainting only that hex; the whole panel for a stack not laid out yet. */
+    public Rectangle getHexBounds(int hexId, int panelWidth, int panelHeight) {
+        if (hexId < 1 || hexId > layout.stacks) {
+            return new Rectangle(0, 0, panelWidth, panelHeight);
+        }
+        prepare(layout.stacks, panelWidth, panelHeight);
+        return new Rectangle(centerX(hexId) - extent, centerY(hexId) - extent, 2 * extent, 2 * extent);
+    }
+    
+    /** Stack whose hex is under the point, or 0; uses the board last drawn. */
+    public int getStackAt(int x, int y, int panelWidth, int panelHeight) {
+        prepare(layout.stacks, panelWidth, panelHeight);
+        return layout.stackAtPoint((x - originX) / unit, (y - originY) / unit);
+    }
+    
+    /** Ring label of a stack (Inner, Middle, Outer, Ring n). */
+    public String getStackType(int hexId) {
+        return hexId >= 1 && hexId <= layout.stacks ? stackType(hexId) : "Unknown";
+    }
+    
+    private void prepare(int stacks, int panelWidth, int panelHeight) {
+        if (stacks != layout.stacks) {
+            layout = new HexLayout(stacks);
+            idTexts = new String[stacks];
+            stackTypes = new String[stacks];
+            viewChanged = true;
+        }
+        if (!viewChanged && panelWidth == layoutWidth && panelHeight == layoutHeight) {
+            return;
+        }
+        // Fit the board around stack 1 at the panel center; the classic board is never enlarged
+        double side = HEX_SIZE / 2.0;
+        double halfWidth = side * Math.max(-layout.minX, layout.maxX) + EXTENT;
+        double halfHeight = side * Math.max(-layout.minY, layout.maxY) + EXTENT;
+        double fit = Math.min(1, Math.min((panelWidth / 2.0 - FIT_MARGIN) / halfWidth, (panelHeight / 2.0 - FIT_MARGIN) / halfHeight));
+        double newScale = Math.max(fit, 0.01) * zoom;
+        if (newScale != scale) {
+            sprites.clear();
+        }
+        scale = newScale;
+        unit = scale * side;
+        extent = (int) Math.ceil(scale * EXTENT);
+        originX = panelWidth / 2 + (int) panX;
+        originY = panelHeight / 2 + (int) panY;
+        layoutWidth = panelWidth;
+        layoutHeight = panelHeight;
+        viewChanged = false;
+    }
+    
+    // Hex centers are whole pixels, so one sprite drawn around (extent, extent) fits every position
+    private int centerX(int stack) {
+        return originX + (int) (unit * layout.x(stack));
+    }
+    
+    private int centerY(int stack) {
+        return originY + (int) (unit * layout.y(stack));
+    }
+    
+    private int[] visibleStacks(Graphics2D g2d, int panelWidth, int panelHeight) {
+        Rectangle clip = g2d.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, panelWidth, panelHeight);
+        }
+        int[] stacks = layout.stacksIn((clip.x - originX) / unit, (clip.y - originY) / unit,
+                (clip.x + clip.width - originX) / unit, (clip.y + clip.height - originY) / unit);
+        // Neighbouring borders overlap: draw in stack order so the result does not depend on the clip
+        Arrays.sort(stacks);
+        return stacks;
+    }
+    
+    // hexIndex[stack - 1] = position of the stack in the list, -1 when absent
+    private void indexHexes(List<HexData> hexes) {
+        if (hexes == indexedHexes && hexes.size() == indexedSize && isIndexed(hexes)) {
+            return;
+        }
+        int stacks = 0;
+        for (HexData hex : hexes) {
+            stacks = Math.max(stacks, hex.getId());
+        }
+        hexIndex = new int[stacks];
+        Arrays.fill(hexIndex, -1);
         for (int i = 0; i < hexes.size(); i++) {
-            HexData hex = hexes.get(i);
-            int[] position = getHexagonPosition(hex.getId(), centerX, centerY);
-            drawHexagon(g2d, hex, position[0], position[1]);
+            int id = hexes.get(i).getId();
+            if (id > 0) {
+                hexIndex[id - 1] = i;
+            }
         }
+        indexedHexes = hexes;
+        indexedSize = hexes.size();
     }
     
-    private int[] getHexagonPosition(int hexId, int centerX, int centerY) {
-        int x, y;
-        double s = HEX_SIZE / 2.0; // Side length of the hexagon
-        double h = s * Math.sqrt(3); // Height of the hexagon (distance between flat sides)
-
-        // Distances between centers of *touching* hexagons
-        double vertical_dist_touching = h;
-        double horizontal_dist_touching = s * 1.5;
-        double diagonal_vertical_dist_touching = h * 0.5;
-
-        switch (hexId) {
-            case 1: // Inner Stack - Center
-                x = centerX;
-                y = centerY;
-                break;
-
-            // Middle Stacks (2-7) - one ring around the center, touching
-            case 2: // Top
-                x = centerX;
-                y = centerY - (int) vertical_dist_touching;
-                break;
-
-            case 3: // Top Right
-                x = centerX + (int) horizontal_dist_touching;
-                y = centerY - (int) diagonal_vertical_dist_touching;
-                break;
-
-            case 4: // Bottom Right
-                x = centerX + (int) horizontal_dist_touching;
-                y = centerY + (int) diagonal_vertical_dist_touching;
-                break;
-
-            case 5: // Bottom
-                x = centerX;
-                y = centerY + (int) vertical_dist_touching;
-                break;
-
-            case 6: // Bottom Left
-                x = centerX - (int) horizontal_dist_touching;
-                y = centerY + (int) diagonal_vertical_dist_touching;
-                break;
-
-            case 7: // Top Left
-                x = centerX - (int) horizontal_dist_touching;
-                y = centerY - (int) diagonal_vertical_dist_touching;
-                break;
-
-            // Outer Stacks (8-11) - corners of the larger grid, touching
-            case 8: // Top Left Outer
-                x = centerX - (int) (2 * horizontal_dist_touching);
-                y = centerY - (int) vertical_dist_touching;
-                break;
-
-            case 9: // Top Right Outer
-                x = centerX + (int) (2 * horizontal_dist_touching);
-                y = centerY - (int) vertical_dist_touching;
-                break;
-
-            case 10: // Bottom Right Outer
-                x = centerX + (int) (2 * horizontal_dist_touching);
-                y = centerY + (int) vertical_dist_touching;
-                break;
-
-            case 11: // Bottom Left Outer
-                x = centerX - (int) (2 * horizontal_dist_touching);
-                y = centerY + (int) vertical_dist_touching;
-                break;
-
-            default:
-                x = centerX;
-                y = centerY;
-                break;
+    // Same list as last time: spot-check that its ids did not move
+    private boolean isIndexed(List<HexData> hexes) {
+        int first = hexes.isEmpty() ? -1 : hexes.get(0).getId();
+        int last = hexes.isEmpty() ? -1 : hexes.get(hexes.size() - 1).getId();
+        return (first < 1 || (first <= hexIndex.length && hexIndex[first - 1] == 0))
+                && (last < 1 || (last <= hexIndex.length && hexIndex[last - 1] == hexes.size() - 1));
+    }
+    
+    private String idText(int stack) {
+        String text = idTexts[stack - 1];
+        if (text == null) {
+            text = idTexts[stack - 1] = String.valueOf(stack);
         }
-        return new int[]{x, y};
+        return text;
     }
     
-    private void drawHexagon(Graphics2D g2d, HexData hex, int centerX, int centerY) {
-        // Draw base layer (Wilds/Wastes/Gray)
-        Path2D basePath = createHexagonPath(centerX, centerY, HEX_SIZE);
-        Color baseColor = getColorFromString(hex.getBaseType());
-        g2d.setColor(baseColor);
-        g2d.fill(basePath);
-        
-        // Draw top layer (DevA/DevB) if exists
-        if (hex.getTopType() != null && isDevelopmentType(hex.getTopType())) {
-            int topSize = (int)(HEX_SIZE * 0.6); // Smaller, 60% size
-            Path2D topPath = createHexagonPath(centerX, centerY, topSize);
-            Color topColor = getColorFromString(hex.getTopType());
-            g2d.setColor(topColor);
-            g2d.fill(topPath);
+    private String stackType(int stack) {
+        String type = stackTypes[stack - 1];
+        if (type == null) {
+            type = stackTypes[stack - 1] = layout.ringName(stack);
         }
-        
-        // Draw border for base layer
-        g2d.setColor(Color.BLACK);
-        g2d.setStroke(new BasicStroke(2));
-        g2d.draw(basePath);
-        
-        // Draw border for top layer if exists
-        if (hex.getTopType() != null && isDevelopmentType(hex.getTopType())) {
-            int topSize = (int)(HEX_SIZE * 0.6);
-            Path2D topPath = createHexagonPath(centerX, centerY, topSize);
-            g2d.setColor(Color.BLACK);
-            g2d.setStroke(new BasicStroke(1));
-            g2d.draw(topPath);
+        return type;
+    }
+    
+    private void drawHexagon(Graphics2D g2d, FontMetrics fm, HexData hex, int stack, int centerX, int centerY) {
+        Image sprite = getSprite(g2d, baseColor(hex.getBaseType()), topColor(hex.getTopType()));
+        g2d.drawImage(sprite, centerX - extent, centerY - extent, 2 * extent, 2 * extent, null);
+        if (scale * HEX_SIZE < LABEL_MIN_SIZE) {
+            return;
         }
         
         // Draw ID and type text
         g2d.setColor(Color.WHITE);
         
-        // Use smaller font for text
-        Font textFont = new Font("Arial", Font.BOLD, 12);
-        g2d.setFont(textFont);
+        String idText = idText(stack);
+        String stackType = stackType(stack);
         
-        String idText = String.valueOf(hex.getId());
-        String stackType = getStackType(hex.getId());
-        
-        FontMetrics fm = g2d.getFontMetrics();
         int idWidth = fm.stringWidth(idText);
         int stackWidth = fm.stringWidth(stackType);
         
@@ -146,7 +293,82 @@ public class HexagonDrawer {
         g2d.drawString(stackType, centerX - stackWidth/2, centerY + 8);
     }
     
-    private Path2D createHexagonPath(int centerX, int centerY, int size) {
+    private Image getSprite(Graphics2D g2d, Color base, Color top) {
+        double deviceScale = g2d.getTransform().getScaleX();
+        if (deviceScale != spriteScale) {
+            sprites.clear();
+            spriteScale = deviceScale;
+        }
+        Map<Color, Image> byTop = sprites.computeIfAbsent(base, k -> new HashMap<>());
+        Image sprite = byTop.get(top);
+        if (sprite == null) {
+            sprite = renderSprite(g2d.getDeviceConfiguration(), base, top, deviceScale, scale, extent);
+            byTop.put(top, sprite);
+        }
+        return sprite;
+    }
+    
+    // A hex at the board scale, centered in a tile of 2 * extent pixels
+    private static Image renderSprite(GraphicsConfiguration gc, Color base, Color top, double deviceScale, double scale, int extent) {
+        int size = (int) Math.ceil(2 * extent * deviceScale);
+        BufferedImage img = gc != null
+                ? gc.createCompatibleImage(size, size, Transparency.TRANSLUCENT)
+                : new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.scale(deviceScale, deviceScale);
+        g.translate(extent, extent);
+        g.scale(scale, scale);
+        Path2D basePath = createHexagonPath(0, 0, HEX_SIZE);
+        Path2D topPath = createHexagonPath(0, 0, TOP_SIZE);
+        
+        // Draw base layer (Wilds/Wastes/Gray)
+        g.setColor(base);
+        g.fill(basePath);
+        
+        // Draw top layer (DevA/DevB) if exists
+        if (top != null) {
+            g.setColor(top);
+            g.fill(topPath);
+        }
+        
+        // Draw border for base layer; at least a pixel wide so small hexes still close the gaps between them
+        g.setColor(Color.BLACK);
+        g.setStroke(scale * BASE_STROKE.getLineWidth() >= 1 ? BASE_STROKE : new BasicStroke((float) (1 / scale)));
+        g.draw(basePath);
+        
+        // Draw border for top layer if exists
+        if (top != null) {
+            g.setStroke(TOP_STROKE);
+            g.draw(topPath);
+        }
+        g.dispose();
+        return img;
+    }
+    
+    private Color baseColor(String baseType) {
+        Color color = baseColors.get(baseType);
+        if (color == null) {
+            color = getColorFromString(baseType);
+            baseColors.put(baseType, color);
+        }
+        return color;
+    }
+    
+    // null when the hex has no development layer
+    private Color topColor(String topType) {
+        if (topType == null) {
+            return null;
+        }
+        Color color = topColors.get(topType);
+        if (color == null) {
+            color = isDevelopmentType(topType) ? getColorFromString(topType) : NO_TOP;
+            topColors.put(topType, color);
+        }
+        return color == NO_TOP ? null : color;
+    }
+    
+    private static Path2D createHexagonPath(double centerX, double centerY, double size) {
         Path2D path = new Path2D.Double();
         double radius = size / 2.0;
         
@@ -165,27 +387,6 @@ public class HexagonDrawer {
         return path;
     }
     
-    private String getStackType(int hexId) {
-        switch (hexId) {
-            case 1:
-                return "Inner";
-            case 2:
-            case 3:
-            case 4:
-            case 5:
-            case 6:
-            case 7:
-                return "Middle";
-            case 8:
-            case 9:
-            case 10:
-            case 11:
-                return "Outer";
-            default:
-                return "Unknown";
-        }
-    }
-    
     private boolean isDevelopmentType(String type) {
         if (type == null) return false;
         String lowerType = type.toLowerCase();
@@ -199,30 +400,30 @@ public class HexagonDrawer {
         }
         switch (colorName.toLowerCase()) {
             case "green":
-                return new Color(0x51ad2f); // Green: #51ad2f
+                return GREEN; // Green: #51ad2f
             case "brown":
-                return new Color(0xa17a6d); // Brown: #a17a6d
+                return BROWN; // Brown: #a17a6d
             case "blue":
-                return new Color(0x0ca3dd); // Blue: #0ca3dd
+                return BLUE; // Blue: #0ca3dd
             case "pink":
-                return new Color(0xe172d3); // Pink: #e172d3
+                return PINK; // Pink: #e172d3
             case "red":
-                return new Color(0xff0000); // Red: #ff0000
+                return RED; // Red: #ff0000
             case "yellow":
-                return new Color(0xffff00); // Yellow: #ffff00
+                return YELLOW; // Yellow: #ffff00
             case "gray":
-                return new Color(0x808080); // Gray: #808080
+                return GRAY; // Gray: #808080
             // Handle type names
             case "wilds":
             case "wild":
-                return new Color(0x51ad2f); // Wilds/Wild -> Green
+                return GREEN; // Wilds/Wild -> Green
             case "wastes":
             case "waste":
-                return new Color(0xa17a6d); // Wastes/Waste -> Brown
+                return BROWN; // Wastes/Waste -> Brown
             case "deva":
-                return new Color(0x0ca3dd); // DevA -> Blue
+                return BLUE; // DevA -> Blue
             case "devb":
-                return new Color(0xe172d3); // DevB -> Pink
+                return PINK; // DevB -> Pink
             default:
                 return Color.GRAY;
         }
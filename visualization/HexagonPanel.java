@@ -1,31 +1,187 @@
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
 import java.util.List;
+import java.util.Objects;
 
+/**
+ * The hex board. It stays in the layout for the lifetime of the window: setHexes() compares the
+ * new round with what is on screen and repaints only the hexes whose layers changed.
+ * setProbabilities() switches it to an ensemble overlay until it is called with null.
+ *
+ * The wheel zooms around the cursor, dragging pans and a double click fits the board again;
+ * hovering a hex shows its stack in a tooltip.
+ */
 public class HexagonPanel extends JPanel {
     private List<HexData> hexes;
     private HexagonDrawer drawer;
-    
+    // What is currently drawn, per list index; HexData objects may be shared or reused by callers
+    private int[] shownIds = new int[0];
+    private String[] shownBase = new String[0];
+    private String[] shownTop = new String[0];
+    // Ensemble overlay: [stack - 1][state ordinal], or null to show the hexes
+    private double[][] probabilities;
+    private int focusState = -1;
+    // View relative to the fitted board
+    private static final double MIN_ZOOM = 0.5;
+    private static final double MAX_ZOOM = 64;
+    private double zoom = 1, panX, panY;
+    private Point dragFrom;
+
     public HexagonPanel(List<HexData> hexes) {
-        this.hexes = hexes;
         this.drawer = new HexagonDrawer();
         setPreferredSize(new Dimension(900, 600));
-        setMinimumSize(new Dimension(900, 600));
-        setMaximumSize(new Dimension(900, 600));
         setBackground(Color.WHITE);
+        setOpaque(true);
+        setHexes(hexes);
+
+        MouseAdapter viewControl = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragFrom = e.getPoint();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (dragFrom != null) {
+                    setView(zoom, panX + e.getX() - dragFrom.x, panY + e.getY() - dragFrom.y);
+                    dragFrom = e.getPoint();
+                }
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                dragFrom = null;
+            }
+
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    setView(1, 0, 0);
+                }
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                double newZoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom * Math.pow(1.15, -e.getPreciseWheelRotation())));
+                // Keep the board point under the cursor in place
+                double f = newZoom / zoom;
+                double dx = e.getX() - getWidth() / 2.0, dy = e.getY() - getHeight() / 2.0;
+                setView(newZoom, dx - (dx - panX) * f, dy - (dy - panY) * f);
+            }
+        };
+        addMouseListener(viewControl);
+        addMouseMotionListener(viewControl);
+        addMouseWheelListener(viewControl);
+        ToolTipManager.sharedInstance().registerComponent(this);
     }
-    
+
+    private void setView(double zoom, double panX, double panY) {
+        this.zoom = zoom;
+        this.panX = panX;
+        this.panY = panY;
+        drawer.setView(zoom, panX, panY);
+        repaint();
+    }
+
     public void setHexes(List<HexData> hexes) {
         this.hexes = hexes;
+        int n = hexes != null ? hexes.size() : 0;
+        if (n != shownIds.length) {
+            // Different board: remember it and redraw everything
+            shownIds = new int[n];
+            shownBase = new String[n];
+            shownTop = new String[n];
+            for (int i = 0; i < n; i++) {
+                remember(i, hexes.get(i));
+            }
+            repaint();
+            return;
+        }
+        for (int i = 0; i < n; i++) {
+            HexData hex = hexes.get(i);
+            if (hex.getId() != shownIds[i]) {
+                // Hex moved to another position: repaint the old and the new place
+                repaint(drawer.getHexBounds(shownIds[i], getWidth(), getHeight()));
+            } else if (Objects.equals(hex.getBaseType(), shownBase[i]) && Objects.equals(hex.getTopType(), shownTop[i])) {
+                continue;
+            }
+            remember(i, hex);
+            repaint(drawer.getHexBounds(hex.getId(), getWidth(), getHeight()));
+        }
+    }
+
+    /**
+     * Show per-stack state probabilities instead of the board (see HexagonDrawer#drawProbabilities);
+     * null returns to the hexes.
+     */
+    public void setProbabilities(double[][] probabilities, int focusState) {
+        if (probabilities == null && this.probabilities == null) {
+            return;
+        }
+        this.probabilities = probabilities;
+        this.focusState = focusState;
         repaint();
     }
-    
+
+    @Override
+    public String getToolTipText(MouseEvent e) {
+        int stack = drawer.getStackAt(e.getX(), e.getY(), getWidth(), getHeight());
+        if (stack == 0) {
+            return null;
+        }
+        StringBuilder text = new StringBuilder("Stack " + stack + " (" + drawer.getStackType(stack) + ")");
+        if (probabilities != null) {
+            if (stack <= probabilities.length) {
+                State[] states = State.values();
+                for (int s = 0; s < states.length; s++) {
+                    text.append(s == 0 ? ": " : ", ").append(states[s]).append(' ')
+                            .append(Math.round(100 * probabilities[stack - 1][s])).append('%');
+                }
+            }
+        } else {
+            HexData hex = findHex(stack);
+            if (hex != null) {
+                text.append(": ").append(hex.getBaseType());
+                if (hex.getTopType() != null && !hex.getTopType().equals(hex.getBaseType())) {
+                    text.append(" / ").append(hex.getTopType());
+                }
+            }
+        }
+        return text.toString();
+    }
+
+    private HexData findHex(int stack) {
+        if (hexes == null) {
+            return null;
+        }
+        if (stack <= hexes.size() && hexes.get(stack - 1).getId() == stack) {
+            return hexes.get(stack - 1);
+        }
+        for (HexData hex : hexes) {
+            if (hex.getId() == stack) {
+                return hex;
+            }
+        }
+        return null;
+    }
+
+    private void remember(int i, HexData hex) {
+        shownIds[i] = hex.getId();
+        shownBase[i] = hex.getBaseType();
+        shownTop[i] = hex.getTopType();
+    }
+
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
         Graphics2D g2d = (Graphics2D) g;
-        
-        if (hexes != null && !hexes.isEmpty()) {
+
+        if (probabilities != null) {
+            drawer.drawProbabilities(g2d, probabilities, focusState, getWidth(), getHeight());
+        } else if (hexes != null && !hexes.isEmpty()) {
             drawer.drawHexagons(g2d, hexes, getWidth(), getHeight());
         }
     }
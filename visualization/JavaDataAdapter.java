@@ -1,95 +1,167 @@
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
 import java.util.List;
 import java.util.ArrayList;
 
 public class JavaDataAdapter {
-    
+
+    /** One "timeline" entry: the 0-based round and the state code of every stack. */
+    static final class TimelineRound {
+        final int round;
+        final int[] states;
+
+        TimelineRound(int round, int[] states) {
+            this.round = round;
+            this.states = states;
+        }
+    }
+
     public static MultiRoundGameData convertToMultiRound(String jsonString) {
         try {
-            JsonObject root = JsonParser.parseString(jsonString).getAsJsonObject();
-            MultiRoundGameData multiRoundData = new MultiRoundGameData();
-            
-            // Set basic info
-            multiRoundData.setVersion(root.get("version").getAsInt());
-            
-            // Get timeline data
-            JsonArray timeline = root.getAsJsonArray("timeline");
-            List<RoundData> rounds = new ArrayList<>();
-            
-            // Get legend for state mapping
-            JsonObject legend = root.getAsJsonObject("legend");
-            String[] stateNames = new String[5]; // 0-4, 0 unused
-            for (String key : legend.keySet()) {
-                int value = legend.get(key).getAsInt();
-                stateNames[value] = key;
-            }
-            
-            // Convert each timeline entry to a round
-            for (JsonElement timelineEntry : timeline) {
-                JsonObject entry = timelineEntry.getAsJsonObject();
-                RoundData roundData = new RoundData();
-                
-                int roundNumber = entry.get("round").getAsInt();
-                roundData.setRound_number(roundNumber + 1); // Convert 0-based to 1-based
-                
-                // Create board for this round
-                GameBoard board = new GameBoard();
-                List<HexData> hexes = new ArrayList<>();
-                
-                JsonArray states = entry.getAsJsonArray("states");
-                for (int i = 0; i < states.size(); i++) {
-                    int stateValue = states.get(i).getAsInt();
-                    String stateName = stateNames[stateValue];
-                    
-                    // Use new constructor that handles single-type to layered mapping
-                    HexData hex = new HexData(i + 1, stateName, getColorFromState(stateName));
-                    
-                    hexes.add(hex);
-                }
-                
-                board.setHexes(hexes);
-                roundData.setBoard(board);
-                
-                // Create game state (use final state from original data)
-                GameState gameState = new GameState();
-                JsonObject originalGameState = root.getAsJsonObject("game_state");
-                gameState.setCurrent_round(roundNumber + 1);
-                gameState.setMax_rounds(originalGameState.get("max_rounds").getAsInt());
-                
-                // Calculate bag total for this round (decreasing over time)
-                int finalBagTotal = originalGameState.get("bag_total").getAsInt();
-                int maxRounds = originalGameState.get("max_rounds").getAsInt();
-                int currentBagTotal = Math.max(finalBagTotal, 100 - (roundNumber * (100 - finalBagTotal) / maxRounds));
-                gameState.setBag_total(currentBagTotal);
-                
-                roundData.setGame_state(gameState);
-                
-                // Create tokens (use final state from original data)
-                Tokens tokens = new Tokens();
-                JsonObject originalTokens = root.getAsJsonObject("tokens");
-                tokens.setWilds(originalTokens.get("WILDS").getAsInt());
-                tokens.setWastes(originalTokens.get("WASTES").getAsInt());
-                tokens.setDevA(originalTokens.get("DEVA").getAsInt());
-                tokens.setDevB(originalTokens.get("DEVB").getAsInt());
-                
-                roundData.setTokens(tokens);
-                rounds.add(roundData);
-            }
-            
-            multiRoundData.setRounds(rounds);
-            multiRoundData.setTotal_rounds(rounds.size());
-            
-            return multiRoundData;
-            
+            return UniversalDataConverter.convertToMultiRound(new StringReader(jsonString));
         } catch (Exception e) {
             e.printStackTrace();
             return null;
         }
     }
-    
+
+    /** Read "legend" (state name -> code) as code -> state name. */
+    static String[] readLegend(JsonReader in) throws IOException {
+        String[] stateNames = new String[5]; // 0-4, 0 unused
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            stateNames[in.nextInt()] = name;
+        }
+        in.endObject();
+        return stateNames;
+    }
+
+    /** Read "timeline" into primitive rounds, without building a tree. */
+    static List<TimelineRound> readTimeline(JsonReader in) throws IOException {
+        List<TimelineRound> timeline = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            timeline.add(readTimelineRound(in));
+        }
+        in.endArray();
+        return timeline;
+    }
+
+    /**
+     * Read "timeline_delta" (SimulationApp --delta-timeline) and expand it into the plain timeline
+     * with the engine's DeltaTimeline. Delta files are small, so the section is parsed as a tree.
+     */
+    static List<TimelineRound> readDeltaTimeline(JsonReader in) throws IOException {
+        String json = JsonParser.parseReader(in).toString();
+        List<int[]> boards = DeltaTimeline.fromJson(new ObjectMapper().readTree(json)).toBoards();
+        List<TimelineRound> timeline = new ArrayList<>(boards.size());
+        for (int r = 0; r < boards.size(); r++) {
+            timeline.add(new TimelineRound(r, boards.get(r)));
+        }
+        return timeline;
+    }
+
+    /** Read one "timeline" entry. */
+    static TimelineRound readTimelineRound(JsonReader in) throws IOException {
+        int round = 0;
+        int[] states = new int[0];
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (name.equals("round")) {
+                round = in.nextInt();
+            } else if (name.equals("states")) {
+                int[] buffer = new int[16];
+                int n = 0;
+                in.beginArray();
+                while (in.hasNext()) {
+                    if (n == buffer.length) buffer = Arrays.copyOf(buffer, n * 2);
+                    buffer[n++] = in.nextInt();
+                }
+                in.endArray();
+                states = Arrays.copyOf(buffer, n);
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return new TimelineRound(round, states);
+    }
+
+    static MultiRoundGameData toMultiRound(int version, String[] stateNames, List<TimelineRound> timeline,
+                                           JsonObject originalGameState, JsonObject originalTokens) {
+        MultiRoundGameData multiRoundData = new MultiRoundGameData();
+
+        // Set basic info
+        multiRoundData.setVersion(version);
+
+        List<RoundData> rounds = new ArrayList<>();
+
+        // Convert each timeline entry to a round
+        for (TimelineRound entry : timeline) {
+            rounds.add(toRoundData(entry, stateNames, originalGameState, originalTokens));
+        }
+
+        multiRoundData.setRounds(rounds);
+        multiRoundData.setTotal_rounds(rounds.size());
+
+        return multiRoundData;
+    }
+
+    /** Convert one timeline entry; game state and tokens come from the file's final state. */
+    static RoundData toRoundData(TimelineRound entry, String[] stateNames,
+                                 JsonObject originalGameState, JsonObject originalTokens) {
+        int maxRounds = originalGameState.get("max_rounds").getAsInt();
+        int finalBagTotal = originalGameState.get("bag_total").getAsInt();
+        RoundData roundData = new RoundData();
+
+        int roundNumber = entry.round;
+        roundData.setRound_number(roundNumber + 1); // Convert 0-based to 1-based
+
+        // Create board for this round
+        GameBoard board = new GameBoard();
+        List<HexData> hexes = new ArrayList<>();
+
+        for (int i = 0; i < entry.states.length; i++) {
+            String stateName = stateNames[entry.states[i]];
+
+            // Use new constructor that handles single-type to layered mapping
+            HexData hex = new HexData(i + 1, stateName, getColorFromState(stateName));
+
+            hexes.add(hex);
+        }
+
+        board.setHexes(hexes);
+        roundData.setBoard(board);
+
+        // Create game state (use final state from original data)
+        GameState gameState = new GameState();
+        gameState.setCurrent_round(roundNumber + 1);
+        gameState.setMax_rounds(maxRounds);
+
+        // Calculate bag total for this round (decreasing over time)
+        int currentBagTotal = Math.max(finalBagTotal, 100 - (roundNumber * (100 - finalBagTotal) / maxRounds));
+        gameState.setBag_total(currentBagTotal);
+
+        roundData.setGame_state(gameState);
+
+        // Create tokens (use final state from original data)
+        Tokens tokens = new Tokens();
+        tokens.setWilds(originalTokens.get("WILDS").getAsInt());
+        tokens.setWastes(originalTokens.get("WASTES").getAsInt());
+        tokens.setDevA(originalTokens.get("DEVA").getAsInt());
+        tokens.setDevB(originalTokens.get("DEVB").getAsInt());
+
+        roundData.setTokens(tokens);
+        return roundData;
+    }
+
     private static String getColorFromState(String stateName) {
         switch (stateName) {
             case "WILDS": return "green";
@@ -2,6 +2,7 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.StringReader;
 
 public class JsonReader {
     private Gson gson;
@@ -40,18 +41,7 @@ public class JsonReader {
     }
     
     public MultiRoundGameData readUniversalMultiRoundDataFromString(String jsonString) throws IOException {
-        DataFormatDetector.DataFormat format = DataFormatDetector.detectFormat(jsonString);
-        
-        switch (format) {
-            case MY_FORMAT:
-                return UniversalDataConverter.convertMyFormatToMultiRound(jsonString);
-            case JAVA_FORMAT:
-                return JavaDataAdapter.convertToMultiRound(jsonString);
-            case C_FORMAT:
-                return CDataAdapter.convertToMultiRound(jsonString);
-            default:
-                throw new IOException("Unsupported data format");
-        }
+        return UniversalDataConverter.convertToMultiRound(new StringReader(jsonString));
     }
     
     public String convertMultiRoundToJson(MultiRoundGameData multiRoundData) {
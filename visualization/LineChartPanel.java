@@ -5,9 +5,12 @@ import org.jfree.chart.plot.PlotOrientation;
 import org.jfree.chart.plot.XYPlot;
 import org.jfree.chart.axis.NumberAxis;
 import org.jfree.chart.axis.NumberTickUnit;
+import org.jfree.chart.renderer.xy.DeviationRenderer;
 import org.jfree.data.xy.XYSeries;
 import org.jfree.data.xy.XYSeriesCollection;
 import org.jfree.data.xy.XYDataset;
+import org.jfree.data.xy.YIntervalSeries;
+import org.jfree.data.xy.YIntervalSeriesCollection;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
@@ -42,6 +45,22 @@ public class LineChartPanel extends JPanel {
     private XYSeries wastesSeries;
     private XYSeries devASeries;
     private XYSeries devBSeries;
+    private XYSeries[] allSeries;
+    
+    // 曲线顺序对应的stack类型（与series下标一致）
+    private static final String[] SERIES_TYPES = {"WILDS", "WASTES", "DEVA", "DEVB"};
+    // 每条曲线最多绘制的点数，轮次更多时用LTTB（largest-triangle-three-buckets）降采样
+    private static final int MAX_POINTS = 2000;
+    
+    // 每轮各类stack数量，只统计一次：counts[series][轮次下标]
+    private MultiRoundGameData countedData;
+    private int countedRounds = 0;
+    private int[] roundNumbers = new int[0];
+    private int[][] counts = new int[SERIES_TYPES.length][0];
+    private int maxCount = 0;
+    // 静态模式下曲线当前显示的数据，未变化时不重建
+    private MultiRoundGameData shownData;
+    private int shownRounds = -1;
     
     // 动态绘制相关
     private boolean dynamicMode = false;
@@ -49,6 +68,14 @@ public class LineChartPanel extends JPanel {
     private MultiRoundGameData multiRoundData; // 保存完整数据引用
     private boolean axisRangeSet = false; // 标记是否已设置轴范围
     
+    // 集成（ensemble）模式：同一配置多次运行的每轮分位数带，画在单条曲线下面
+    // 外带5%-95%，内带25%-75%，内带的中线为中位数
+    private static final double[][] BANDS = {{0.05, 0.95}, {0.25, 0.75}};
+    private static final int[] BAND_ALPHA = {40, 90};
+    private YIntervalSeriesCollection ensembleDataset;
+    private YIntervalSeries[][] ensembleSeries; // [曲线下标][带下标]
+    private long ensembleRuns = 0;
+    
     public LineChartPanel() {
         initializeChart();
         setupLayout();
@@ -67,6 +94,7 @@ public class LineChartPanel extends JPanel {
         dataset.addSeries(wastesSeries);
         dataset.addSeries(devASeries);
         dataset.addSeries(devBSeries);
+        allSeries = new XYSeries[]{wildsSeries, wastesSeries, devASeries, devBSeries};
         
         // 创建折线图
         chart = ChartFactory.createXYLineChart(
@@ -106,6 +134,28 @@ public class LineChartPanel extends JPanel {
         plot.getRenderer().setSeriesStroke(2, new BasicStroke(2.0f));
         plot.getRenderer().setSeriesStroke(3, new BasicStroke(2.0f));
         
+        // 分位数带使用第二个数据集；默认渲染顺序下它先画，单条曲线在上面
+        ensembleDataset = new YIntervalSeriesCollection();
+        ensembleSeries = new YIntervalSeries[SERIES_TYPES.length][BANDS.length];
+        DeviationRenderer bandRenderer = new DeviationRenderer(true, false);
+        bandRenderer.setAlpha(1.0f); // 透明度由填充颜色决定
+        bandRenderer.setDefaultSeriesVisibleInLegend(false);
+        for (int s = 0; s < SERIES_TYPES.length; s++) {
+            Color color = STACK_COLORS.get(SERIES_TYPES[s]);
+            for (int b = 0; b < BANDS.length; b++) {
+                int index = s * BANDS.length + b;
+                ensembleSeries[s][b] = new YIntervalSeries(SERIES_TYPES[s] + " " + (int) (BANDS[b][0] * 100) + "-" + (int) (BANDS[b][1] * 100) + "%");
+                ensembleDataset.addSeries(ensembleSeries[s][b]);
+                bandRenderer.setSeriesFillPaint(index, new Color(color.getRed(), color.getGreen(), color.getBlue(), BAND_ALPHA[b]));
+                bandRenderer.setSeriesPaint(index, color);
+                // 只有内带画中位数线（虚线）
+                bandRenderer.setSeriesLinesVisible(index, b == BANDS.length - 1);
+                bandRenderer.setSeriesStroke(index, new BasicStroke(1.0f, BasicStroke.CAP_BUTT, BasicStroke.JOIN_ROUND, 1.0f, new float[]{4.0f, 3.0f}, 0.0f));
+            }
+        }
+        plot.setDataset(1, ensembleDataset);
+        plot.setRenderer(1, bandRenderer);
+        
         // 创建图表面板
         chartPanel = new org.jfree.chart.ChartPanel(chart);
         chartPanel.setPreferredSize(new Dimension(400, 250));
@@ -130,21 +180,25 @@ public class LineChartPanel extends JPanel {
         }
         
         // 清除现有数据
-        wildsSeries.clear();
-        wastesSeries.clear();
-        devASeries.clear();
-        devBSeries.clear();
+        chart.setNotify(false);
+        clearAllSeries();
         
-        // 添加新数据
+        // 添加新数据（暂停事件，最后统一刷新一次）
+        for (XYSeries series : allSeries) {
+            series.setNotify(false);
+        }
         for (Map.Entry<Integer, Map<String, Integer>> roundEntry : roundData.entrySet()) {
             int round = roundEntry.getKey();
             Map<String, Integer> stackCounts = roundEntry.getValue();
             
-            wildsSeries.add(round, stackCounts.getOrDefault("WILDS", 0));
-            wastesSeries.add(round, stackCounts.getOrDefault("WASTES", 0));
-            devASeries.add(round, stackCounts.getOrDefault("DEVA", 0));
-            devBSeries.add(round, stackCounts.getOrDefault("DEVB", 0));
+            for (int s = 0; s < allSeries.length; s++) {
+                allSeries[s].add(round, stackCounts.getOrDefault(SERIES_TYPES[s], 0), false);
+            }
+        }
+        for (XYSeries series : allSeries) {
+            series.setNotify(true);
         }
+        chart.setNotify(true);
         
         // 如果不是动态模式，恢复自动缩放
         if (!dynamicMode) {
@@ -163,29 +217,219 @@ public class LineChartPanel extends JPanel {
             return;
         }
         
-        Map<Integer, Map<String, Integer>> roundData = new HashMap<>();
-        
-        for (RoundData round : multiRoundData.getRounds()) {
-            int roundNumber = round.getRound_number();
-            Map<String, Integer> stackCounts = new HashMap<>();
+        // 统计只做一次；数据和轮数都没变时不重建曲线
+        countRounds();
+        if (shownData != multiRoundData || shownRounds != countedRounds) {
+            showRounds(countedRounds);
+            shownData = multiRoundData;
+            shownRounds = countedRounds;
             
-            // 统计各种stack的数量
-            for (HexData hex : round.getBoard().getHexes()) {
-                String stackType = hex.getType();
-                stackCounts.put(stackType, stackCounts.getOrDefault(stackType, 0) + 1);
+            // 如果不是动态模式，恢复自动缩放
+            if (!dynamicMode) {
+                restoreAutoScaling();
             }
-            
-            roundData.put(roundNumber, stackCounts);
         }
         
-        updateChart(roundData);
-        
         // 如果当前是动态模式，需要重新设置轴范围
         if (dynamicMode) {
             axisRangeSet = false; // 重置轴范围标记，下次添加数据时会重新设置
         }
     }
     
+    /**
+     * 统计multiRoundData中尚未统计的轮次（新数据从头统计，追加的轮次增量统计）
+     */
+    private void countRounds() {
+        if (multiRoundData == null || multiRoundData.getRounds() == null) {
+            return;
+        }
+        if (countedData != multiRoundData) {
+            countedData = multiRoundData;
+            countedRounds = 0;
+            maxCount = 0;
+        }
+        List<RoundData> rounds = multiRoundData.getRounds();
+        if (rounds.size() > roundNumbers.length) {
+            int capacity = Math.max(rounds.size(), roundNumbers.length * 2);
+            roundNumbers = java.util.Arrays.copyOf(roundNumbers, capacity);
+            for (int s = 0; s < counts.length; s++) {
+                counts[s] = java.util.Arrays.copyOf(counts[s], capacity);
+            }
+        }
+        if (rounds instanceof PagedRounds) {
+            // 分页文件：直接使用索引中预先统计的数量，不逐轮解码
+            PagedRounds paged = (PagedRounds) rounds;
+            for (int i = countedRounds; i < rounds.size(); i++) {
+                roundNumbers[i] = paged.roundNumber(i);
+                for (int s = 0; s < counts.length; s++) {
+                    counts[s][i] = paged.typeCount(RoundIndex.typeIndex(SERIES_TYPES[s]), i);
+                    maxCount = Math.max(maxCount, counts[s][i]);
+                }
+            }
+            countedRounds = rounds.size();
+            return;
+        }
+        for (int i = countedRounds; i < rounds.size(); i++) {
+            RoundData round = rounds.get(i);
+            roundNumbers[i] = round.getRound_number();
+            for (int s = 0; s < counts.length; s++) {
+                counts[s][i] = 0;
+            }
+            // 统计各种stack的数量
+            for (HexData hex : round.getBoard().getHexes()) {
+                int s = seriesIndex(hex.getType());
+                if (s >= 0) {
+                    counts[s][i]++;
+                }
+            }
+            for (int s = 0; s < counts.length; s++) {
+                maxCount = Math.max(maxCount, counts[s][i]);
+            }
+        }
+        countedRounds = rounds.size();
+    }
+    
+    private static int seriesIndex(String stackType) {
+        for (int s = 0; s < SERIES_TYPES.length; s++) {
+            if (SERIES_TYPES[s].equals(stackType)) {
+                return s;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * 用已统计的前n轮重建曲线；超过MAX_POINTS时降采样，整个过程只触发一次图表刷新
+     */
+    private void showRounds(int n) {
+        chart.setNotify(false);
+        for (int s = 0; s < allSeries.length; s++) {
+            XYSeries series = allSeries[s];
+            series.setNotify(false);
+            series.clear();
+            if (n <= MAX_POINTS) {
+                for (int i = 0; i < n; i++) {
+                    series.add(roundNumbers[i], counts[s][i], false);
+                }
+            } else {
+                for (int i : downsample(roundNumbers, counts[s], n, MAX_POINTS)) {
+                    series.add(roundNumbers[i], counts[s][i], false);
+                }
+            }
+            series.setNotify(true);
+        }
+        chart.setNotify(true);
+    }
+    
+    /**
+     * Largest-triangle-three-buckets：从前n个点中选出threshold个下标，保留曲线的形状（峰值和转折）
+     */
+    static int[] downsample(int[] x, int[] y, int n, int threshold) {
+        if (threshold >= n || threshold < 3) {
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+        int[] picked = new int[threshold];
+        int count = 0;
+        picked[count++] = 0; // 第一个点
+        double bucketSize = (double) (n - 2) / (threshold - 2);
+        int a = 0;
+        for (int b = 0; b < threshold - 2; b++) {
+            // 下一个桶的平均点
+            int nextStart = (int) Math.floor((b + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) Math.floor((b + 2) * bucketSize) + 1, n);
+            double avgX = 0, avgY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += x[i];
+                avgY += y[i];
+            }
+            int nextCount = Math.max(nextEnd - nextStart, 1);
+            avgX /= nextCount;
+            avgY /= nextCount;
+            
+            // 当前桶中与上一个选中点、下一桶平均点构成最大三角形的点
+            int start = (int) Math.floor(b * bucketSize) + 1;
+            int end = (int) Math.floor((b + 1) * bucketSize) + 1;
+            double maxArea = -1;
+            int best = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((x[a] - avgX) * (y[i] - y[a]) - (x[a] - x[i]) * (avgY - y[a]));
+                if (area > maxArea) {
+                    maxArea = area;
+                    best = i;
+                }
+            }
+            picked[count++] = best;
+            a = best;
+        }
+        picked[count++] = n - 1; // 最后一个点
+        return picked;
+    }
+    
+    /**
+     * 显示集成统计的分位数带（每次有新的一批运行完成时调用，整体重建一次）
+     */
+    public void showEnsemble(EnsembleStats stats) {
+        if (stats == null || stats.runs == 0) {
+            clearEnsemble();
+            return;
+        }
+        // 轮次很多时等间隔取点，每条带最多MAX_POINTS个点
+        int step = Math.max(1, (stats.turns + MAX_POINTS) / MAX_POINTS);
+        State[] states = {State.WILDS, State.WASTES, State.DEVA, State.DEVB}; // 与SERIES_TYPES一致
+        chart.setNotify(false);
+        for (int s = 0; s < SERIES_TYPES.length; s++) {
+            for (int b = 0; b < BANDS.length; b++) {
+                YIntervalSeries series = ensembleSeries[s][b];
+                series.setNotify(false);
+                series.clear();
+                for (int round = 0; round <= stats.turns; round += step) {
+                    series.add(round,
+                            stats.quantile(states[s], round, 0.5),
+                            stats.quantile(states[s], round, BANDS[b][0]),
+                            stats.quantile(states[s], round, BANDS[b][1]));
+                }
+                series.setNotify(true);
+            }
+        }
+        // 固定的Y轴范围（动态模式）也要容纳整条带
+        NumberAxis rangeAxis = (NumberAxis) plot.getRangeAxis();
+        if (!rangeAxis.isAutoRange() && rangeAxis.getUpperBound() < stats.positions) {
+            rangeAxis.setRange(0, stats.positions);
+        }
+        chart.setNotify(true);
+        ensembleRuns = stats.runs;
+        setBorder(BorderFactory.createTitledBorder("Stack Trends (ensemble: " + stats.runs + " runs)"));
+    }
+    
+    /**
+     * 清除分位数带
+     */
+    public void clearEnsemble() {
+        if (ensembleRuns == 0) {
+            return;
+        }
+        chart.setNotify(false);
+        for (YIntervalSeries[] bands : ensembleSeries) {
+            for (YIntervalSeries series : bands) {
+                series.clear();
+            }
+        }
+        chart.setNotify(true);
+        ensembleRuns = 0;
+        setBorder(BorderFactory.createTitledBorder("Stack Trends"));
+    }
+    
+    /**
+     * 当前分位数带包含的运行次数（0表示未显示）
+     */
+    public long getEnsembleRuns() {
+        return ensembleRuns;
+    }
+    
     /**
      * 获取图表面板（用于外部访问）
      */
@@ -234,49 +478,63 @@ public class LineChartPanel extends JPanel {
         wastesSeries.clear();
         devASeries.clear();
         devBSeries.clear();
+        shownData = null;
     }
     
     /**
      * 动态添加一轮数据
      */
     public void addDynamicRoundData(int roundNumber, Map<String, Integer> stackCounts) {
-        System.out.println("=== addDynamicRoundData ===");
-        System.out.println("dynamicMode: " + dynamicMode);
-        System.out.println("roundNumber: " + roundNumber);
-        System.out.println("currentDynamicRound: " + currentDynamicRound);
-        System.out.println("stackCounts: " + stackCounts);
-        
         if (!dynamicMode) return;
         
         // 如果这是第一轮数据，或者轮次是连续的，就添加数据
         if (currentDynamicRound == 0 || roundNumber == currentDynamicRound + 1) {
-            System.out.println("Adding data for round " + roundNumber);
-            wildsSeries.add(roundNumber, stackCounts.getOrDefault("WILDS", 0));
-            wastesSeries.add(roundNumber, stackCounts.getOrDefault("WASTES", 0));
-            devASeries.add(roundNumber, stackCounts.getOrDefault("DEVA", 0));
-            devBSeries.add(roundNumber, stackCounts.getOrDefault("DEVB", 0));
-            
-            currentDynamicRound = roundNumber;
-            
-            System.out.println("Series sizes: Wilds=" + wildsSeries.getItemCount() + 
-                             ", Wastes=" + wastesSeries.getItemCount() + 
-                             ", DevA=" + devASeries.getItemCount() + 
-                             ", DevB=" + devBSeries.getItemCount());
-            
-            // 第一次添加数据时，设置合适的Y轴范围
-            if (!axisRangeSet && multiRoundData != null && multiRoundData.getRounds() != null) {
-                System.out.println("Setting initial axis range...");
-                setInitialAxisRange();
-                axisRangeSet = true;
+            int[] values = new int[SERIES_TYPES.length];
+            for (int s = 0; s < values.length; s++) {
+                values[s] = stackCounts.getOrDefault(SERIES_TYPES[s], 0);
             }
-            
-            // 刷新图表
-            chartPanel.repaint();
-            System.out.println("Chart repainted");
+            appendDynamicRound(roundNumber, values);
+        }
+    }
+    
+    /**
+     * 动态模式下前进一轮，使用预先统计的数量（不需要构造Map）
+     */
+    public void advanceDynamicRound(int roundNumber) {
+        if (!dynamicMode) return;
+        countRounds();
+        int i = roundNumber - 1;
+        if (i < 0 || i >= countedRounds) return;
+        if (currentDynamicRound == 0 || roundNumber == currentDynamicRound + 1) {
+            int[] values = new int[SERIES_TYPES.length];
+            for (int s = 0; s < values.length; s++) {
+                values[s] = counts[s][i];
+            }
+            appendDynamicRound(roundNumber, values);
+        }
+    }
+    
+    private void appendDynamicRound(int roundNumber, int[] values) {
+        currentDynamicRound = roundNumber;
+        boolean counted = countedData == multiRoundData && roundNumber >= 1 && roundNumber <= countedRounds;
+        if (wildsSeries.getItemCount() >= 2 * MAX_POINTS && counted) {
+            // 曲线点数过多：重新降采样，而不是继续追加
+            showRounds(roundNumber);
         } else {
-            System.out.println("Skipping round " + roundNumber + " (expected " + (currentDynamicRound + 1) + ")");
+            // 横坐标与showRounds一致：用文件中的round_number（引擎数据从第0轮开始），不是播放下标
+            int x = counted ? roundNumbers[roundNumber - 1] : roundNumber;
+            chart.setNotify(false);
+            for (int s = 0; s < allSeries.length; s++) {
+                allSeries[s].add(x, values[s]);
+            }
+            chart.setNotify(true);
+        }
+        
+        // 第一次添加数据时，设置合适的Y轴范围
+        if (!axisRangeSet && multiRoundData != null && multiRoundData.getRounds() != null) {
+            setInitialAxisRange();
+            axisRangeSet = true;
         }
-        System.out.println("=== end addDynamicRoundData ===");
     }
     
     /**
@@ -297,47 +555,25 @@ public class LineChartPanel extends JPanel {
      * 设置初始轴范围（基于完整数据）
      */
     private void setInitialAxisRange() {
-        System.out.println("=== setInitialAxisRange ===");
         if (multiRoundData == null || multiRoundData.getRounds() == null || multiRoundData.getRounds().isEmpty()) {
-            System.out.println("No multiRoundData available");
             return;
         }
         
-        // 计算所有轮次中的最大stack数量
-        int maxStacks = 0;
-        int totalRounds = multiRoundData.getRounds().size();
-        System.out.println("Total rounds: " + totalRounds);
-        
-        for (RoundData round : multiRoundData.getRounds()) {
-            // 统计当前轮的stack数量
-            Map<String, Integer> stackCounts = new HashMap<>();
-            for (HexData hex : round.getBoard().getHexes()) {
-                String stackType = hex.getType();
-                stackCounts.put(stackType, stackCounts.getOrDefault(stackType, 0) + 1);
-            }
-            
-            System.out.println("Round " + round.getRound_number() + " stacks: " + stackCounts);
-            
-            // 更新最大值
-            for (int count : stackCounts.values()) {
-                maxStacks = Math.max(maxStacks, count);
-            }
-        }
-        
-        System.out.println("Max stacks found: " + maxStacks);
+        // 所有轮次中的最大stack数量（来自预先统计）
+        countRounds();
+        int maxStacks = maxCount;
         
         // 设置Y轴范围，留一些边距
         NumberAxis rangeAxis = (NumberAxis) plot.getRangeAxis();
         rangeAxis.setAutoRange(false);
-        rangeAxis.setRange(0, maxStacks * 1.5); // 留50%的边距，确保不会冲出画面
+        rangeAxis.setRange(0, Math.max(maxStacks * 1.5, 1)); // 留50%的边距，确保不会冲出画面；没有可统计的stack时至少为1
         
-        // 设置X轴范围
+        // 设置X轴范围：第一轮到最后一轮的round_number（只有一轮时范围不能为0）
         NumberAxis domainAxis = (NumberAxis) plot.getDomainAxis();
         domainAxis.setAutoRange(false);
-        domainAxis.setRange(1, totalRounds); // 从1开始，到totalRounds
-        
-        System.out.println("Set axis ranges: X=[1, " + totalRounds + "], Y=[0, " + (maxStacks * 1.5) + "]");
-        System.out.println("=== end setInitialAxisRange ===");
+        int firstRound = countedRounds > 0 ? roundNumbers[0] : 1;
+        int lastRound = countedRounds > 0 ? roundNumbers[countedRounds - 1] : 1;
+        domainAxis.setRange(firstRound, Math.max(lastRound, firstRound + 1));
     }
     
     /**
@@ -352,32 +588,22 @@ public class LineChartPanel extends JPanel {
     }
     
     /**
-     * 设置动态图表到指定轮次（用于回退）
+     * 设置动态图表到指定轮次（用于回退，或开启动态模式时补齐已播放的轮次）
      */
     public void setDynamicRoundTo(int roundNumber) {
         if (!dynamicMode) {
             return;
         }
         
-        // 清除所有数据
-        clearAllSeries();
-        currentDynamicRound = 0;
-        axisRangeSet = false; // 重置轴范围标记，让下次添加数据时重新计算
-        
-        // 重新添加从第1轮到指定轮次的所有数据
-        if (multiRoundData != null && multiRoundData.getRounds() != null) {
-            for (int i = 0; i < roundNumber && i < multiRoundData.getRounds().size(); i++) {
-                RoundData round = multiRoundData.getRounds().get(i);
-                Map<String, Integer> stackCounts = new HashMap<>();
-                
-                // 统计各种stack的数量
-                for (HexData hex : round.getBoard().getHexes()) {
-                    String stackType = hex.getType();
-                    stackCounts.put(stackType, stackCounts.getOrDefault(stackType, 0) + 1);
-                }
-                
-                addDynamicRoundData(i + 1, stackCounts);
-            }
+        // 用预先统计的数据一次性重建第1轮到指定轮次
+        countRounds();
+        int n = Math.min(Math.max(roundNumber, 0), countedRounds);
+        showRounds(n);
+        currentDynamicRound = n;
+        axisRangeSet = false; // 重新计算轴范围
+        if (n > 0) {
+            setInitialAxisRange();
+            axisRangeSet = true;
         }
     }
     
@@ -0,0 +1,91 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * The rounds of a large file, decoded on demand through its {@link RoundIndex}. A miss reads the
+ * WINDOW rounds around the requested one in a single read and decodes those not cached yet;
+ * decoded rounds live in an LRU of CACHE rounds. Only the neighbourhood of the playhead is in
+ * memory, however long the file is, and seeking to any round costs one small read.
+ */
+public class PagedRounds extends AbstractList<RoundData> implements RandomAccess {
+    static final int WINDOW = 128;
+    static final int CACHE = 1024;
+
+    /** Converts the JSON of element {@code index} of the round array. */
+    interface Decoder {
+        RoundData decode(String json, int index) throws IOException;
+    }
+
+    private final File file;
+    private final RoundIndex index;
+    private final Decoder decoder;
+    private final Map<Integer, RoundData> cache = new LinkedHashMap<Integer, RoundData>(CACHE * 4 / 3, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, RoundData> eldest) {
+            return size() > CACHE;
+        }
+    };
+
+    PagedRounds(File file, RoundIndex index, Decoder decoder) {
+        this.file = file;
+        this.index = index;
+        this.decoder = decoder;
+    }
+
+    @Override
+    public synchronized RoundData get(int i) {
+        if (i < 0 || i >= size()) {
+            throw new IndexOutOfBoundsException("Round " + i + " of " + size());
+        }
+        RoundData round = cache.get(i);
+        if (round == null) {
+            try {
+                round = loadWindow(i);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read round " + (i + 1) + " of " + file, e);
+            }
+        }
+        return round;
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    /** round_number of round i, from the index; no decoding. */
+    int roundNumber(int i) {
+        return index.roundNumbers[i];
+    }
+
+    /** Stacks of type RoundIndex.TYPES[type] in round i, from the index; no decoding. */
+    int typeCount(int type, int i) {
+        return index.typeCounts[type][i];
+    }
+
+    private RoundData loadWindow(int i) throws IOException {
+        int to = Math.min(size(), Math.max(i - WINDOW / 2, 0) + WINDOW);
+        int from = Math.max(0, to - WINDOW);
+        long base = index.starts[from];
+        byte[] bytes = RoundIndex.read(file, base, index.ends[to - 1]);
+        RoundData requested = null;
+        for (int k = from; k < to; k++) {
+            RoundData round = k == i ? null : cache.get(k);
+            if (round == null) {
+                String json = new String(bytes, (int) (index.starts[k] - base), (int) (index.ends[k] - index.starts[k]), StandardCharsets.UTF_8);
+                round = decoder.decode(json, k);
+                cache.put(k, round);
+            }
+            if (k == i) {
+                requested = round;
+            }
+        }
+        return requested;
+    }
+}
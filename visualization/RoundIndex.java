@@ -0,0 +1,421 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Byte offsets of the rounds in a multi-round file, so one round can be read without parsing the
+ * rest. A single scan finds the round array ("rounds" in our format, "timeline" in the Java
+ * format, the top-level array in the C format) and records where each element starts and ends,
+ * plus the ranges of the other top-level values (version, legend, game_state, ...), which are small.
+ *
+ * When the index is built, every round is also decoded once, in file order, to record its round
+ * number and how many stacks of each type it has. The trend chart is drawn from these counts, so
+ * it never has to go through the rounds of a paged file.
+ *
+ * The index is saved next to the data as &lt;file&gt;.idx and reused while the file's length and
+ * modification time are unchanged, so reopening a file does not scan it again.
+ */
+public class RoundIndex {
+    static final String SUFFIX = ".idx";
+    private static final int MAGIC = 0x52494458; // "RIDX"
+    private static final int INDEX_VERSION = 2;
+    /** Stack types counted per round, in this order. */
+    static final String[] TYPES = {"WILDS", "WASTES", "DEVA", "DEVB"};
+    private static final int SUMMARY_WINDOW = 1024; // rounds decoded per read while summarizing
+
+    final DataFormatDetector.DataFormat format;
+    final long[] starts; // element i occupies bytes [starts[i], ends[i])
+    final long[] ends;
+    private final Map<String, long[]> header; // other top-level key -> {start, end}
+    private final long fileLength;
+    private final long lastModified;
+    int[] roundNumbers;   // round_number of every round, null until summarized
+    int[][] typeCounts;   // [type][round] stacks of TYPES[type]
+
+    private RoundIndex(DataFormatDetector.DataFormat format, long[] starts, long[] ends,
+                       Map<String, long[]> header, long fileLength, long lastModified) {
+        this.format = format;
+        this.starts = starts;
+        this.ends = ends;
+        this.header = header;
+        this.fileLength = fileLength;
+        this.lastModified = lastModified;
+    }
+
+    int size() {
+        return starts.length;
+    }
+
+    /**
+     * Index of the file: the sidecar if it is current, otherwise a fresh scan. Null when the file
+     * has no round array. A fresh index has no summary yet; see {@link #summarizeAndSave}.
+     */
+    static RoundIndex open(File file) throws IOException {
+        RoundIndex index = readSidecar(new File(file.getPath() + SUFFIX), file);
+        return index != null ? index : scan(file);
+    }
+
+    boolean hasSummary() {
+        return roundNumbers != null;
+    }
+
+    /**
+     * Decode every round once, in file order and SUMMARY_WINDOW rounds per read, keeping only its
+     * round number and stack counts, then save the index with them (if possible).
+     */
+    void summarizeAndSave(File file, PagedRounds.Decoder decoder) throws IOException {
+        summarize(file, decoder);
+        File sidecar = new File(file.getPath() + SUFFIX);
+        try {
+            write(sidecar);
+        } catch (IOException e) {
+            System.err.println("Could not save round index " + sidecar + ": " + e.getMessage());
+        }
+    }
+
+    private void summarize(File file, PagedRounds.Decoder decoder) throws IOException {
+        int n = size();
+        int[] numbers = new int[n];
+        int[][] counts = new int[TYPES.length][n];
+        for (int from = 0; from < n; from += SUMMARY_WINDOW) {
+            int to = Math.min(n, from + SUMMARY_WINDOW);
+            long base = starts[from];
+            byte[] bytes = read(file, base, ends[to - 1]);
+            for (int k = from; k < to; k++) {
+                String json = new String(bytes, (int) (starts[k] - base), (int) (ends[k] - starts[k]), StandardCharsets.UTF_8);
+                RoundData round = decoder.decode(json, k);
+                numbers[k] = round.getRound_number();
+                if (round.getBoard() == null || round.getBoard().getHexes() == null) {
+                    continue;
+                }
+                for (HexData hex : round.getBoard().getHexes()) {
+                    int t = typeIndex(hex.getType());
+                    if (t >= 0) {
+                        counts[t][k]++;
+                    }
+                }
+            }
+        }
+        roundNumbers = numbers;
+        typeCounts = counts;
+    }
+
+    static int typeIndex(String type) {
+        for (int t = 0; t < TYPES.length; t++) {
+            if (TYPES[t].equals(type)) {
+                return t;
+            }
+        }
+        return -1;
+    }
+
+    /** Raw JSON of a top-level value other than the round array, or null if the file has none. */
+    String header(File file, String key) throws IOException {
+        long[] range = header.get(key);
+        return range == null ? null : new String(read(file, range[0], range[1]), StandardCharsets.UTF_8);
+    }
+
+    static byte[] read(File file, long start, long end) throws IOException {
+        byte[] bytes = new byte[Math.toIntExact(end - start)];
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(start);
+            raf.readFully(bytes);
+        }
+        return bytes;
+    }
+
+    static RoundIndex scan(File file) throws IOException {
+        long length = file.length();
+        long modified = file.lastModified();
+        try (InputStream in = new FileInputStream(file)) {
+            Scanner sc = new Scanner(in);
+            Offsets rounds = new Offsets();
+            Map<String, long[]> header = new LinkedHashMap<>();
+            int c = sc.skipWhitespace();
+            if (c == '[') {
+                sc.scanArray(rounds);
+                return new RoundIndex(DataFormatDetector.DataFormat.C_FORMAT, rounds.starts(), rounds.ends(), header, length, modified);
+            }
+            if (c != '{') {
+                return null;
+            }
+            String arrayKey = null;
+            sc.read();
+            while (true) {
+                c = sc.skipWhitespace();
+                if (c == '}') {
+                    break;
+                }
+                if (c == ',') {
+                    sc.read();
+                    continue;
+                }
+                String key = sc.readString();
+                sc.expect(':');
+                if (arrayKey == null && (key.equals("rounds") || key.equals("timeline")) && sc.skipWhitespace() == '[') {
+                    arrayKey = key;
+                    sc.scanArray(rounds);
+                } else {
+                    sc.skipWhitespace();
+                    long start = sc.offset;
+                    sc.skipValue();
+                    header.put(key, new long[]{start, sc.offset});
+                }
+            }
+            DataFormatDetector.DataFormat format;
+            if ("timeline".equals(arrayKey) && header.containsKey("legend")) {
+                format = DataFormatDetector.DataFormat.JAVA_FORMAT;
+            } else if ("rounds".equals(arrayKey)) {
+                format = DataFormatDetector.DataFormat.MY_FORMAT;
+            } else {
+                return null;
+            }
+            return new RoundIndex(format, rounds.starts(), rounds.ends(), header, length, modified);
+        }
+    }
+
+    private void write(File sidecar) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(sidecar)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(INDEX_VERSION);
+            out.writeLong(fileLength);
+            out.writeLong(lastModified);
+            out.writeUTF(format.name());
+            out.writeInt(starts.length);
+            for (int i = 0; i < starts.length; i++) {
+                out.writeLong(starts[i]);
+                out.writeLong(ends[i]);
+            }
+            out.writeInt(header.size());
+            for (Map.Entry<String, long[]> e : header.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeLong(e.getValue()[0]);
+                out.writeLong(e.getValue()[1]);
+            }
+            out.writeBoolean(hasSummary());
+            if (hasSummary()) {
+                for (int i = 0; i < starts.length; i++) {
+                    out.writeInt(roundNumbers[i]);
+                    for (int[] counts : typeCounts) {
+                        out.writeInt(counts[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    // null when there is no sidecar, or it belongs to another version of the file
+    private static RoundIndex readSidecar(File sidecar, File file) {
+        if (!sidecar.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(sidecar)))) {
+            if (in.readInt() != MAGIC || in.readInt() != INDEX_VERSION) {
+                return null;
+            }
+            long length = in.readLong();
+            long modified = in.readLong();
+            if (length != file.length() || modified != file.lastModified()) {
+                return null;
+            }
+            DataFormatDetector.DataFormat format = DataFormatDetector.DataFormat.valueOf(in.readUTF());
+            int n = in.readInt();
+            long[] starts = new long[n];
+            long[] ends = new long[n];
+            for (int i = 0; i < n; i++) {
+                starts[i] = in.readLong();
+                ends[i] = in.readLong();
+            }
+            Map<String, long[]> header = new LinkedHashMap<>();
+            int keys = in.readInt();
+            for (int k = 0; k < keys; k++) {
+                header.put(in.readUTF(), new long[]{in.readLong(), in.readLong()});
+            }
+            RoundIndex index = new RoundIndex(format, starts, ends, header, length, modified);
+            if (in.readBoolean()) {
+                index.roundNumbers = new int[n];
+                index.typeCounts = new int[TYPES.length][n];
+                for (int i = 0; i < n; i++) {
+                    index.roundNumbers[i] = in.readInt();
+                    for (int[] counts : index.typeCounts) {
+                        counts[i] = in.readInt();
+                    }
+                }
+            }
+            return index;
+        } catch (IOException | IllegalArgumentException e) {
+            return null; // unreadable index: scan again
+        }
+    }
+
+    /** Growable start/end offsets of the array elements. */
+    private static final class Offsets {
+        private long[] starts = new long[1024];
+        private long[] ends = new long[1024];
+        private int size;
+
+        void add(long start, long end) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            size++;
+        }
+
+        long[] starts() {
+            return Arrays.copyOf(starts, size);
+        }
+
+        long[] ends() {
+            return Arrays.copyOf(ends, size);
+        }
+    }
+
+    /** Minimal JSON tokenizer over bytes that only tracks structure and the byte offset. */
+    private static final class Scanner {
+        private final InputStream in;
+        private final byte[] buf = new byte[1 << 16];
+        private int len, pos;
+        long offset; // file offset of the next byte
+
+        Scanner(InputStream in) {
+            this.in = in;
+        }
+
+        int peek() throws IOException {
+            if (pos == len) {
+                len = Math.max(in.read(buf), 0);
+                pos = 0;
+                if (len == 0) {
+                    return -1;
+                }
+            }
+            return buf[pos] & 0xff;
+        }
+
+        int read() throws IOException {
+            int c = peek();
+            if (c >= 0) {
+                pos++;
+                offset++;
+            }
+            return c;
+        }
+
+        int skipWhitespace() throws IOException {
+            int c;
+            while ((c = peek()) == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                read();
+            }
+            return c;
+        }
+
+        void expect(char ch) throws IOException {
+            if (skipWhitespace() != ch) {
+                throw new IOException("Expected '" + ch + "' at byte " + offset);
+            }
+            read();
+        }
+
+        // Keys are compared as raw bytes; escapes are kept, not decoded
+        String readString() throws IOException {
+            expect('"');
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            while (true) {
+                int c = read();
+                if (c < 0) {
+                    throw new IOException("Unterminated string");
+                }
+                if (c == '"') {
+                    return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+                }
+                bytes.write(c);
+                if (c == '\\') {
+                    bytes.write(read());
+                }
+            }
+        }
+
+        // After the opening quote
+        private void skipStringBody() throws IOException {
+            while (true) {
+                int c = read();
+                if (c < 0) {
+                    throw new IOException("Unterminated string");
+                }
+                if (c == '"') {
+                    return;
+                }
+                if (c == '\\') {
+                    read();
+                }
+            }
+        }
+
+        void skipValue() throws IOException {
+            int c = skipWhitespace();
+            if (c == '"') {
+                read();
+                skipStringBody();
+            } else if (c == '{' || c == '[') {
+                read();
+                int depth = 1;
+                while (depth > 0) {
+                    c = read();
+                    if (c < 0) {
+                        throw new IOException("Unexpected end of file");
+                    }
+                    if (c == '"') {
+                        skipStringBody();
+                    } else if (c == '{' || c == '[') {
+                        depth++;
+                    } else if (c == '}' || c == ']') {
+                        depth--;
+                    }
+                }
+            } else {
+                // number, true, false, null
+                while ((c = peek()) >= 0 && c != ',' && c != '}' && c != ']'
+                        && c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                    read();
+                }
+            }
+        }
+
+        void scanArray(Offsets offsets) throws IOException {
+            expect('[');
+            if (skipWhitespace() == ']') {
+                read();
+                return;
+            }
+            while (true) {
+                skipWhitespace();
+                long start = offset;
+                skipValue();
+                offsets.add(start, offset);
+                int c = skipWhitespace();
+                read();
+                if (c == ']') {
+                    return;
+                }
+                if (c != ',') {
+                    throw new IOException("Expected ',' or ']' at byte " + (offset - 1));
+                }
+            }
+        }
+    }
+}
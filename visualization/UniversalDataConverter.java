@@ -1,105 +1,234 @@
-import java.io.IOException;
-import java.io.FileReader;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Loads any of the three data formats in one streaming pass: the first token tells a C file
+ * (array of rounds) from an object, and the keys of the object tell the Java format (legend +
+ * timeline or timeline_delta) from ours (board or rounds). Each section is converted as it is read,
+ * so a file is parsed once and only the converted rounds are kept; the Java "round_outputs" are skipped.
+ *
+ * Files of PAGED_MIN_BYTES and more are not loaded at all: they are indexed (RoundIndex) and
+ * their rounds are decoded on demand around the playhead (PagedRounds).
+ */
 public class UniversalDataConverter {
-    
+    private static final Gson GSON = new Gson();
+    static final long PAGED_MIN_BYTES = 16L << 20;
+
     public static MultiRoundGameData convertFileToMultiRound(String filePath) throws IOException {
-        String jsonContent = readFileContent(filePath);
-        DataFormatDetector.DataFormat format = DataFormatDetector.detectFormat(jsonContent);
-        
-        switch (format) {
-            case MY_FORMAT:
-                return convertMyFormatToMultiRound(jsonContent);
-            case JAVA_FORMAT:
-                return JavaDataAdapter.convertToMultiRound(jsonContent);
-            case C_FORMAT:
-                return CDataAdapter.convertToMultiRound(jsonContent);
-            default:
-                throw new IOException("Unsupported data format in file: " + filePath);
+        try {
+            File file = new File(filePath);
+            if (file.length() >= PAGED_MIN_BYTES) {
+                MultiRoundGameData paged = openPaged(file);
+                if (paged != null) {
+                    return paged;
+                }
+            }
+            try (Reader reader = new BufferedReader(new FileReader(filePath))) {
+                return convertToMultiRound(reader);
+            }
+        } catch (IOException e) {
+            throw new IOException(e.getMessage() + " in file: " + filePath, e);
+        }
+    }
+
+    /**
+     * Index the file (or reuse its saved index) and decode its rounds on demand; null when the
+     * file has no round array to page through.
+     */
+    static MultiRoundGameData openPaged(File file) throws IOException {
+        RoundIndex index = RoundIndex.open(file);
+        if (index == null || index.size() == 0) {
+            return null;
+        }
+        try {
+            MultiRoundGameData multiRound = new MultiRoundGameData();
+            PagedRounds.Decoder decoder;
+            switch (index.format) {
+                case JAVA_FORMAT: {
+                    String legend = index.header(file, "legend");
+                    String gameState = index.header(file, "game_state");
+                    String tokens = index.header(file, "tokens");
+                    if (gameState == null || tokens == null) {
+                        throw new IOException("Unsupported data format");
+                    }
+                    String[] stateNames = JavaDataAdapter.readLegend(new JsonReader(new StringReader(legend)));
+                    JsonObject finalState = JsonParser.parseString(gameState).getAsJsonObject();
+                    JsonObject finalTokens = JsonParser.parseString(tokens).getAsJsonObject();
+                    decoder = (json, i) -> JavaDataAdapter.toRoundData(
+                            JavaDataAdapter.readTimelineRound(new JsonReader(new StringReader(json))),
+                            stateNames, finalState, finalTokens);
+                    multiRound.setVersion(headerInt(file, index, "version", 0));
+                    multiRound.setTotal_rounds(index.size());
+                    break;
+                }
+                case C_FORMAT:
+                    decoder = (json, i) -> CDataAdapter.toRoundData(JsonParser.parseString(json).getAsJsonObject(), i + 1);
+                    multiRound.setTotal_rounds(index.size());
+                    break;
+                default:
+                    decoder = (json, i) -> GSON.fromJson(json, RoundData.class);
+                    multiRound.setVersion(headerInt(file, index, "version", 0));
+                    multiRound.setTotal_rounds(headerInt(file, index, "total_rounds", index.size()));
+                    break;
+            }
+            PagedRounds rounds = new PagedRounds(file, index, decoder);
+            if (index.format == DataFormatDetector.DataFormat.C_FORMAT) {
+                multiRound.setVersion(rounds.get(0).getGame_state().getCurrent_round()); // Use first round's version
+            } else if (index.format == DataFormatDetector.DataFormat.MY_FORMAT && !isLayered(rounds.get(0).getBoard())) {
+                throw new IOException("Unsupported data format");
+            }
+            if (!index.hasSummary()) {
+                // New index: one pass for the per-round counts the trend chart needs, then saved with it
+                index.summarizeAndSave(file, decoder);
+            }
+            multiRound.setRounds(rounds);
+            return multiRound;
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid data: " + e, e);
         }
     }
-    
+
+    private static int headerInt(File file, RoundIndex index, String key, int missing) throws IOException {
+        String json = index.header(file, key);
+        return json == null ? missing : Integer.parseInt(json.trim());
+    }
+
     public static GameData convertFileToSingleRound(String filePath) throws IOException {
-        String jsonContent = readFileContent(filePath);
-        DataFormatDetector.DataFormat format = DataFormatDetector.detectFormat(jsonContent);
-        
-        switch (format) {
-            case MY_FORMAT:
-                return convertMyFormatToSingleRound(jsonContent);
-            case JAVA_FORMAT:
-                return convertJavaFormatToSingleRound(jsonContent);
-            case C_FORMAT:
-                return convertCFormatToSingleRound(jsonContent);
-            default:
-                throw new IOException("Unsupported data format in file: " + filePath);
+        // Single-round files load as one round; for the others use the last (final) round
+        MultiRoundGameData multiRound = convertFileToMultiRound(filePath);
+        if (multiRound != null && !multiRound.getRounds().isEmpty()) {
+            RoundData lastRound = multiRound.getRounds().get(multiRound.getRounds().size() - 1);
+            return convertRoundToGameData(lastRound, multiRound.getVersion());
         }
+        return null;
     }
-    
-    private static String readFileContent(String filePath) throws IOException {
-        StringBuilder content = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                content.append(line).append("\n");
+
+    /** Detect the format and convert in a single pass over the reader. */
+    public static MultiRoundGameData convertToMultiRound(Reader reader) throws IOException {
+        JsonReader in = new JsonReader(reader);
+        try {
+            JsonToken first = in.peek();
+            if (first == JsonToken.BEGIN_ARRAY) {
+                return CDataAdapter.readRounds(in);
+            }
+            if (first == JsonToken.BEGIN_OBJECT) {
+                return readObject(in);
             }
+        } catch (RuntimeException e) {
+            // malformed JSON, or a section missing from an otherwise recognised format
+            throw new IOException("Invalid data: " + e, e);
         }
-        return content.toString();
+        throw new IOException("Unsupported data format");
     }
-    
-    public static MultiRoundGameData convertMyFormatToMultiRound(String jsonContent) {
-        // Check if it's already multi-round format
-        if (jsonContent.contains("\"rounds\"") && jsonContent.contains("\"total_rounds\"")) {
-            // It's already multi-round format, parse directly
-            JsonReader reader = new JsonReader();
-            return reader.readMultiRoundGameDataFromString(jsonContent);
-        } else {
-            // Your format is single round, convert to multi-round with one round
-            GameData singleRound = convertMyFormatToSingleRound(jsonContent);
+
+    // Java format or ours; collect the small sections, convert the large ones while reading
+    private static MultiRoundGameData readObject(JsonReader in) throws IOException {
+        int version = 0;
+        int totalRounds = -1;
+        String[] stateNames = null;
+        List<JavaDataAdapter.TimelineRound> timeline = null;
+        List<RoundData> rounds = null;
+        JsonElement board = null;
+        JsonElement gameState = null;
+        JsonElement tokens = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "version":
+                    version = in.nextInt();
+                    break;
+                case "legend":
+                    stateNames = JavaDataAdapter.readLegend(in);
+                    break;
+                case "timeline":
+                    timeline = JavaDataAdapter.readTimeline(in);
+                    break;
+                case "timeline_delta":
+                    timeline = JavaDataAdapter.readDeltaTimeline(in);
+                    break;
+                case "total_rounds":
+                    totalRounds = in.nextInt();
+                    break;
+                case "rounds":
+                    rounds = readRounds(in);
+                    break;
+                case "board":
+                    board = JsonParser.parseReader(in);
+                    break;
+                case "game_state":
+                    gameState = JsonParser.parseReader(in);
+                    break;
+                case "tokens":
+                    tokens = JsonParser.parseReader(in);
+                    break;
+                default:
+                    in.skipValue(); // round_outputs, maximum_tokens, ...
+            }
+        }
+        in.endObject();
+
+        if (stateNames != null && timeline != null) {
+            return JavaDataAdapter.toMultiRound(version, stateNames, timeline,
+                    gameState.getAsJsonObject(), tokens.getAsJsonObject());
+        }
+        if (rounds != null && totalRounds >= 0 && !rounds.isEmpty() && isLayered(rounds.get(0).getBoard())) {
             MultiRoundGameData multiRound = new MultiRoundGameData();
-            multiRound.setVersion(singleRound.getVersion());
-            multiRound.setTotal_rounds(1);
-            
+            multiRound.setVersion(version);
+            multiRound.setTotal_rounds(totalRounds);
+            multiRound.setRounds(rounds);
+            return multiRound;
+        }
+        if (board != null && DataFormatDetector.hasLayeredHexes(board)) {
+            // Your format is single round, convert to multi-round with one round
             RoundData roundData = new RoundData();
             roundData.setRound_number(1);
-            roundData.setBoard(singleRound.getBoard());
-            roundData.setGame_state(singleRound.getGame_state());
-            roundData.setTokens(singleRound.getTokens());
-            
-            java.util.List<RoundData> rounds = new java.util.ArrayList<>();
-            rounds.add(roundData);
-            multiRound.setRounds(rounds);
-            
+            roundData.setBoard(GSON.fromJson(board, GameBoard.class));
+            roundData.setGame_state(GSON.fromJson(gameState, GameState.class));
+            roundData.setTokens(GSON.fromJson(tokens, Tokens.class));
+
+            List<RoundData> single = new ArrayList<>();
+            single.add(roundData);
+            MultiRoundGameData multiRound = new MultiRoundGameData();
+            multiRound.setVersion(version);
+            multiRound.setTotal_rounds(1);
+            multiRound.setRounds(single);
             return multiRound;
         }
+        throw new IOException("Unsupported data format");
     }
-    
-    private static GameData convertMyFormatToSingleRound(String jsonContent) {
-        // Use existing JsonReader for your format
-        JsonReader reader = new JsonReader();
-        return reader.readGameDataFromString(jsonContent);
-    }
-    
-    private static GameData convertJavaFormatToSingleRound(String jsonContent) {
-        // Convert Java format to single round (use final state)
-        MultiRoundGameData multiRound = JavaDataAdapter.convertToMultiRound(jsonContent);
-        if (multiRound != null && !multiRound.getRounds().isEmpty()) {
-            RoundData lastRound = multiRound.getRounds().get(multiRound.getRounds().size() - 1);
-            return convertRoundToGameData(lastRound, multiRound.getVersion());
+
+    private static List<RoundData> readRounds(JsonReader in) throws IOException {
+        List<RoundData> rounds = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            rounds.add(GSON.fromJson(in, RoundData.class));
         }
-        return null;
+        in.endArray();
+        return rounds;
     }
-    
-    private static GameData convertCFormatToSingleRound(String jsonContent) {
-        // Convert C format to single round (use last round)
-        MultiRoundGameData multiRound = CDataAdapter.convertToMultiRound(jsonContent);
-        if (multiRound != null && !multiRound.getRounds().isEmpty()) {
-            RoundData lastRound = multiRound.getRounds().get(multiRound.getRounds().size() - 1);
-            return convertRoundToGameData(lastRound, multiRound.getVersion());
+
+    private static boolean isLayered(GameBoard board) {
+        if (board == null || board.getHexes() == null || board.getHexes().isEmpty()) {
+            return false;
         }
-        return null;
+        HexData firstHex = board.getHexes().get(0);
+        return firstHex.getBaseType() != null || firstHex.getTopType() != null;
     }
-    
+
     private static GameData convertRoundToGameData(RoundData roundData, int version) {
         GameData gameData = new GameData();
         gameData.setVersion(version);